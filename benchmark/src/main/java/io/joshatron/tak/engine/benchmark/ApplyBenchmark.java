@@ -0,0 +1,49 @@
+package io.joshatron.tak.engine.benchmark;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.game.TakUndo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Applies every legal action of every position and takes it back again, so the positions stay
+//the same between invocations. This covers submitAction through updateState and the status check.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplyBenchmark {
+    @Benchmark
+    public void stateActions(PositionState positions) throws BoardGameEngineException {
+        for(int i = 0; i < positions.states.size(); i++) {
+            TakState state = positions.states.get(i);
+            List<Action> actions = positions.actions.get(i);
+            for(Action action : actions) {
+                TakUndo undo = positions.engine.makeAction(state, action);
+                positions.engine.unmakeAction(state, undo);
+            }
+        }
+    }
+
+    @Benchmark
+    public void bitStateMoves(PositionState positions) {
+        for(int i = 0; i < positions.bitStates.size(); i++) {
+            TakBitState state = positions.bitStates.get(i);
+            for(int move : positions.moves[i]) {
+                long undo = positions.engine.makeMove(state, move);
+                positions.engine.unmakeMove(state, undo);
+            }
+        }
+    }
+}
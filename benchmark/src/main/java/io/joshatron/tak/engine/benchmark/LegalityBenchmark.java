@@ -0,0 +1,48 @@
+package io.joshatron.tak.engine.benchmark;
+
+import io.joshatron.bgt.engine.action.Action;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//Checks a mix of legal and illegal actions against every position
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegalityBenchmark {
+    @Benchmark
+    public int stateActions(PositionState positions) {
+        int legal = 0;
+        for(int i = 0; i < positions.states.size(); i++) {
+            for(Action action : positions.candidates.get(i)) {
+                if(positions.engine.isLegalAction(positions.states.get(i), action)) {
+                    legal++;
+                }
+            }
+        }
+
+        return legal;
+    }
+
+    @Benchmark
+    public int bitStateActions(PositionState positions) {
+        int legal = 0;
+        for(int i = 0; i < positions.bitStates.size(); i++) {
+            for(Action action : positions.candidates.get(i)) {
+                if(positions.engine.isLegalAction(positions.bitStates.get(i), action)) {
+                    legal++;
+                }
+            }
+        }
+
+        return legal;
+    }
+}
@@ -0,0 +1,46 @@
+package io.joshatron.tak.engine.benchmark;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+    @Benchmark
+    public void stateActions(PositionState positions, Blackhole hole) throws BoardGameEngineException {
+        for(TakState state : positions.states) {
+            hole.consume(positions.engine.getPossibleActions(state));
+        }
+    }
+
+    @Benchmark
+    public void bitStateActions(PositionState positions, Blackhole hole) throws BoardGameEngineException {
+        for(TakBitState state : positions.bitStates) {
+            hole.consume(positions.engine.getPossibleActions(state));
+        }
+    }
+
+    @Benchmark
+    public int bitStateMoves(PositionState positions) {
+        int total = 0;
+        for(TakBitState state : positions.bitStates) {
+            total += positions.engine.getPossibleMoves(state, positions.buffer);
+        }
+
+        return total;
+    }
+}
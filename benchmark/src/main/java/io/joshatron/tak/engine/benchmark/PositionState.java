@@ -0,0 +1,63 @@
+package io.joshatron.tak.engine.benchmark;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+import io.joshatron.tak.engine.game.TakState;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//The positions of one suite and board size in both representations, with everything the benchmarks
+//need about them worked out ahead so only the engine call being measured runs in the benchmark.
+//Each benchmark invocation goes through the whole suite.
+@State(Scope.Thread)
+public class PositionState {
+    @Param({"3", "4", "5", "6", "8"})
+    public int size;
+
+    @Param({"OPENING", "MIDGAME", "ENDGAME"})
+    public Suite suite;
+
+    public TakEngine engine;
+    public List<TakState> states;
+    public List<TakBitState> bitStates;
+    //The legal actions and packed moves of each position
+    public List<List<Action>> actions;
+    public int[][] moves;
+    //The legal actions of each position followed by those of the next, most of which aren't legal in it
+    public List<List<Action>> candidates;
+    public int[] buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws BoardGameEngineException {
+        Positions positions = new Positions(suite, size);
+        engine = new TakEngine();
+        states = positions.getStates();
+        bitStates = positions.getBitStates();
+        buffer = new int[TakMoveGenerator.getMaxMoves(size)];
+
+        actions = new ArrayList<>();
+        moves = new int[states.size()][];
+        for(int i = 0; i < states.size(); i++) {
+            actions.add(engine.getPossibleActions(states.get(i)));
+            int count = engine.getPossibleMoves(bitStates.get(i), buffer);
+            moves[i] = new int[count];
+            System.arraycopy(buffer, 0, moves[i], 0, count);
+        }
+
+        candidates = new ArrayList<>();
+        for(int i = 0; i < states.size(); i++) {
+            List<Action> list = new ArrayList<>(actions.get(i));
+            list.addAll(actions.get((i + 1) % states.size()));
+            candidates.add(list);
+        }
+    }
+}
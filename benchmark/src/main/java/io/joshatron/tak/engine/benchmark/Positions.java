@@ -0,0 +1,141 @@
+package io.joshatron.tak.engine.benchmark;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.game.WinReason;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+//A reproducible set of unfinished positions for a suite and board size.
+//They come from random games with a fixed seed, with the choices weighted toward what the suite needs,
+//and each is kept as the packed moves that reach it so fresh copies can be made at any time.
+public class Positions {
+    public static final int COUNT = 16;
+
+    private static final int MAX_PLIES = 300;
+    private static final int MAX_GAMES = 10000;
+
+    private final Suite suite;
+    private final int size;
+    private final List<int[]> lines;
+
+    public Positions(Suite suite, int size) throws BoardGameEngineException {
+        this.suite = suite;
+        this.size = size;
+        this.lines = new ArrayList<>();
+
+        TakEngine engine = new TakEngine();
+        Random rand = new Random(suite.ordinal() * 31L + size);
+        int[] moves = new int[TakMoveGenerator.getMaxMoves(size)];
+        for(int game = 0; game < MAX_GAMES && lines.size() < COUNT; game++) {
+            TakBitState state = new TakBitState(PlayerIndicator.WHITE, size);
+            int[] line = new int[MAX_PLIES];
+            int target = 2 + rand.nextInt(5);
+            while(state.getPly() < MAX_PLIES && !isOver(state)) {
+                if(isWanted(state, target)) {
+                    lines.add(Arrays.copyOf(line, state.getPly()));
+                    break;
+                }
+
+                int count = engine.getPossibleMoves(state, moves);
+                int move = pickMove(moves, count, rand);
+                line[state.getPly()] = move;
+                engine.submitAction(state, move);
+            }
+        }
+    }
+
+    public Suite getSuite() {
+        return suite;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCount() {
+        return lines.size();
+    }
+
+    public List<TakState> getStates() throws BoardGameEngineException {
+        TakEngine engine = new TakEngine();
+        List<TakState> states = new ArrayList<>();
+        for(int[] line : lines) {
+            TakState state = new TakState(PlayerIndicator.WHITE, size);
+            for(int move : line) {
+                engine.submitAction(state, move);
+            }
+            states.add(state);
+        }
+
+        return states;
+    }
+
+    public List<TakBitState> getBitStates() throws BoardGameEngineException {
+        TakEngine engine = new TakEngine();
+        List<TakBitState> states = new ArrayList<>();
+        for(int[] line : lines) {
+            TakBitState state = new TakBitState(PlayerIndicator.WHITE, size);
+            for(int move : line) {
+                engine.submitAction(state, move);
+            }
+            states.add(state);
+        }
+
+        return states;
+    }
+
+    private boolean isWanted(TakBitState state, int target) {
+        switch(suite) {
+            case OPENING:
+                return state.getPly() == target;
+            case MIDGAME:
+                return state.getPly() >= 2 * size && getTallest(state) >= Math.min(size, 5);
+            case ENDGAME:
+                return Long.bitCount(~state.getOccupied() & BitBoards.getBoardMask(size)) <= Math.max(1, size * size / 10);
+            default:
+                return false;
+        }
+    }
+
+    //Midgames favour moving stacks and endgames favour placing, otherwise any move is as likely
+    private int pickMove(int[] moves, int count, Random rand) {
+        boolean wantMove = suite == Suite.MIDGAME;
+        if(suite != Suite.OPENING && rand.nextInt(10) < 8) {
+            int matching = 0;
+            for(int i = 0; i < count; i++) {
+                if(TakPackedMove.isMove(moves[i]) == wantMove) {
+                    moves[matching] = moves[i];
+                    matching++;
+                }
+            }
+            if(matching > 0) {
+                return moves[rand.nextInt(matching)];
+            }
+        }
+
+        return moves[rand.nextInt(count)];
+    }
+
+    private int getTallest(TakBitState state) {
+        int tallest = 0;
+        for(int square = 0; square < size * size; square++) {
+            tallest = Math.max(tallest, state.getHeight(square));
+        }
+
+        return tallest;
+    }
+
+    private static boolean isOver(TakBitState state) {
+        return state.getStatus() != null && state.getStatus().getReason() != WinReason.NONE;
+    }
+}
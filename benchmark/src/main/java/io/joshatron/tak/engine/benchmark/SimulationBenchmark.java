@@ -0,0 +1,96 @@
+package io.joshatron.tak.engine.benchmark;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+import io.joshatron.tak.engine.simulation.GameRecord;
+import io.joshatron.tak.engine.simulation.RandomMovePolicy;
+import io.joshatron.tak.engine.simulation.TakSimulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//Random self-play games on one thread, the simulator's batches against playing each game to the end
+//before starting the next. Each invocation plays the same number of games, so the scores compare directly.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+    private static final int GAMES = 1024;
+    private static final int MAX_PLIES = 500;
+
+    @Param({"5"})
+    public int size;
+
+    @Param({"1", "8", "64", "1024"})
+    public int batchSize;
+
+    private TakSimulator simulator;
+    private TakEngine engine;
+    private TakBitState start;
+    private Random rand;
+    private int[] moves;
+    private int[] log;
+
+    @Setup(Level.Trial)
+    public void setUp() throws BoardGameEngineException {
+        simulator = new TakSimulator(size, 1, batchSize, MAX_PLIES, RandomMovePolicy::new);
+        engine = new TakEngine();
+        start = new TakBitState(PlayerIndicator.WHITE, size);
+        rand = new Random(size);
+        moves = new int[TakMoveGenerator.getMaxMoves(size)];
+        log = new int[MAX_PLIES];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        simulator.shutdown();
+    }
+
+    @Benchmark
+    public long simulator(Blackhole hole) {
+        return simulator.run(GAMES, rand.nextLong(), hole::consume).getPlies();
+    }
+
+    //The same games one at a time, which batches are measured against
+    @Benchmark
+    public long oneAtATime(Blackhole hole) {
+        long plies = 0;
+        for(int game = 0; game < GAMES; game++) {
+            TakBitState state = new TakBitState(start);
+            while(!state.getStatus().isFinished() && state.getPly() < MAX_PLIES) {
+                int count = engine.getPossibleMoves(state, moves);
+                if(count == 0) {
+                    break;
+                }
+                int move = moves[rand.nextInt(count)];
+                log[state.getPly()] = move;
+                engine.makeMove(state, move);
+                plies++;
+            }
+            hole.consume(new GameRecord(size, start.getFirst(), Arrays.copyOf(log, state.getPly()), state.getStatus()));
+        }
+
+        return plies;
+    }
+}
@@ -0,0 +1,12 @@
+package io.joshatron.tak.engine.benchmark;
+
+//The kinds of positions benchmarks are run against, since the hot paths cost very different amounts
+//on a nearly empty board, around tall stacks and on a board with almost nowhere left to place
+public enum Suite {
+    //A few turns in, mostly empty squares so mostly placements
+    OPENING,
+    //Well into the game with at least one tall stack, so moves with many ways to drop
+    MIDGAME,
+    //Only a few empty squares left, so the board full check and roads decide the status
+    ENDGAME
+}
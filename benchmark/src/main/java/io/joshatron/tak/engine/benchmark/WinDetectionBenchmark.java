@@ -0,0 +1,54 @@
+package io.joshatron.tak.engine.benchmark;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//The road check both players get after every turn, the part of the status check that grows with the board.
+//The rest of the status check runs as part of ApplyBenchmark.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WinDetectionBenchmark {
+    @Benchmark
+    public int stateRoads(PositionState positions) throws BoardGameEngineException {
+        int roads = 0;
+        for(TakState state : positions.states) {
+            if(state.hasRoad(PlayerIndicator.WHITE)) {
+                roads++;
+            }
+            if(state.hasRoad(PlayerIndicator.BLACK)) {
+                roads++;
+            }
+        }
+
+        return roads;
+    }
+
+    @Benchmark
+    public int bitStateRoads(PositionState positions) {
+        int roads = 0;
+        for(TakBitState state : positions.bitStates) {
+            if(state.hasRoad(TakBitState.WHITE)) {
+                roads++;
+            }
+            if(state.hasRoad(TakBitState.BLACK)) {
+                roads++;
+            }
+        }
+
+        return roads;
+    }
+}
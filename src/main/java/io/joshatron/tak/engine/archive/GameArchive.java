@@ -0,0 +1,75 @@
+package io.joshatron.tak.engine.archive;
+
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.bgt.engine.state.Status;
+import io.joshatron.tak.engine.game.TakStatus;
+import io.joshatron.tak.engine.game.WinReason;
+
+//The binary archive format shared by the reader and writer.
+//A file starts with the magic bytes TAKA and a version byte, followed by games one after another.
+//Each game is a varint with the length of the rest of the game, so games can be skipped without reading them,
+//then a byte with the size in bits 0-3 and bit 4 set when black went first, a byte with the win reason
+//in bits 0-2 and the winner in bits 3-4 (0 for none, 1 white, 2 black), the score and the number of plies
+//as varints and then every packed move as a varint. Most places fit in one byte and moves in three.
+final class GameArchive {
+    static final byte[] MAGIC = {'T', 'A', 'K', 'A'};
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = MAGIC.length + 1;
+    //The most a varint of an int takes
+    static final int MAX_VARINT = 5;
+
+    private static final WinReason[] REASONS = WinReason.values();
+
+    private GameArchive() {
+    }
+
+    static int getInfo(int size, PlayerIndicator first) {
+        return size | (first == PlayerIndicator.BLACK ? 0x10 : 0);
+    }
+
+    static int getSize(int info) {
+        return info & 0xF;
+    }
+
+    static PlayerIndicator getFirst(int info) {
+        return (info & 0x10) != 0 ? PlayerIndicator.BLACK : PlayerIndicator.WHITE;
+    }
+
+    static int getResult(TakStatus status) {
+        if(status == null || !status.isFinished()) {
+            return WinReason.NONE.ordinal();
+        }
+
+        int winner = 0;
+        if(status.getWinner() == PlayerIndicator.WHITE) {
+            winner = 1;
+        }
+        else if(status.getWinner() == PlayerIndicator.BLACK) {
+            winner = 2;
+        }
+
+        return status.getReason().ordinal() | (winner << 3);
+    }
+
+    //Null when the result is corrupt
+    static TakStatus getStatus(int result, int score) {
+        int reason = result & 0x7;
+        int winner = (result >>> 3) & 0x3;
+        if(reason >= REASONS.length || winner == 3 || (result & ~0x1F) != 0) {
+            return null;
+        }
+        if(REASONS[reason] == WinReason.NONE) {
+            return new TakStatus();
+        }
+
+        PlayerIndicator player = null;
+        if(winner == 1) {
+            player = PlayerIndicator.WHITE;
+        }
+        else if(winner == 2) {
+            player = PlayerIndicator.BLACK;
+        }
+
+        return new TakStatus(Status.COMPLETE, player, REASONS[reason], score);
+    }
+}
@@ -0,0 +1,211 @@
+package io.joshatron.tak.engine.archive;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakStatus;
+import io.joshatron.tak.engine.simulation.GameRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//Reads a binary archive one game at a time from a memory mapped file, see GameArchive for the format.
+//The file is mapped a window at a time, so archives bigger than a single mapping can be read, and moves are
+//decoded straight out of the mapping into a buffer that is reused for every game. Moving to the next game
+//only reads its header, so games can be filtered by size or result without decoding their moves.
+//A reader is for one thread.
+public class GameArchiveReader implements Closeable {
+    private static final long WINDOW = 1L << 30;
+
+    private final FileChannel channel;
+    private final long fileLength;
+    private final long windowSize;
+    private final TakEngine engine;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    //Where in the window the next byte is read from
+    private int cursor;
+
+    private int size;
+    private PlayerIndicator first;
+    private TakStatus status;
+    private int plies;
+    private int movesStart;
+    private int movesEnd;
+    private int[] moves;
+    private boolean decoded;
+
+    public GameArchiveReader(Path path) throws IOException, BoardGameEngineException {
+        this(path, WINDOW);
+    }
+
+    GameArchiveReader(Path path, long windowSize) throws IOException, BoardGameEngineException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileLength = channel.size();
+        this.windowSize = windowSize;
+        this.engine = new TakEngine();
+        this.moves = new int[256];
+
+        if(fileLength < GameArchive.HEADER_LENGTH) {
+            channel.close();
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_GAME_RECORD);
+        }
+        map(0, GameArchive.HEADER_LENGTH);
+        for(int i = 0; i < GameArchive.MAGIC.length; i++) {
+            if(window.get(i) != GameArchive.MAGIC[i]) {
+                channel.close();
+                throw new BoardGameEngineException(TakEngineErrorCode.INVALID_GAME_RECORD);
+            }
+        }
+        if(window.get(GameArchive.MAGIC.length) != GameArchive.VERSION) {
+            channel.close();
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_GAME_RECORD);
+        }
+        position = GameArchive.HEADER_LENGTH;
+    }
+
+    //Moves to the next game, returning false at the end of the archive
+    public boolean next() throws IOException, BoardGameEngineException {
+        if(position == fileLength) {
+            return false;
+        }
+
+        map(position, (int) Math.min(GameArchive.MAX_VARINT, fileLength - position));
+        cursor = (int) (position - windowStart);
+        int length = readVarint(window.limit());
+        long end = windowStart + cursor + (length & 0xFFFFFFFFL);
+        if(end > fileLength || length < 4) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_GAME_RECORD);
+        }
+        int header = (int) (windowStart + cursor - position);
+        map(position, (int) (end - position));
+        cursor = (int) (position - windowStart) + header;
+        int bodyEnd = (int) (end - windowStart);
+
+        int info = window.get(cursor++) & 0xFF;
+        int result = window.get(cursor++) & 0xFF;
+        size = GameArchive.getSize(info);
+        first = GameArchive.getFirst(info);
+        TakBitState.getStartingStones(size);
+        int score = readVarint(bodyEnd);
+        plies = readVarint(bodyEnd);
+        status = GameArchive.getStatus(result, score);
+        if(status == null || plies < 0 || plies > bodyEnd - cursor) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_GAME_RECORD);
+        }
+
+        movesStart = cursor;
+        movesEnd = bodyEnd;
+        decoded = false;
+        position = end;
+        return true;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public PlayerIndicator getFirst() {
+        return first;
+    }
+
+    //The status the game ended on, still in progress when it was cut off
+    public TakStatus getStatus() {
+        return status;
+    }
+
+    public int getPlies() {
+        return plies;
+    }
+
+    public int getMove(int ply) throws BoardGameEngineException {
+        decode();
+        if(ply < 0 || ply >= plies) {
+            throw new IndexOutOfBoundsException("Ply " + ply + " of " + plies);
+        }
+
+        return moves[ply];
+    }
+
+    public int[] getMoves() throws BoardGameEngineException {
+        decode();
+        return Arrays.copyOf(moves, plies);
+    }
+
+    public GameRecord getRecord() throws BoardGameEngineException {
+        return new GameRecord(size, first, getMoves(), status);
+    }
+
+    //Plays the game through the engine from the start and returns the position it ends on.
+    //Without validation the moves are made as they are, so only skip it for archives that can be trusted.
+    public TakBitState replay(boolean validate) throws BoardGameEngineException {
+        decode();
+        TakBitState state = new TakBitState(first, size);
+        for(int i = 0; i < plies; i++) {
+            if(validate) {
+                engine.submitAction(state, moves[i]);
+            }
+            else {
+                engine.makeMove(state, moves[i]);
+            }
+        }
+
+        return state;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private void decode() throws BoardGameEngineException {
+        if(decoded) {
+            return;
+        }
+
+        if(moves.length < plies) {
+            moves = new int[Math.max(plies, moves.length * 2)];
+        }
+        cursor = movesStart;
+        for(int i = 0; i < plies; i++) {
+            moves[i] = readVarint(movesEnd);
+        }
+        if(cursor != movesEnd) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_GAME_RECORD);
+        }
+        decoded = true;
+    }
+
+    //Makes sure the bytes from the file position are in the window, moving it to start there when they aren't
+    private void map(long start, int length) throws IOException {
+        if(window != null && start >= windowStart && start + length <= windowStart + window.limit()) {
+            return;
+        }
+
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(Math.max(windowSize, length), fileLength - start));
+    }
+
+    //Reads the varint at the cursor and moves the cursor past it
+    private int readVarint(int end) throws BoardGameEngineException {
+        int value = 0;
+        for(int shift = 0; shift < 7 * GameArchive.MAX_VARINT && cursor < end; shift += 7) {
+            int b = window.get(cursor++);
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new BoardGameEngineException(TakEngineErrorCode.INVALID_GAME_RECORD);
+    }
+}
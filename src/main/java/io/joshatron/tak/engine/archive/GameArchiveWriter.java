@@ -0,0 +1,121 @@
+package io.joshatron.tak.engine.archive;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.game.TakStatus;
+import io.joshatron.tak.engine.simulation.GameRecord;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+//Writes games to a binary archive, see GameArchive for the format. Games are gathered in a buffer that is
+//written out as it fills, so the stream doesn't need to be buffered. Writing is synchronized, so records
+//can be written from all of TakSimulator's threads as they come in.
+public class GameArchiveWriter implements Closeable, Flushable {
+    private static final int FLUSH_AT = 1 << 16;
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int length;
+
+    public GameArchiveWriter(OutputStream out) throws IOException {
+        this.out = out;
+        this.buffer = new byte[FLUSH_AT * 2];
+        out.write(GameArchive.MAGIC);
+        out.write(GameArchive.VERSION);
+    }
+
+    public synchronized void write(GameRecord record) throws IOException {
+        write(record.getSize(), record.getFirst(), record.getMoves(), record.getMoves().length, record.getStatus());
+    }
+
+    //Games that were set up part way through can't be written, as the archive always starts from an empty board
+    public synchronized void write(TakState state) throws IOException, BoardGameEngineException {
+        if(state.getStartingPly() != 0) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_GAME_RECORD);
+        }
+
+        List<Action> log = state.getGameLog();
+        int[] moves = new int[log.size()];
+        for(int i = 0; i < moves.length; i++) {
+            moves[i] = TakPackedMove.fromAction(log.get(i), state.getSize());
+        }
+        write(state.getSize(), state.getFirst(), moves, moves.length, state.getStatus());
+    }
+
+    //Writes the first count moves, so a reused buffer of moves can be written as it is
+    public synchronized void write(int size, PlayerIndicator first, int[] moves, int count, TakStatus status) throws IOException {
+        int score = status == null ? 0 : status.getScore();
+        int bodyLength = 2 + getVarintLength(score) + getVarintLength(count);
+        for(int i = 0; i < count; i++) {
+            bodyLength += getVarintLength(TakPackedMove.getBase(moves[i]));
+        }
+
+        ensureRoom(GameArchive.MAX_VARINT + bodyLength);
+        putVarint(bodyLength);
+        buffer[length++] = (byte) GameArchive.getInfo(size, first);
+        buffer[length++] = (byte) GameArchive.getResult(status);
+        putVarint(score);
+        putVarint(count);
+        for(int i = 0; i < count; i++) {
+            putVarint(TakPackedMove.getBase(moves[i]));
+        }
+
+        if(length >= FLUSH_AT) {
+            drain();
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        drain();
+        out.close();
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+
+    private void ensureRoom(int needed) throws IOException {
+        if(length + needed <= buffer.length) {
+            return;
+        }
+
+        drain();
+        if(needed > buffer.length) {
+            buffer = new byte[needed];
+        }
+    }
+
+    private void putVarint(int value) {
+        while((value & ~0x7F) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private static int getVarintLength(int value) {
+        int bytes = 1;
+        while((value & ~0x7F) != 0) {
+            bytes++;
+            value >>>= 7;
+        }
+
+        return bytes;
+    }
+}
@@ -0,0 +1,142 @@
+package io.joshatron.tak.engine.board;
+
+import io.joshatron.bgt.engine.board.grid.Direction;
+
+//Helpers for boards stored as a single long.
+//Square indexes are y * size + x, so every supported board size fits in 64 bits.
+public final class BitBoards {
+    public static final int MAX_SIZE = 8;
+
+    private static final long[] BOARD = new long[MAX_SIZE + 1];
+    private static final long[] LEFT = new long[MAX_SIZE + 1];
+    private static final long[] RIGHT = new long[MAX_SIZE + 1];
+    private static final long[] TOP = new long[MAX_SIZE + 1];
+    private static final long[] BOTTOM = new long[MAX_SIZE + 1];
+    private static final int[][] CENTRE = new int[MAX_SIZE + 1][];
+
+    static {
+        for(int size = 1; size <= MAX_SIZE; size++) {
+            BOARD[size] = size == MAX_SIZE ? -1L : (1L << (size * size)) - 1;
+            for(int i = 0; i < size; i++) {
+                LEFT[size] |= bit(getSquare(size, 0, i));
+                RIGHT[size] |= bit(getSquare(size, size - 1, i));
+                TOP[size] |= bit(getSquare(size, i, 0));
+                BOTTOM[size] |= bit(getSquare(size, i, size - 1));
+            }
+            CENTRE[size] = new int[size * size];
+            for(int square = 0; square < size * size; square++) {
+                int x = getX(size, square);
+                int y = getY(size, square);
+                CENTRE[size][square] = Math.min(x, size - 1 - x) + Math.min(y, size - 1 - y);
+            }
+        }
+    }
+
+    private BitBoards() {
+    }
+
+    public static int getSquare(int size, int x, int y) {
+        return y * size + x;
+    }
+
+    public static int getX(int size, int square) {
+        return square % size;
+    }
+
+    public static int getY(int size, int square) {
+        return square / size;
+    }
+
+    //How many steps in from the edges the square is, 0 on the edge and highest in the centre
+    public static int getCentreWeight(int size, int square) {
+        return CENTRE[size][square];
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static long getBoardMask(int size) {
+        return BOARD[size];
+    }
+
+    public static long getLeftEdge(int size) {
+        return LEFT[size];
+    }
+
+    public static long getRightEdge(int size) {
+        return RIGHT[size];
+    }
+
+    public static long getTopEdge(int size) {
+        return TOP[size];
+    }
+
+    public static long getBottomEdge(int size) {
+        return BOTTOM[size];
+    }
+
+    //How far a piece can travel from the square before falling off the board
+    public static int getDistanceToEdge(int size, int square, Direction dir) {
+        switch(dir) {
+            case NORTH:
+                return getY(size, square);
+            case SOUTH:
+                return size - 1 - getY(size, square);
+            case EAST:
+                return size - 1 - getX(size, square);
+            case WEST:
+                return getX(size, square);
+            default:
+                return 0;
+        }
+    }
+
+    //The change in square index from moving one space in the direction
+    public static int getStep(int size, Direction dir) {
+        switch(dir) {
+            case NORTH:
+                return -size;
+            case SOUTH:
+                return size;
+            case EAST:
+                return 1;
+            case WEST:
+                return -1;
+            default:
+                return 0;
+        }
+    }
+
+    public static long getNeighbours(long bits, int size) {
+        return ((bits << 1) & ~LEFT[size] |
+                (bits >>> 1) & ~RIGHT[size] |
+                bits << size |
+                bits >>> size) & BOARD[size];
+    }
+
+    //Grows the seed through the connected squares of within
+    public static long flood(long seed, long within, int size) {
+        long filled = seed & within;
+        long previous;
+        do {
+            previous = filled;
+            filled |= getNeighbours(filled, size) & within;
+        } while(filled != previous);
+
+        return filled;
+    }
+
+    public static boolean connectsOppositeEdges(long group, int size) {
+        return ((group & LEFT[size]) != 0 && (group & RIGHT[size]) != 0) ||
+               ((group & TOP[size]) != 0 && (group & BOTTOM[size]) != 0);
+    }
+
+    public static boolean hasRoad(long road, int size) {
+        if((flood(road & LEFT[size], road, size) & RIGHT[size]) != 0) {
+            return true;
+        }
+
+        return (flood(road & TOP[size], road, size) & BOTTOM[size]) != 0;
+    }
+}
@@ -0,0 +1,97 @@
+package io.joshatron.tak.engine.board;
+
+import java.io.Serializable;
+
+//The connected groups of one player's road pieces, kept up to date as the pieces change
+//so whether the player has a road can be answered without searching the board again.
+//Each group is a bitboard and it is a road when it touches opposite edges.
+//Only the groups next to squares that changed are merged or split on an update.
+public class RoadGroups implements Serializable {
+    private final int size;
+    private final long[] groups;
+    private int count;
+    private long pieces;
+    private int roads;
+
+    public RoadGroups(int size) {
+        this.size = size;
+        //Groups can't touch, so there are never more than the squares of one checkerboard colour
+        this.groups = new long[(size * size + 1) / 2];
+        this.count = 0;
+        this.pieces = 0;
+        this.roads = 0;
+    }
+
+    public RoadGroups(RoadGroups other) {
+        this.size = other.size;
+        this.groups = other.groups.clone();
+        this.count = other.count;
+        this.pieces = other.pieces;
+        this.roads = other.roads;
+    }
+
+    public long getPieces() {
+        return pieces;
+    }
+
+    public boolean hasRoad() {
+        return roads > 0;
+    }
+
+    public int getGroupCount() {
+        return count;
+    }
+
+    public long getGroup(int index) {
+        return groups[index];
+    }
+
+    //Brings the groups up to date with the player's road pieces
+    public void update(long pieces) {
+        long removed = this.pieces & ~pieces;
+        long added = pieces & ~this.pieces;
+        this.pieces = pieces;
+
+        // Split every group that lost a piece into what is still connected
+        if(removed != 0) {
+            for(int i = count - 1; i >= 0; i--) {
+                if((groups[i] & removed) != 0) {
+                    long rest = groups[i] & ~removed;
+                    removeGroup(i);
+                    while(rest != 0) {
+                        long group = BitBoards.flood(Long.lowestOneBit(rest), rest, size);
+                        addGroup(group);
+                        rest &= ~group;
+                    }
+                }
+            }
+        }
+
+        // Merge each new piece with the groups next to it
+        for(long bits = added; bits != 0; bits &= bits - 1) {
+            long merged = Long.lowestOneBit(bits);
+            long neighbours = BitBoards.getNeighbours(merged, size);
+            for(int i = count - 1; i >= 0; i--) {
+                if((groups[i] & neighbours) != 0) {
+                    merged |= groups[i];
+                    removeGroup(i);
+                }
+            }
+            addGroup(merged);
+        }
+    }
+
+    private void addGroup(long group) {
+        groups[count++] = group;
+        if(BitBoards.connectsOppositeEdges(group, size)) {
+            roads++;
+        }
+    }
+
+    private void removeGroup(int index) {
+        if(BitBoards.connectsOppositeEdges(groups[index], size)) {
+            roads--;
+        }
+        groups[index] = groups[--count];
+    }
+}
@@ -2,18 +2,47 @@ package io.joshatron.tak.engine.board;
 
 import io.joshatron.bgt.engine.component.Piece;
 import io.joshatron.bgt.engine.player.PlayerIndicator;
-import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 
-
-@Data
+//A piece is only its owner and type, so there is one shared instance of each and pieces are never changed.
+//Turning a piece into another type means replacing it with the instance for that type.
+@Getter
+@EqualsAndHashCode
 public class TakPiece extends Piece {
-    private PieceType type;
+    private static final PieceType[] TYPES = PieceType.values();
+    private static final TakPiece[] PIECES = new TakPiece[2 * TYPES.length];
+
+    static {
+        for(PieceType type : TYPES) {
+            PIECES[type.ordinal()] = new TakPiece(PlayerIndicator.WHITE, type);
+            PIECES[TYPES.length + type.ordinal()] = new TakPiece(PlayerIndicator.BLACK, type);
+        }
+    }
+
+    private final PieceType type;
 
-    public TakPiece(PlayerIndicator owner, PieceType type) {
+    private TakPiece(PlayerIndicator owner, PieceType type) {
         super(owner);
         this.type = type;
     }
 
+    public static TakPiece of(PlayerIndicator owner, PieceType type) {
+        if(owner == PlayerIndicator.WHITE && type != null) {
+            return PIECES[type.ordinal()];
+        }
+        if(owner == PlayerIndicator.BLACK && type != null) {
+            return PIECES[TYPES.length + type.ordinal()];
+        }
+
+        return new TakPiece(owner, type);
+    }
+
+    //Deserialized pieces, like those in cloned states, go back to being the shared instances
+    private Object readResolve() {
+        return of(getOwner(), type);
+    }
+
     @Override
     public String toString() {
         if(getOwner() == PlayerIndicator.WHITE) {
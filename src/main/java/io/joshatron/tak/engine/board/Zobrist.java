@@ -0,0 +1,68 @@
+package io.joshatron.tak.engine.board;
+
+import java.util.Random;
+
+//Random keys for hashing positions. A position's hash is the XOR of the keys for each piece
+//at its height in its stack, the type of each top piece that isn't a stone, the pieces
+//left in each reserve and black being the one to move.
+//Keys are XORed in and out as pieces move, so a hash is kept up to date without recomputing it.
+//They come from a fixed seed so hashes are the same on every run and can be stored.
+public final class Zobrist {
+    //Every piece of an 8x8 game in one stack
+    public static final int MAX_HEIGHT = 2 * (50 + 2);
+    public static final int MAX_STONES = 50;
+    public static final int MAX_CAPSTONES = 2;
+
+    private static final long SEED = 0x54616B5A6F627269L;
+    private static final int SQUARES = BitBoards.MAX_SIZE * BitBoards.MAX_SIZE;
+    private static final int TYPE_COUNT = PieceType.values().length;
+
+    private static final long[] PIECES = new long[SQUARES * MAX_HEIGHT * 2];
+    private static final long[] TOPS = new long[SQUARES * TYPE_COUNT];
+    private static final long[] STONES = new long[2 * (MAX_STONES + 1)];
+    private static final long[] CAPSTONES = new long[2 * (MAX_CAPSTONES + 1)];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        Random rand = new Random(SEED);
+        for(int i = 0; i < PIECES.length; i++) {
+            PIECES[i] = rand.nextLong();
+        }
+        //Stone tops are left at 0 since every piece below the top is a stone anyway
+        for(int square = 0; square < SQUARES; square++) {
+            TOPS[square * TYPE_COUNT + PieceType.WALL.ordinal()] = rand.nextLong();
+            TOPS[square * TYPE_COUNT + PieceType.CAPSTONE.ordinal()] = rand.nextLong();
+        }
+        for(int i = 0; i < STONES.length; i++) {
+            STONES[i] = rand.nextLong();
+        }
+        for(int i = 0; i < CAPSTONES.length; i++) {
+            CAPSTONES[i] = rand.nextLong();
+        }
+        BLACK_TO_MOVE = rand.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    //Owner is 0 for white and 1 for black, index 0 is the bottom of the stack
+    public static long getPieceKey(int square, int index, int owner) {
+        return PIECES[(square * MAX_HEIGHT + index) * 2 + owner];
+    }
+
+    public static long getTopKey(int square, PieceType type) {
+        return TOPS[square * TYPE_COUNT + type.ordinal()];
+    }
+
+    public static long getStonesKey(int player, int count) {
+        return STONES[player * (MAX_STONES + 1) + count];
+    }
+
+    public static long getCapstonesKey(int player, int count) {
+        return CAPSTONES[player * (MAX_CAPSTONES + 1) + count];
+    }
+
+    public static long getBlackToMoveKey() {
+        return BLACK_TO_MOVE;
+    }
+}
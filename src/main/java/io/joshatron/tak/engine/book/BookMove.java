@@ -0,0 +1,28 @@
+package io.joshatron.tak.engine.book;
+
+import lombok.Data;
+
+@Data
+public class BookMove {
+    private int move;
+    //Games the move was played in, and how many of them the player making it won or drew
+    private int games;
+    private int wins;
+    private int draws;
+
+    public BookMove(int move, int games, int wins, int draws) {
+        this.move = move;
+        this.games = games;
+        this.wins = wins;
+        this.draws = draws;
+    }
+
+    public int getLosses() {
+        return games - wins - draws;
+    }
+
+    //How well the move did for the player making it, from 0 to 1 with draws counting half
+    public double getScore() {
+        return (wins + draws / 2.0) / Math.max(games, 1);
+    }
+}
@@ -0,0 +1,196 @@
+package io.joshatron.tak.engine.book;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakPosition;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//An opening book for one board size, written by OpeningBookBuilder and read straight out of a memory mapped file.
+//The file starts with the magic bytes TAKB, a version byte, the size as a byte, the plies the book was built
+//to as a short and the number of entries as an int. Each entry is the Zobrist hash of a position as a long and
+//the packed move, games, wins and draws as ints, sorted by hash and then by games, most first.
+//A position is found with a binary search over the mapping, so probing doesn't read the file or create anything,
+//and every move found is checked against the position so a hash collision can't play an illegal move.
+//Reading is safe from any number of threads.
+public class OpeningBook implements Closeable {
+    static final byte[] MAGIC = {'T', 'A', 'K', 'B'};
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = MAGIC.length + 8;
+    static final int ENTRY_LENGTH = 24;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer entries;
+    private final TakEngine engine;
+    private final int size;
+    private final int maxPlies;
+    private final int count;
+
+    public OpeningBook(Path path) throws IOException, BoardGameEngineException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.engine = new TakEngine();
+
+        long length = channel.size();
+        if(length < HEADER_LENGTH || length > Integer.MAX_VALUE) {
+            channel.close();
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_OPENING_BOOK);
+        }
+        this.entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        for(int i = 0; i < MAGIC.length; i++) {
+            if(entries.get(i) != MAGIC[i]) {
+                channel.close();
+                throw new BoardGameEngineException(TakEngineErrorCode.INVALID_OPENING_BOOK);
+            }
+        }
+        this.size = entries.get(MAGIC.length + 1);
+        this.maxPlies = entries.getShort(MAGIC.length + 2);
+        this.count = entries.getInt(MAGIC.length + 4);
+        if(entries.get(MAGIC.length) != VERSION || count < 0 || (long) count * ENTRY_LENGTH != length - HEADER_LENGTH) {
+            channel.close();
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_OPENING_BOOK);
+        }
+        try {
+            TakBitState.getStartingStones(size);
+        } catch(BoardGameEngineException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    //Positions further into the game than this are never in the book
+    public int getMaxPlies() {
+        return maxPlies;
+    }
+
+    //The number of moves in the book across all positions
+    public int getEntries() {
+        return count;
+    }
+
+    public boolean contains(TakPosition state) {
+        return getMove(state, null) >= 0;
+    }
+
+    //The moves for the position that are legal in it, most played first, empty when it isn't in the book
+    public List<BookMove> getMoves(TakPosition state) {
+        List<BookMove> moves = new ArrayList<>();
+        if(!isCovered(state)) {
+            return moves;
+        }
+
+        for(int i = find(state.getHash()); i < count && getHash(i) == state.getHash(); i++) {
+            int move = getInt(i, 0);
+            if(isLegal(state, move)) {
+                moves.add(new BookMove(move, getInt(i, 1), getInt(i, 2), getInt(i, 3)));
+            }
+        }
+
+        return moves;
+    }
+
+    //What the book has on the move from the position, or null when it has nothing
+    public BookMove getEntry(TakPosition state, int move) {
+        if(!isCovered(state) || !isLegal(state, move)) {
+            return null;
+        }
+
+        for(int i = find(state.getHash()); i < count && getHash(i) == state.getHash(); i++) {
+            if(getInt(i, 0) == move) {
+                return new BookMove(move, getInt(i, 1), getInt(i, 2), getInt(i, 3));
+            }
+        }
+
+        return null;
+    }
+
+    //The most played move, or -1 when the position isn't in the book
+    public int getBestMove(TakPosition state) {
+        return getMove(state, null);
+    }
+
+    //A move picked with a chance in proportion to how often it was played, or the most played move without
+    //a Random. Returns -1 when the position isn't in the book.
+    public int getMove(TakPosition state, Random rand) {
+        if(!isCovered(state)) {
+            return -1;
+        }
+
+        int first = find(state.getHash());
+        long total = 0;
+        for(int i = first; i < count && getHash(i) == state.getHash(); i++) {
+            if(isLegal(state, getInt(i, 0))) {
+                if(rand == null) {
+                    return getInt(i, 0);
+                }
+                total += getInt(i, 1);
+            }
+        }
+        if(total == 0) {
+            return -1;
+        }
+
+        long pick = (long) (rand.nextDouble() * total);
+        for(int i = first; ; i++) {
+            int move = getInt(i, 0);
+            if(isLegal(state, move)) {
+                pick -= getInt(i, 1);
+                if(pick < 0) {
+                    return move;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean isCovered(TakPosition state) {
+        return state.getSize() == size && state.getPly() < maxPlies;
+    }
+
+    private boolean isLegal(TakPosition state, int move) {
+        return engine.checkAction(state, move) == null;
+    }
+
+    //The first entry with the hash, or where it would go when there isn't one
+    private int find(long hash) {
+        int low = 0;
+        int high = count;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(getHash(mid) < hash) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    private long getHash(int entry) {
+        return entries.getLong(HEADER_LENGTH + entry * ENTRY_LENGTH);
+    }
+
+    //The move, games, wins and draws of an entry in that order
+    private int getInt(int entry, int field) {
+        return entries.getInt(HEADER_LENGTH + entry * ENTRY_LENGTH + 8 + field * 4);
+    }
+}
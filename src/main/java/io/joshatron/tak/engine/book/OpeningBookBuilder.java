@@ -0,0 +1,143 @@
+package io.joshatron.tak.engine.book;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.archive.GameArchiveReader;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakStatus;
+import io.joshatron.tak.engine.simulation.GameRecord;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Gathers the opening of every game it is given into a book for one board size, see OpeningBook for the file.
+//Each game is replayed through the engine for its first plies, counting every move by the hash of the position
+//it was played from along with how the game went for the player who made it. Games of other sizes and games
+//that didn't finish are left out, so a whole archive can be added as it is.
+//A builder is for one thread.
+public class OpeningBookBuilder {
+    private final int size;
+    private final int maxPlies;
+    private final TakEngine engine;
+    //Games, wins and draws for each move from each position
+    private final Map<Long, Map<Integer, int[]>> positions;
+    private long games;
+
+    public OpeningBookBuilder(int size, int maxPlies) throws BoardGameEngineException {
+        TakBitState.getStartingStones(size);
+        this.size = size;
+        this.maxPlies = maxPlies;
+        this.engine = new TakEngine();
+        this.positions = new HashMap<>();
+        this.games = 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxPlies() {
+        return maxPlies;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public int getPositions() {
+        return positions.size();
+    }
+
+    public boolean add(GameRecord record) throws BoardGameEngineException {
+        return add(record.getSize(), record.getFirst(), record.getMoves(), record.getMoves().length, record.getStatus());
+    }
+
+    //Adds the rest of the games in the archive, returning how many were used.
+    //Games are picked by their header, so those that are left out are never decoded.
+    public int add(GameArchiveReader reader) throws IOException, BoardGameEngineException {
+        int added = 0;
+        while(reader.next()) {
+            if(reader.getSize() != size || !isFinished(reader.getStatus())) {
+                continue;
+            }
+            int[] moves = reader.getMoves();
+            add(reader.getSize(), reader.getFirst(), moves, moves.length, reader.getStatus());
+            added++;
+        }
+
+        return added;
+    }
+
+    //Returns whether the game was used. Every move that is counted is checked, so a bad game throws.
+    public boolean add(int gameSize, PlayerIndicator first, int[] moves, int count, TakStatus status) throws BoardGameEngineException {
+        if(gameSize != size || !isFinished(status)) {
+            return false;
+        }
+
+        //The engine reports a draw with no winner at all
+        PlayerIndicator winnerPlayer = status.getWinner();
+        int winner = winnerPlayer == null || winnerPlayer == PlayerIndicator.NONE ? -1 : TakBitState.getIndex(winnerPlayer);
+        TakBitState state = new TakBitState(first, size);
+        for(int i = 0; i < Math.min(count, maxPlies); i++) {
+            int move = TakPackedMove.getBase(moves[i]);
+            int[] counts = positions.computeIfAbsent(state.getHash(), hash -> new HashMap<>())
+                    .computeIfAbsent(move, m -> new int[3]);
+            counts[0]++;
+            if(winner == state.getCurrent()) {
+                counts[1]++;
+            }
+            else if(winner < 0) {
+                counts[2]++;
+            }
+            engine.submitAction(state, move);
+        }
+        games++;
+
+        return true;
+    }
+
+    //Writes the book with the moves played in at least the given number of games, returning the moves written.
+    //The stream is flushed but left open.
+    public int write(OutputStream out, int minGames) throws IOException {
+        List<long[]> entries = new ArrayList<>();
+        for(Map.Entry<Long, Map<Integer, int[]>> position : positions.entrySet()) {
+            for(Map.Entry<Integer, int[]> move : position.getValue().entrySet()) {
+                int[] counts = move.getValue();
+                if(counts[0] >= minGames) {
+                    entries.add(new long[] {position.getKey(), move.getKey(), counts[0], counts[1], counts[2]});
+                }
+            }
+        }
+        // By hash, then the most played move first so it is the first one found
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) :
+                a[2] != b[2] ? Long.compare(b[2], a[2]) : Long.compare(a[1], b[1]));
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        data.write(OpeningBook.MAGIC);
+        data.writeByte(OpeningBook.VERSION);
+        data.writeByte(size);
+        data.writeShort(maxPlies);
+        data.writeInt(entries.size());
+        for(long[] entry : entries) {
+            data.writeLong(entry[0]);
+            for(int i = 1; i < entry.length; i++) {
+                data.writeInt((int) entry[i]);
+            }
+        }
+        data.flush();
+
+        return entries.size();
+    }
+
+    private static boolean isFinished(TakStatus status) {
+        return status != null && status.isFinished();
+    }
+}
@@ -16,7 +16,13 @@ public enum TakEngineErrorCode implements BoardGameErrorCode {
     PICK_UP_AND_PLACED_DO_NOT_MATCH,
     INVALID_PIECE_TYPE,
     INVALID_TURN_STRING,
-    ILLEGAL_TYPE;
+    ILLEGAL_TYPE,
+    INVALID_LOCATION,
+    NOT_YOUR_TURN,
+    INVALID_GAME_RECORD,
+    INVALID_POSITION_STRING,
+    INVALID_OPENING_BOOK,
+    INVALID_TABLEBASE;
 
     @Override
     public String getName() {
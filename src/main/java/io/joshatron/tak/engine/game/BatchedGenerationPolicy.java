@@ -0,0 +1,80 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//Splits the states into batches and generates each batch as one task on an executor,
+//so the cost of handing work to another thread is paid once per batch instead of per location.
+//Best when one thread has many states to expand, like a batch of simulations.
+public class BatchedGenerationPolicy implements GenerationPolicy {
+    private final ExecutorService executor;
+    private final int batchSize;
+
+    public BatchedGenerationPolicy(ExecutorService executor, int batchSize) {
+        this.executor = executor;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    //Uses its own pool of daemon threads
+    public BatchedGenerationPolicy(int threads, int batchSize) {
+        this(Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "tak-generation");
+            thread.setDaemon(true);
+            return thread;
+        }), batchSize);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public List<List<Action>> getPossibleActions(TakEngine engine, List<TakState> states) throws BoardGameEngineException {
+        List<Future<List<List<Action>>>> batches = new ArrayList<>();
+        for(int start = 0; start < states.size(); start += batchSize) {
+            List<TakState> batch = states.subList(start, Math.min(start + batchSize, states.size()));
+            batches.add(executor.submit(() -> generate(engine, batch)));
+        }
+
+        List<List<Action>> actions = new ArrayList<>(states.size());
+        for(Future<List<List<Action>>> batch : batches) {
+            actions.addAll(getBatch(batch));
+        }
+
+        return actions;
+    }
+
+    private static List<List<Action>> generate(TakEngine engine, List<TakState> batch) throws BoardGameEngineException {
+        List<List<Action>> actions = new ArrayList<>(batch.size());
+        for(TakState state : batch) {
+            actions.add(engine.getPossibleActions(state));
+        }
+
+        return actions;
+    }
+
+    private static List<List<Action>> getBatch(Future<List<List<Action>>> batch) throws BoardGameEngineException {
+        try {
+            return batch.get();
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof BoardGameEngineException) {
+                throw (BoardGameEngineException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,13 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+
+import java.util.List;
+
+//How TakEngine generates the possible actions for many independent states at once.
+//Actions for a single state are always generated on the calling thread.
+public interface GenerationPolicy {
+    //The lists are in the same order as the states
+    List<List<Action>> getPossibleActions(TakEngine engine, List<TakState> states) throws BoardGameEngineException;
+}
@@ -0,0 +1,21 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Generates every state on the calling thread, the default.
+//Best when there are already plenty of threads each running their own games.
+public class SequentialGenerationPolicy implements GenerationPolicy {
+    @Override
+    public List<List<Action>> getPossibleActions(TakEngine engine, List<TakState> states) throws BoardGameEngineException {
+        List<List<Action>> actions = new ArrayList<>(states.size());
+        for(TakState state : states) {
+            actions.add(engine.getPossibleActions(state));
+        }
+
+        return actions;
+    }
+}
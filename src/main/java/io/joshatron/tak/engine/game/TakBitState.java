@@ -0,0 +1,558 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.bgt.engine.board.grid.GridBoardLocation;
+import io.joshatron.bgt.engine.component.PieceStack;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.board.RoadGroups;
+import io.joshatron.tak.engine.board.TakPiece;
+import io.joshatron.tak.engine.board.Zobrist;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.List;
+
+//A compact version of TakState built on bitboards.
+//Squares are indexed y * size + x. The top of every stack is kept as one long per
+//owner and piece type, and the owners of the pieces in a stack are packed two longs
+//per square, bit 0 being the bottom piece. Pieces below the top are always stones.
+@EqualsAndHashCode
+public class TakBitState implements Serializable, TakPosition {
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    private static final PieceType[] TYPES = PieceType.values();
+    private static final int TYPE_COUNT = TYPES.length;
+    private static final int STACK_WORDS = 2;
+
+    @Getter
+    private final int size;
+    @Getter
+    private final PlayerIndicator first;
+    private final long[] tops;
+    private final byte[] heights;
+    private final long[] stacks;
+    private final int[] stones;
+    private final int[] capstones;
+    @Getter
+    private int current;
+    @Getter
+    private int ply;
+    @Getter
+    @Setter
+    private TakStatus status;
+    //Zobrist hash of the position, updated with every change
+    @Getter
+    private long hash;
+    //Per player totals the evaluation uses, updated for only the squares that change.
+    //The centre weights of the squares the player is on top of, the player's own pieces
+    //under their tops and the opponent's pieces they hold captive under them.
+    private final int[] centre;
+    private final int[] support;
+    private final int[] captives;
+    //Not part of the position, built from the road pieces when first needed
+    private transient RoadGroups[] roads;
+
+    public TakBitState(PlayerIndicator first, int size) throws BoardGameEngineException {
+        this(size, first, getStartingStones(size), getStartingCapstones(size));
+        if(first == PlayerIndicator.BLACK) {
+            current = BLACK;
+        }
+        hash = computeHash();
+    }
+
+    public TakBitState(TakState state) throws BoardGameEngineException {
+        this(state.getSize(), state.getFirst(), 0, 0);
+
+        for(int x = 0; x < size; x++) {
+            for(int y = 0; y < size; y++) {
+                PieceStack<TakPiece> tile = state.getBoard().getTile(x, y);
+                List<TakPiece> pieces = tile.getPieces();
+                int square = BitBoards.getSquare(size, x, y);
+                for(int i = 0; i < pieces.size(); i++) {
+                    setOwner(square, i, getIndex(pieces.get(i).getOwner()));
+                }
+                heights[square] = (byte) pieces.size();
+                if(!pieces.isEmpty()) {
+                    TakPiece top = pieces.get(pieces.size() - 1);
+                    tops[getIndex(top.getOwner()) * TYPE_COUNT + top.getType().ordinal()] |= BitBoards.bit(square);
+                }
+            }
+        }
+
+        for(int player = WHITE; player <= BLACK; player++) {
+            TakPlayerInfo info = state.getPlayerInfo(getPlayer(player));
+            stones[player] = info.getStones().getPiecesLeft();
+            capstones[player] = info.getCapstones().getPiecesLeft();
+        }
+
+        current = getIndex(state.getCurrentPlayerInfo().getIdentifier());
+        ply = state.getPly();
+        status = state.getStatus();
+        hash = computeHash();
+        computeFeatures();
+    }
+
+    public TakBitState(TakBitState state) {
+        this.size = state.size;
+        this.first = state.first;
+        this.tops = state.tops.clone();
+        this.heights = state.heights.clone();
+        this.stacks = state.stacks.clone();
+        this.stones = state.stones.clone();
+        this.capstones = state.capstones.clone();
+        this.current = state.current;
+        this.ply = state.ply;
+        this.status = state.status;
+        this.hash = state.hash;
+        this.centre = state.centre.clone();
+        this.support = state.support.clone();
+        this.captives = state.captives.clone();
+        if(state.roads != null) {
+            this.roads = new RoadGroups[]{new RoadGroups(state.roads[WHITE]), new RoadGroups(state.roads[BLACK])};
+        }
+    }
+
+    public TakBitState(TakSnapshot state) {
+        this(state.getSize(), state.getFirst(), 0, 0);
+
+        for(int square = 0; square < size * size; square++) {
+            heights[square] = (byte) state.getHeight(square);
+            for(int i = 0; i < heights[square]; i++) {
+                setOwner(square, i, state.getOwner(square, i));
+            }
+            if(heights[square] > 0) {
+                tops[state.getTopOwner(square) * TYPE_COUNT + state.getTopType(square).ordinal()] |= BitBoards.bit(square);
+            }
+        }
+
+        for(int player = WHITE; player <= BLACK; player++) {
+            stones[player] = state.getStones(player);
+            capstones[player] = state.getCapstones(player);
+        }
+
+        current = state.getCurrent();
+        ply = state.getPly();
+        status = state.getStatus();
+        hash = state.getHash();
+        computeFeatures();
+    }
+
+    private TakBitState(int size, PlayerIndicator first, int stones, int capstones) {
+        this.size = size;
+        this.first = first;
+        this.tops = new long[2 * TYPE_COUNT];
+        this.heights = new byte[size * size];
+        this.stacks = new long[size * size * STACK_WORDS];
+        this.stones = new int[]{stones, stones};
+        this.capstones = new int[]{capstones, capstones};
+        this.current = WHITE;
+        this.ply = 0;
+        this.status = new TakStatus();
+        this.centre = new int[2];
+        this.support = new int[2];
+        this.captives = new int[2];
+    }
+
+    public static int getStartingStones(int size) throws BoardGameEngineException {
+        switch(size) {
+            case 3:
+                return 10;
+            case 4:
+                return 15;
+            case 5:
+                return 21;
+            case 6:
+                return 30;
+            case 8:
+                return 50;
+            default:
+                throw new BoardGameEngineException(TakEngineErrorCode.INVALID_BOARD_SIZE);
+        }
+    }
+
+    public static int getStartingCapstones(int size) throws BoardGameEngineException {
+        switch(size) {
+            case 3:
+            case 4:
+                return 0;
+            case 5:
+            case 6:
+                return 1;
+            case 8:
+                return 2;
+            default:
+                throw new BoardGameEngineException(TakEngineErrorCode.INVALID_BOARD_SIZE);
+        }
+    }
+
+    public static int getIndex(PlayerIndicator player) {
+        return player == PlayerIndicator.BLACK ? BLACK : WHITE;
+    }
+
+    public static PlayerIndicator getPlayer(int index) {
+        return index == BLACK ? PlayerIndicator.BLACK : PlayerIndicator.WHITE;
+    }
+
+    public PlayerIndicator getCurrentPlayer() {
+        return getPlayer(current);
+    }
+
+    public int getSquare(GridBoardLocation location) throws BoardGameEngineException {
+        if(location.getX() < 0 || location.getX() >= size || location.getY() < 0 || location.getY() >= size) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_LOCATION);
+        }
+
+        return BitBoards.getSquare(size, location.getX(), location.getY());
+    }
+
+    public GridBoardLocation getLocation(int square) {
+        return new GridBoardLocation(BitBoards.getX(size, square), BitBoards.getY(size, square));
+    }
+
+    public int getStones(int player) {
+        return stones[player];
+    }
+
+    public int getCapstones(int player) {
+        return capstones[player];
+    }
+
+    public int getHeight(int square) {
+        return heights[square];
+    }
+
+    //Owner of the piece at the index of the stack, 0 being the bottom
+    public int getOwner(int square, int index) {
+        return (int) (stacks[square * STACK_WORDS + (index >>> 6)] >>> (index & 63)) & 1;
+    }
+
+    public int getTopOwner(int square) {
+        if(heights[square] == 0) {
+            return -1;
+        }
+
+        return getOwner(square, heights[square] - 1);
+    }
+
+    public PieceType getTopType(int square) {
+        long bit = BitBoards.bit(square);
+        for(int type = 0; type < TYPE_COUNT; type++) {
+            if(((tops[type] | tops[TYPE_COUNT + type]) & bit) != 0) {
+                return TYPES[type];
+            }
+        }
+
+        return null;
+    }
+
+    public long getPieces(int player, PieceType type) {
+        return tops[player * TYPE_COUNT + type.ordinal()];
+    }
+
+    public long getPieces(int player) {
+        int base = player * TYPE_COUNT;
+        return tops[base] | tops[base + 1] | tops[base + 2];
+    }
+
+    public long getOccupied() {
+        return getPieces(WHITE) | getPieces(BLACK);
+    }
+
+    public long getRoadPieces(int player) {
+        int base = player * TYPE_COUNT;
+        return tops[base + PieceType.STONE.ordinal()] | tops[base + PieceType.CAPSTONE.ordinal()];
+    }
+
+    //Only the squares that changed since the last call are looked at
+    public boolean hasRoad(int player) {
+        return getRoadGroups(player).hasRoad();
+    }
+
+    //The player's road groups, brought up to date with the squares that changed since the last call
+    public RoadGroups getRoadGroups(int player) {
+        if(roads == null) {
+            roads = new RoadGroups[]{new RoadGroups(size), new RoadGroups(size)};
+        }
+        roads[player].update(getRoadPieces(player));
+
+        return roads[player];
+    }
+
+    //Sum of BitBoards.getCentreWeight for the squares the player is on top of
+    public int getCentre(int player) {
+        return centre[player];
+    }
+
+    //The player's own pieces under stacks they are on top of
+    public int getSupport(int player) {
+        return support[player];
+    }
+
+    //The opponent's pieces under stacks the player is on top of
+    public int getCaptives(int player) {
+        return captives[player];
+    }
+
+    //Works the hash out from scratch, which the kept hash always matches
+    public long computeHash() {
+        long computed = 0;
+        for(int square = 0; square < size * size; square++) {
+            for(int i = 0; i < heights[square]; i++) {
+                computed ^= Zobrist.getPieceKey(square, i, getOwner(square, i));
+            }
+            if(heights[square] > 0) {
+                computed ^= Zobrist.getTopKey(square, getTopType(square));
+            }
+        }
+        for(int player = WHITE; player <= BLACK; player++) {
+            computed ^= Zobrist.getStonesKey(player, stones[player]) ^ Zobrist.getCapstonesKey(player, capstones[player]);
+        }
+        if(current == BLACK) {
+            computed ^= Zobrist.getBlackToMoveKey();
+        }
+
+        return computed;
+    }
+
+    //Works the evaluation totals out from scratch, which the kept ones always match
+    private void computeFeatures() {
+        for(int player = WHITE; player <= BLACK; player++) {
+            centre[player] = 0;
+            support[player] = 0;
+            captives[player] = 0;
+        }
+        for(int square = 0; square < size * size; square++) {
+            addFeatures(square);
+        }
+    }
+
+    public int getFlatCount(int player) {
+        return Long.bitCount(tops[player * TYPE_COUNT + PieceType.STONE.ordinal()]);
+    }
+
+    //Puts a piece from the player's reserve on top of a square, burying whatever was on top as a stone.
+    //For setting up a position outside the engine, so the status is left for the caller to work out.
+    public void addPiece(int square, int player, PieceType type) throws BoardGameEngineException {
+        if(type == PieceType.CAPSTONE && capstones[player] == 0) {
+            throw new BoardGameEngineException(TakEngineErrorCode.NOT_ENOUGH_CAPSTONES);
+        }
+        if(type != PieceType.CAPSTONE && stones[player] == 0) {
+            throw new BoardGameEngineException(TakEngineErrorCode.NOT_ENOUGH_STONES);
+        }
+
+        takeFromReserve(player, type);
+        drop(square, player, 1, type);
+    }
+
+    //Sets whose turn it is and how many plies have been played, for setting up a position outside the engine
+    public void setTurn(int current, int ply) {
+        if(current != this.current) {
+            hash ^= Zobrist.getBlackToMoveKey();
+        }
+        this.current = current;
+        this.ply = ply;
+    }
+
+    //The same position as a TakState, with a game log starting from this ply
+    public TakState toState() throws BoardGameEngineException {
+        TakState state = new TakState(first, size);
+        for(int square = 0; square < size * size; square++) {
+            PieceStack<TakPiece> tile = state.getBoard().getTile(BitBoards.getX(size, square), BitBoards.getY(size, square));
+            for(int i = 0; i < heights[square]; i++) {
+                PieceType type = i == heights[square] - 1 ? getTopType(square) : PieceType.STONE;
+                tile.addPiece(TakPiece.of(getPlayer(getOwner(square, i)), type));
+            }
+        }
+
+        for(int player = WHITE; player <= BLACK; player++) {
+            TakPlayerInfo info = state.getPlayerInfo(getPlayer(player));
+            info.getStones().removePieces(info.getStones().getPiecesLeft() - stones[player]);
+            info.getCapstones().removePieces(info.getCapstones().getPiecesLeft() - capstones[player]);
+        }
+
+        state.setCurrentPlayer(current);
+        state.setStartingPly(ply);
+        state.setStatus(status);
+        state.rehash();
+        return state;
+    }
+
+    //Puts a piece from the player's reserve on an empty square
+    void place(int square, int player, PieceType type) {
+        setOwner(square, 0, player);
+        heights[square] = 1;
+        tops[player * TYPE_COUNT + type.ordinal()] |= BitBoards.bit(square);
+        centre[player] += BitBoards.getCentreWeight(size, square);
+        hash ^= Zobrist.getPieceKey(square, 0, player) ^ Zobrist.getTopKey(square, type);
+        takeFromReserve(player, type);
+    }
+
+    //Removes the top count pieces and returns their owners, bit 0 being the lowest piece taken
+    int pickUp(int square, int count) {
+        int height = heights[square];
+        int base = height - count;
+        int owners = 0;
+        removeFeatures(square);
+        hash ^= Zobrist.getTopKey(square, getTopType(square));
+        for(int i = 0; i < count; i++) {
+            int owner = getOwner(square, base + i);
+            owners |= owner << i;
+            hash ^= Zobrist.getPieceKey(square, base + i, owner);
+            setOwner(square, base + i, WHITE);
+        }
+
+        clearTop(square);
+        heights[square] = (byte) base;
+        if(base > 0) {
+            tops[getOwner(square, base - 1) * TYPE_COUNT + PieceType.STONE.ordinal()] |= BitBoards.bit(square);
+        }
+        addFeatures(square);
+
+        return owners;
+    }
+
+    //Adds count pieces from owners to the stack, the new top being of the given type.
+    //Whatever was on top before, including a wall, is buried as a stone.
+    void drop(int square, int owners, int count, PieceType topType) {
+        int height = heights[square];
+        if(height > 0) {
+            hash ^= Zobrist.getTopKey(square, getTopType(square));
+            removeFeatures(square);
+        }
+        clearTop(square);
+        for(int i = 0; i < count; i++) {
+            setOwner(square, height + i, (owners >>> i) & 1);
+            hash ^= Zobrist.getPieceKey(square, height + i, (owners >>> i) & 1);
+        }
+        hash ^= Zobrist.getTopKey(square, topType);
+
+        heights[square] = (byte) (height + count);
+        tops[((owners >>> (count - 1)) & 1) * TYPE_COUNT + topType.ordinal()] |= BitBoards.bit(square);
+        addFeatures(square);
+    }
+
+    void nextTurn() {
+        current ^= 1;
+        ply++;
+        hash ^= Zobrist.getBlackToMoveKey();
+    }
+
+    void previousTurn() {
+        current ^= 1;
+        ply--;
+        hash ^= Zobrist.getBlackToMoveKey();
+    }
+
+    //Takes the only piece off a square and returns it to its owner's reserve
+    void unplace(int square) {
+        int player = getOwner(square, 0);
+        PieceType type = getTopType(square);
+        hash ^= Zobrist.getPieceKey(square, 0, player) ^ Zobrist.getTopKey(square, type);
+        centre[player] -= BitBoards.getCentreWeight(size, square);
+        if(type == PieceType.CAPSTONE) {
+            hash ^= Zobrist.getCapstonesKey(player, capstones[player]) ^ Zobrist.getCapstonesKey(player, capstones[player] + 1);
+            capstones[player]++;
+        }
+        else {
+            hash ^= Zobrist.getStonesKey(player, stones[player]) ^ Zobrist.getStonesKey(player, stones[player] + 1);
+            stones[player]++;
+        }
+        clearTop(square);
+        setOwner(square, 0, WHITE);
+        heights[square] = 0;
+    }
+
+    //Changes the type of the top piece, keeping its owner
+    void setTopType(int square, PieceType type) {
+        int player = getTopOwner(square);
+        hash ^= Zobrist.getTopKey(square, getTopType(square)) ^ Zobrist.getTopKey(square, type);
+        clearTop(square);
+        tops[player * TYPE_COUNT + type.ordinal()] |= BitBoards.bit(square);
+    }
+
+    private void takeFromReserve(int player, PieceType type) {
+        if(type == PieceType.CAPSTONE) {
+            hash ^= Zobrist.getCapstonesKey(player, capstones[player]) ^ Zobrist.getCapstonesKey(player, capstones[player] - 1);
+            capstones[player]--;
+        }
+        else {
+            hash ^= Zobrist.getStonesKey(player, stones[player]) ^ Zobrist.getStonesKey(player, stones[player] - 1);
+            stones[player]--;
+        }
+    }
+
+    private void addFeatures(int square) {
+        updateFeatures(square, 1);
+    }
+
+    private void removeFeatures(int square) {
+        updateFeatures(square, -1);
+    }
+
+    //Adds or takes away what the stack on the square counts towards its top owner's totals
+    private void updateFeatures(int square, int sign) {
+        int height = heights[square];
+        if(height == 0) {
+            return;
+        }
+
+        int below = height - 1;
+        int word = square * STACK_WORDS;
+        int black = Long.bitCount(below >= 64 ? stacks[word] : stacks[word] & ((1L << below) - 1));
+        if(below > 64) {
+            black += Long.bitCount(stacks[word + 1] & ((1L << (below - 64)) - 1));
+        }
+        int player = getOwner(square, below);
+        int own = player == BLACK ? black : below - black;
+        centre[player] += sign * BitBoards.getCentreWeight(size, square);
+        support[player] += sign * own;
+        captives[player] += sign * (below - own);
+    }
+
+    private void clearTop(int square) {
+        long mask = ~BitBoards.bit(square);
+        for(int i = 0; i < tops.length; i++) {
+            tops[i] &= mask;
+        }
+    }
+
+    private void setOwner(int square, int index, int owner) {
+        int word = square * STACK_WORDS + (index >>> 6);
+        long bit = 1L << (index & 63);
+        if(owner == BLACK) {
+            stacks[word] |= bit;
+        }
+        else {
+            stacks[word] &= ~bit;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        str.append("WS: ").append(stones[WHITE]).append(", WC: ").append(capstones[WHITE]).append("\n");
+        str.append("BS: ").append(stones[BLACK]).append(", BC: ").append(capstones[BLACK]).append("\n");
+        for(int y = 0; y < size; y++) {
+            for(int x = 0; x < size; x++) {
+                int square = BitBoards.getSquare(size, x, y);
+                str.append("[");
+                for(int i = 0; i < heights[square]; i++) {
+                    str.append(getOwner(square, i) == WHITE ? "w" : "b");
+                }
+                if(heights[square] > 0) {
+                    str.append(getTopType(square).getAcronym());
+                }
+                str.append("]");
+            }
+            str.append("\n");
+        }
+
+        return str.toString();
+    }
+}
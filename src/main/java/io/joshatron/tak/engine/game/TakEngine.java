@@ -1,23 +1,251 @@
 package io.joshatron.tak.engine.game;
 
+import io.joshatron.bgt.engine.action.Action;
 import io.joshatron.bgt.engine.engines.AggregateGameEngine;
 import io.joshatron.bgt.engine.engines.GameEngine;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.exception.BoardGameErrorCode;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+
+import java.util.List;
+import java.util.Random;
 
 public class TakEngine extends AggregateGameEngine<TakState> {
     private TakEngineFirstTurns firstTurns;
     private TakEngineMainTurns mainTurns;
+    private GenerationPolicy generationPolicy;
 
     public TakEngine() {
+        this(new SequentialGenerationPolicy());
+    }
+
+    public TakEngine(GenerationPolicy generationPolicy) {
         firstTurns = new TakEngineFirstTurns();
         mainTurns = new TakEngineMainTurns();
+        this.generationPolicy = generationPolicy;
     }
 
     @Override
     public GameEngine<TakState> getEngineForState(TakState gameState) {
-        if(gameState.getGameLog().size() < 2) {
+        if(gameState.getPly() < 2) {
             return firstTurns;
         }
 
         return mainTurns;
     }
+
+    public boolean isLegalAction(TakBitState state, Action action) {
+        if(state.getPly() < 2) {
+            return firstTurns.isActionValid(state, action);
+        }
+
+        return mainTurns.isActionValid(state, action);
+    }
+
+    public boolean isLegalAction(TakBitState state, int move) {
+        if(state.getPly() < 2) {
+            return firstTurns.isActionValid(state, move);
+        }
+
+        return mainTurns.isActionValid(state, move);
+    }
+
+    //Returns why the action can't be taken, or null when it is legal. Rejected actions are returned rather
+    //than thrown, so checking a lot of bad actions doesn't pay for building exceptions.
+    public BoardGameErrorCode checkAction(TakState state, Action action) throws BoardGameEngineException {
+        if(action == null) {
+            return TakEngineErrorCode.ILLEGAL_TYPE;
+        }
+        if(action.getPlayer() != state.getCurrentPlayerInfo().getIdentifier()) {
+            return TakEngineErrorCode.NOT_YOUR_TURN;
+        }
+        if(state.getPly() < 2) {
+            return firstTurns.checkAction(state, action);
+        }
+
+        return mainTurns.checkAction(state, action);
+    }
+
+    public BoardGameErrorCode checkAction(TakPosition state, Action action) throws BoardGameEngineException {
+        if(state.getPly() < 2) {
+            return firstTurns.checkAction(state, action);
+        }
+
+        return mainTurns.checkAction(state, action);
+    }
+
+    public BoardGameErrorCode checkAction(TakPosition state, int move) {
+        if(state.getPly() < 2) {
+            return firstTurns.checkAction(state, move);
+        }
+
+        return mainTurns.checkAction(state, move);
+    }
+
+    public void submitAction(TakBitState state, Action action) throws BoardGameEngineException {
+        if(state.getPly() < 2) {
+            firstTurns.updateState(state, action);
+        }
+        else {
+            mainTurns.updateState(state, action);
+        }
+
+        state.nextTurn();
+    }
+
+    public void submitAction(TakBitState state, int move) throws BoardGameEngineException {
+        if(state.getPly() < 2) {
+            firstTurns.updateState(state, move);
+        }
+        else {
+            mainTurns.updateState(state, move);
+        }
+
+        state.nextTurn();
+    }
+
+    //Snapshots are never changed, so these return the snapshot after the action and leave the one given as it was
+    public TakSnapshot submitAction(TakSnapshot state, Action action) throws BoardGameEngineException {
+        BoardGameErrorCode error = checkAction(state, action);
+        if(error != null) {
+            throw new BoardGameEngineException(error);
+        }
+
+        return new TakSnapshot(state, TakPackedMove.pack(action, state.getSize()));
+    }
+
+    public TakSnapshot submitAction(TakSnapshot state, int move) throws BoardGameEngineException {
+        BoardGameErrorCode error = checkAction(state, move);
+        if(error != null) {
+            throw new BoardGameEngineException(error);
+        }
+
+        return new TakSnapshot(state, move);
+    }
+
+    //Submits the action and returns what unmakeAction needs to take it back
+    public TakUndo makeAction(TakState state, Action action) throws BoardGameEngineException {
+        TakUndo undo;
+        if(state.getPly() < 2) {
+            undo = firstTurns.getUndo(state, action);
+        }
+        else {
+            undo = mainTurns.getUndo(state, action);
+        }
+
+        submitAction(state, action);
+        return undo;
+    }
+
+    //Takes back the last action submitted, which has to be the one the undo was made for
+    public void unmakeAction(TakState state, TakUndo undo) throws BoardGameEngineException {
+        state.getGameLog().remove(state.getGameLog().size() - 1);
+        if(state.getPly() < 2) {
+            firstTurns.undoState(state, undo);
+        }
+        else {
+            mainTurns.undoState(state, undo);
+        }
+
+        state.setCurrentPlayer(undo.getPlayer());
+    }
+
+    //Applies a move without validating it, so it has to be legal, such as one from getPossibleMoves.
+    //Returns what unmakeMove needs to take it back, which is only valid until another move is made.
+    public long makeMove(TakBitState state, int move) {
+        long undo;
+        if(state.getPly() < 2) {
+            undo = firstTurns.makeMove(state, move);
+        }
+        else {
+            undo = mainTurns.makeMove(state, move);
+        }
+
+        state.nextTurn();
+        return undo;
+    }
+
+    //Takes back the last move made
+    public void unmakeMove(TakBitState state, long undo) {
+        state.previousTurn();
+        if(state.getPly() < 2) {
+            firstTurns.unmakeMove(state, undo);
+        }
+        else {
+            mainTurns.unmakeMove(state, undo);
+        }
+    }
+
+    //Packed moves for a TakState go through the normal rules once unpacked for the current player
+    public boolean isLegalAction(TakState state, int move) {
+        try {
+            return isLegalAction(state, toAction(state, move));
+        } catch(BoardGameEngineException e) {
+            return false;
+        }
+    }
+
+    public void submitAction(TakState state, int move) throws BoardGameEngineException {
+        submitAction(state, toAction(state, move));
+    }
+
+    private Action toAction(TakState state, int move) throws BoardGameEngineException {
+        return TakPackedMove.toAction(move, state.getCurrentPlayerInfo().getIdentifier(), state.getSize());
+    }
+
+    //The possible actions for each state in the same order, generated as the generation policy decides
+    public List<List<Action>> getPossibleActions(List<TakState> states) throws BoardGameEngineException {
+        return generationPolicy.getPossibleActions(this, states);
+    }
+
+    public GenerationPolicy getGenerationPolicy() {
+        return generationPolicy;
+    }
+
+    public void setGenerationPolicy(GenerationPolicy generationPolicy) {
+        this.generationPolicy = generationPolicy;
+    }
+
+    public List<Action> getPossibleActions(TakBitState state) throws BoardGameEngineException {
+        if(state.getPly() < 2) {
+            return firstTurns.getPossibleActions(state);
+        }
+
+        return mainTurns.getPossibleActions(state);
+    }
+
+    //Writes the packed moves into the buffer and returns how many there are.
+    //The buffer needs room for TakMoveGenerator.getMaxMoves(size) moves.
+    public int getPossibleMoves(TakBitState state, int[] moves) {
+        if(state.getPly() < 2) {
+            return firstTurns.getPossibleMoves(state, moves);
+        }
+
+        return mainTurns.getPossibleMoves(state, moves);
+    }
+
+    //Picks one of the moves getPossibleMoves would give, each with the same chance, without generating them.
+    //Returns -1 when there are none.
+    public int getRandomMove(TakBitState state, Random rand) {
+        if(state.getPly() < 2) {
+            return TakMoveGenerator.sampleFirstTurn(state, rand);
+        }
+
+        return TakMoveGenerator.sampleMainTurn(state, rand);
+    }
+
+    //Makes random moves on the state in place until the game is over or it reaches the ply limit, and returns
+    //the status it ends on. Giving each thread its own seeded Random makes its playouts repeatable.
+    public TakStatus playout(TakBitState state, Random rand, int maxPlies) {
+        while((state.getStatus() == null || !state.getStatus().isFinished()) && state.getPly() < maxPlies) {
+            int move = getRandomMove(state, rand);
+            if(move < 0) {
+                break;
+            }
+            makeMove(state, move);
+        }
+
+        return state.getStatus();
+    }
 }
@@ -2,34 +2,54 @@ package io.joshatron.tak.engine.game;
 
 import io.joshatron.bgt.engine.action.Action;
 import io.joshatron.bgt.engine.action.ActionResult;
-import io.joshatron.bgt.engine.component.PieceStack;
+import io.joshatron.bgt.engine.board.grid.GridBoardLocation;
 import io.joshatron.bgt.engine.engines.InOrderGameEngine;
 import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.exception.BoardGameErrorCode;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
 import io.joshatron.tak.engine.board.TakPiece;
 import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.board.Zobrist;
 import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.turn.TakPackedMove;
 import io.joshatron.tak.engine.turn.TakPlaceAction;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class TakEngineFirstTurns extends InOrderGameEngine<TakState> {
 
     @Override
     protected boolean isActionValid(TakState gameState, Action action) {
         try {
-            if(action instanceof TakPlaceAction) {
-                TakPlaceAction t = (TakPlaceAction) action;
-                if(t.getPieceType() == PieceType.STONE && gameState.getBoard().getTile(t.getLocation()).isEmpty()) {
-                    return true;
-                }
-            }
+            return checkAction(gameState, action) == null;
         }
         catch(BoardGameEngineException e) {
             return false;
         }
+    }
+
+    //Returns why the action can't be taken, or null when it can, without throwing for a rejected action
+    public BoardGameErrorCode checkAction(TakState gameState, Action action) throws BoardGameEngineException {
+        if(!(action instanceof TakPlaceAction)) {
+            return TakEngineErrorCode.CANT_MOVE_IN_FIRST_TURN;
+        }
+
+        TakPlaceAction place = (TakPlaceAction) action;
+        if(place.getPieceType() != PieceType.STONE) {
+            return TakEngineErrorCode.INVALID_PIECE_TYPE;
+        }
+        GridBoardLocation location = place.getLocation();
+        if(location == null || location.getX() < 0 || location.getX() >= gameState.getSize() ||
+           location.getY() < 0 || location.getY() >= gameState.getSize()) {
+            return TakEngineErrorCode.INVALID_LOCATION;
+        }
+        if(!gameState.getBoard().getTile(location).isEmpty()) {
+            return TakEngineErrorCode.STACK_NOT_EMPTY;
+        }
 
-        return false;
+        return null;
     }
 
     @Override
@@ -39,10 +59,18 @@ public class TakEngineFirstTurns extends InOrderGameEngine<TakState> {
         }
 
         TakPlayerInfo otherInfo = gameState.getNextPlayerInfo();
-        gameState.getBoard().getTile(((TakPlaceAction)action).getLocation())
-                .addPiece(new TakPiece(otherInfo.getIdentifier(), PieceType.STONE));
+        GridBoardLocation location = ((TakPlaceAction)action).getLocation();
+        gameState.getBoard().getTile(location)
+                .addPiece(TakPiece.of(otherInfo.getIdentifier(), PieceType.STONE));
+        gameState.updateSquare(location);
+        int stones = otherInfo.getStones().getPiecesLeft();
         otherInfo.getStones().removePieces(1);
 
+        // The turn passes to the other player once this is applied
+        int other = TakBitState.getIndex(otherInfo.getIdentifier());
+        gameState.updateHash(Zobrist.getPieceKey(BitBoards.getSquare(gameState.getSize(), location.getX(), location.getY()), 0, other) ^
+                Zobrist.getStonesKey(other, stones) ^ Zobrist.getStonesKey(other, stones - 1) ^ Zobrist.getBlackToMoveKey());
+
         return null;
     }
 
@@ -53,21 +81,128 @@ public class TakEngineFirstTurns extends InOrderGameEngine<TakState> {
 
     @Override
     public List<Action> getPossibleActions(TakState gameState) throws BoardGameEngineException {
-        return gameState.getBoard().getAllLocations().parallelStream()
-                .filter(l -> {
-                    try {
-                        return gameState.getBoard().getTile(l).isEmpty();
-                    } catch(BoardGameEngineException e) {
-                        return false;
-                    }
-                })
-                .map(location -> {
-                    try {
-                        return new TakPlaceAction(gameState.getCurrentPlayerInfo().getIdentifier(),
-                                location, PieceType.STONE);
-                    } catch(BoardGameEngineException e) {
-                        return null;
-                    }})
-                .collect(Collectors.toList());
+        ArrayList<Action> possibleActions = new ArrayList<>();
+        PlayerIndicator player = gameState.getCurrentPlayerInfo().getIdentifier();
+        for(GridBoardLocation location : gameState.getBoard().getAllLocations()) {
+            if(gameState.getBoard().getTile(location).isEmpty()) {
+                possibleActions.add(new TakPlaceAction(player, location, PieceType.STONE));
+            }
+        }
+
+        return possibleActions;
+    }
+
+    public boolean isActionValid(TakBitState state, Action action) {
+        try {
+            return checkAction(state, action) == null;
+        } catch (BoardGameEngineException e) {
+            return false;
+        }
+    }
+
+    public boolean isActionValid(TakBitState state, int move) {
+        return checkAction(state, move) == null;
+    }
+
+    public BoardGameErrorCode checkAction(TakPosition state, Action action) throws BoardGameEngineException {
+        if(!(action instanceof TakPlaceAction)) {
+            return TakEngineErrorCode.CANT_MOVE_IN_FIRST_TURN;
+        }
+        if(action.getPlayer() != state.getCurrentPlayer()) {
+            return TakEngineErrorCode.NOT_YOUR_TURN;
+        }
+
+        BoardGameErrorCode error = TakPackedMove.check(action, state.getSize());
+        if(error != null) {
+            return error;
+        }
+        return checkAction(state, TakPackedMove.pack(action, state.getSize()));
+    }
+
+    public BoardGameErrorCode checkAction(TakPosition state, int move) {
+        if(TakPackedMove.isMove(move)) {
+            return TakEngineErrorCode.CANT_MOVE_IN_FIRST_TURN;
+        }
+        if(TakPackedMove.getPieceType(move) != PieceType.STONE) {
+            return TakEngineErrorCode.INVALID_PIECE_TYPE;
+        }
+        if(TakPackedMove.getSquare(move) >= state.getSize() * state.getSize()) {
+            return TakEngineErrorCode.INVALID_LOCATION;
+        }
+        if(state.getHeight(TakPackedMove.getSquare(move)) != 0) {
+            return TakEngineErrorCode.STACK_NOT_EMPTY;
+        }
+
+        return null;
+    }
+
+    private int validateAction(TakBitState state, Action action) throws BoardGameEngineException {
+        BoardGameErrorCode error = checkAction(state, action);
+        if(error != null) {
+            throw new BoardGameEngineException(error);
+        }
+
+        return TakPackedMove.pack(action, state.getSize());
+    }
+
+    private void validateAction(TakBitState state, int move) throws BoardGameEngineException {
+        BoardGameErrorCode error = checkAction(state, move);
+        if(error != null) {
+            throw new BoardGameEngineException(error);
+        }
+    }
+
+    public void updateState(TakBitState state, Action action) throws BoardGameEngineException {
+        applyPlace(state, validateAction(state, action));
+    }
+
+    public void updateState(TakBitState state, int move) throws BoardGameEngineException {
+        validateAction(state, move);
+        applyPlace(state, move);
+    }
+
+    //Records what is needed to take the action back, so it has to be called before the action is applied
+    public TakUndo getUndo(TakState state, Action action) throws BoardGameEngineException {
+        return new TakUndo(state, action, false, TakUndo.getIndex(state, state.getNextPlayerInfo()));
+    }
+
+    //The inverse of updateState, taking the stone back and returning it to the other player's reserve
+    public void undoState(TakState state, TakUndo undo) throws BoardGameEngineException {
+        GridBoardLocation location = ((TakPlaceAction) undo.getAction()).getLocation();
+        state.getBoard().getTile(location).removePieces(1);
+        state.updateSquare(location);
+        undo.restore(state);
+    }
+
+    //Applies a move without validating it, so it has to be legal, such as one from getPossibleMoves.
+    //Returns what unmakeMove needs to take it back.
+    public long makeMove(TakBitState state, int move) {
+        applyPlace(state, move);
+        return TakUndo.pack(move, state.getStatus());
+    }
+
+    public void unmakeMove(TakBitState state, long undo) {
+        state.unplace(TakPackedMove.getSquare(TakUndo.getMove(undo)));
+    }
+
+    //The first stone each player places belongs to the other player
+    private void applyPlace(TakBitState state, int move) {
+        state.place(TakPackedMove.getSquare(move), state.getCurrent() ^ 1, PieceType.STONE);
+    }
+
+    public List<Action> getPossibleActions(TakBitState state) {
+        ArrayList<Action> possibleActions = new ArrayList<>();
+        PlayerIndicator player = state.getCurrentPlayer();
+        for(int square = 0; square < state.getSize() * state.getSize(); square++) {
+            if(state.getHeight(square) == 0) {
+                possibleActions.add(new TakPlaceAction(player, state.getLocation(square), PieceType.STONE));
+            }
+        }
+
+        return possibleActions;
+    }
+
+    public int getPossibleMoves(TakBitState state, int[] moves) {
+        return TakMoveGenerator.generateFirstTurn(state, moves);
     }
 }
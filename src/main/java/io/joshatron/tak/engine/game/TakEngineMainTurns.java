@@ -3,13 +3,13 @@ package io.joshatron.tak.engine.game;
 import io.joshatron.bgt.engine.action.Action;
 import io.joshatron.bgt.engine.action.ActionResult;
 import io.joshatron.bgt.engine.board.grid.Direction;
-import io.joshatron.bgt.engine.board.grid.GridBoard;
 import io.joshatron.bgt.engine.board.grid.GridBoardLocation;
 import io.joshatron.bgt.engine.component.PiecePile;
 import io.joshatron.bgt.engine.component.PieceStack;
 import io.joshatron.bgt.engine.engines.InOrderGameEngine;
 import io.joshatron.bgt.engine.exception.BoardGameCommonErrorCode;
 import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.exception.BoardGameErrorCode;
 import io.joshatron.bgt.engine.player.PlayerIndicator;
 import io.joshatron.bgt.engine.state.Status;
 import io.joshatron.tak.engine.board.*;
@@ -18,77 +18,96 @@ import io.joshatron.tak.engine.turn.*;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class TakEngineMainTurns extends InOrderGameEngine<TakState> {
     @Override
     public boolean isActionValid(TakState state, Action action) {
         try {
-            if(!(action instanceof TakPlaceAction || action instanceof TakMoveAction)) {
-                throw new BoardGameEngineException(TakEngineErrorCode.ILLEGAL_TYPE);
-            }
-            validateAction(state, action);
-            return true;
+            return checkAction(state, action) == null;
         } catch (BoardGameEngineException e) {
             return false;
         }
     }
 
-    private void validateAction(TakState state, Action action) throws BoardGameEngineException {
+    //Returns why the action can't be taken, or null when it can. Rejections are returned rather than thrown,
+    //and the status is read as the last action left it rather than worked out again.
+    public BoardGameErrorCode checkAction(TakState state, Action action) throws BoardGameEngineException {
+        if(!(action instanceof TakPlaceAction || action instanceof TakMoveAction)) {
+            return TakEngineErrorCode.ILLEGAL_TYPE;
+        }
+
         // Make sure game isn't already over
-        fillOutStatus(state);
-        if (state.getStatus().isComplete()) {
-            throw new BoardGameEngineException(TakEngineErrorCode.GAME_FINISHED);
+        if(state.getStatus() != null && state.getStatus().isFinished()) {
+            return TakEngineErrorCode.GAME_FINISHED;
         }
 
         //Check based on action type
         if (action instanceof TakPlaceAction) {
-            validatePlace(state, (TakPlaceAction) action);
-        } else if (action instanceof TakMoveAction) {
-            validateMove(state, (TakMoveAction) action);
+            return checkPlace(state, (TakPlaceAction) action);
+        }
+        return checkMove(state, (TakMoveAction) action);
+    }
+
+    private void validateAction(TakState state, Action action) throws BoardGameEngineException {
+        BoardGameErrorCode error = checkAction(state, action);
+        if(error != null) {
+            throw new BoardGameEngineException(error);
         }
     }
 
-    private void validatePlace(TakState state, TakPlaceAction place) throws BoardGameEngineException {
+    private BoardGameErrorCode checkPlace(TakState state, TakPlaceAction place) throws BoardGameEngineException {
+        if(!isOnBoard(state, place.getLocation())) {
+            return TakEngineErrorCode.INVALID_LOCATION;
+        }
+        if(place.getPieceType() == null) {
+            return TakEngineErrorCode.INVALID_PIECE_TYPE;
+        }
+
         // Check if enough pieces.
         if (place.getPieceType() != PieceType.CAPSTONE && state.getCurrentPlayerInfo().getStones().outOfPieces()) {
-            throw new BoardGameEngineException(TakEngineErrorCode.NOT_ENOUGH_STONES);
+            return TakEngineErrorCode.NOT_ENOUGH_STONES;
         }
         if (place.getPieceType() == PieceType.CAPSTONE && state.getCurrentPlayerInfo().getCapstones().outOfPieces()) {
-            throw new BoardGameEngineException(TakEngineErrorCode.NOT_ENOUGH_CAPSTONES);
+            return TakEngineErrorCode.NOT_ENOUGH_CAPSTONES;
         }
 
         // Check the location is empty
         if(!state.getBoard().getTile(place.getLocation()).getPieces().isEmpty()) {
-            throw new BoardGameEngineException(TakEngineErrorCode.STACK_NOT_EMPTY);
+            return TakEngineErrorCode.STACK_NOT_EMPTY;
         }
+
+        return null;
     }
 
-    private void validateMove(TakState state, TakMoveAction move) throws BoardGameEngineException {
+    private BoardGameErrorCode checkMove(TakState state, TakMoveAction move) throws BoardGameEngineException {
         // Check that the picked up pieces is legal
         if (move.getPickedUp() < 1 || move.getPickedUp() > state.getSize()) {
-            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_PICKUP_AMOUNT);
+            return TakEngineErrorCode.INVALID_PICKUP_AMOUNT;
         }
 
         // Cannot move diagonally
-        if(move.getDirection().isDiagonal()) {
-            throw new BoardGameEngineException(BoardGameCommonErrorCode.INVALID_DIRECTION);
+        if(move.getDirection() == null || move.getDirection().isDiagonal()) {
+            return BoardGameCommonErrorCode.INVALID_DIRECTION;
+        }
+
+        if(!isOnBoard(state, move.getStartLocation()) || move.getPlaced() == null) {
+            return TakEngineErrorCode.INVALID_LOCATION;
         }
 
         // Check that stack has enough pieces
         if (state.getBoard().getTile(move.getStartLocation()).getPieces().size() < move.getPickedUp()) {
-            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_PICKUP_AMOUNT);
+            return TakEngineErrorCode.INVALID_PICKUP_AMOUNT;
         }
 
         // Check that the player owns the stack
         if (state.getBoard().getTile(move.getStartLocation()).getTopPiece().getOwner() != state.getCurrentPlayerInfo().getIdentifier()) {
-            throw new BoardGameEngineException(TakEngineErrorCode.DO_NOT_OWN_STACK);
+            return TakEngineErrorCode.DO_NOT_OWN_STACK;
         }
 
-        validateMovePlacements(state, move);
+        return checkMovePlacements(state, move);
     }
 
-    private void validateMovePlacements(TakState state, TakMoveAction move) throws BoardGameEngineException {
+    private BoardGameErrorCode checkMovePlacements(TakState state, TakMoveAction move) throws BoardGameEngineException {
         // Check that each position of move is legal
         GridBoardLocation currentLocation = new GridBoardLocation(move.getStartLocation().getX(), move.getStartLocation().getY());
         boolean topCapstone = state.getBoard().getTile(currentLocation).getTopPiece().getType() == PieceType.CAPSTONE;
@@ -96,38 +115,191 @@ public class TakEngineMainTurns extends InOrderGameEngine<TakState> {
         for(int i = 0; i < move.getPlaced().length; i++) {
             // Check that at least one piece was placed
             if(move.getPlaced()[i] < 1) {
-                throw new BoardGameEngineException(TakEngineErrorCode.INVALID_PLACE_AMOUNT);
+                return TakEngineErrorCode.INVALID_PLACE_AMOUNT;
             }
 
+            // Check that the move stays on the board
             currentLocation.move(move.getDirection(), 1);
+            if(!isOnBoard(state, currentLocation)) {
+                return TakEngineErrorCode.INVALID_LOCATION;
+            }
 
             //Check that it is okay to place there
             if(!state.getBoard().getTile(currentLocation).getPieces().isEmpty()) {
                 // If there is a capstone, fail
                 if(state.getBoard().getTile(currentLocation).getTopPiece().getType() == PieceType.CAPSTONE) {
-                    throw new BoardGameEngineException(TakEngineErrorCode.BLOCKED_FROM_PLACING);
+                    return TakEngineErrorCode.BLOCKED_FROM_PLACING;
                 }
 
                 // If there is a wall and you don't have only a capstone, fail
                 if(state.getBoard().getTile(currentLocation).getTopPiece().getType() == PieceType.WALL &&
                    (piecesLeft != 1 || !topCapstone)) {
-                    throw new BoardGameEngineException(TakEngineErrorCode.BLOCKED_FROM_PLACING);
+                    return TakEngineErrorCode.BLOCKED_FROM_PLACING;
                 }
             }
 
             piecesLeft -= move.getPlaced()[i];
         }
+
+        return null;
+    }
+
+    private static boolean isOnBoard(TakState state, GridBoardLocation location) {
+        return location != null && location.getX() >= 0 && location.getX() < state.getSize() &&
+               location.getY() >= 0 && location.getY() < state.getSize();
+    }
+
+    public boolean isActionValid(TakBitState state, Action action) {
+        try {
+            return checkAction(state, action) == null;
+        } catch (BoardGameEngineException e) {
+            return false;
+        }
+    }
+
+    public boolean isActionValid(TakBitState state, int move) {
+        return checkAction(state, move) == null;
+    }
+
+    //Checks the action is for this player and packs, then checks the packed move
+    public BoardGameErrorCode checkAction(TakPosition state, Action action) throws BoardGameEngineException {
+        if(!(action instanceof TakPlaceAction || action instanceof TakMoveAction)) {
+            return TakEngineErrorCode.ILLEGAL_TYPE;
+        }
+        if(action.getPlayer() != state.getCurrentPlayer()) {
+            return TakEngineErrorCode.NOT_YOUR_TURN;
+        }
+
+        BoardGameErrorCode error = TakPackedMove.check(action, state.getSize());
+        if(error != null) {
+            return error;
+        }
+        return checkAction(state, TakPackedMove.pack(action, state.getSize()));
+    }
+
+    public BoardGameErrorCode checkAction(TakPosition state, int move) {
+        // Make sure game isn't already over
+        if(state.getStatus() != null && state.getStatus().isFinished()) {
+            return TakEngineErrorCode.GAME_FINISHED;
+        }
+
+        if(TakPackedMove.getSquare(move) >= state.getSize() * state.getSize()) {
+            return TakEngineErrorCode.INVALID_LOCATION;
+        }
+
+        //Check based on action type
+        if (TakPackedMove.isMove(move)) {
+            return checkMove(state, move);
+        }
+        return checkPlace(state, move);
+    }
+
+    private int validateAction(TakBitState state, Action action) throws BoardGameEngineException {
+        BoardGameErrorCode error = checkAction(state, action);
+        if(error != null) {
+            throw new BoardGameEngineException(error);
+        }
+
+        return TakPackedMove.pack(action, state.getSize());
+    }
+
+    private void validateAction(TakBitState state, int move) throws BoardGameEngineException {
+        BoardGameErrorCode error = checkAction(state, move);
+        if(error != null) {
+            throw new BoardGameEngineException(error);
+        }
+    }
+
+    private BoardGameErrorCode checkPlace(TakPosition state, int place) {
+        // Check if enough pieces.
+        PieceType type = TakPackedMove.getPieceType(place);
+        if (type != PieceType.CAPSTONE && state.getStones(state.getCurrent()) == 0) {
+            return TakEngineErrorCode.NOT_ENOUGH_STONES;
+        }
+        if (type == PieceType.CAPSTONE && state.getCapstones(state.getCurrent()) == 0) {
+            return TakEngineErrorCode.NOT_ENOUGH_CAPSTONES;
+        }
+
+        // Check the location is empty
+        if(state.getHeight(TakPackedMove.getSquare(place)) != 0) {
+            return TakEngineErrorCode.STACK_NOT_EMPTY;
+        }
+
+        return null;
+    }
+
+    private BoardGameErrorCode checkMove(TakPosition state, int move) {
+        // Check that the picked up pieces is legal
+        int pickedUp = TakPackedMove.getPickedUp(move);
+        if (pickedUp < 1 || pickedUp > state.getSize()) {
+            return TakEngineErrorCode.INVALID_PICKUP_AMOUNT;
+        }
+
+        // Check that the drops account for every piece picked up
+        int drops = TakPackedMove.getDropMask(move);
+        if (drops == 0 || 32 - Integer.numberOfLeadingZeros(drops) != pickedUp) {
+            return TakEngineErrorCode.PICK_UP_AND_PLACED_DO_NOT_MATCH;
+        }
+
+        // Check that stack has enough pieces
+        int square = TakPackedMove.getSquare(move);
+        if (state.getHeight(square) < pickedUp) {
+            return TakEngineErrorCode.INVALID_PICKUP_AMOUNT;
+        }
+
+        // Check that the player owns the stack
+        if (state.getTopOwner(square) != state.getCurrent()) {
+            return TakEngineErrorCode.DO_NOT_OWN_STACK;
+        }
+
+        return checkMovePlacements(state, square, move);
+    }
+
+    private BoardGameErrorCode checkMovePlacements(TakPosition state, int square, int move) {
+        // Check that each position of move is legal
+        Direction dir = TakPackedMove.getDirection(move);
+        boolean topCapstone = state.getTopType(square) == PieceType.CAPSTONE;
+        int distance = BitBoards.getDistanceToEdge(state.getSize(), square, dir);
+        int step = BitBoards.getStep(state.getSize(), dir);
+        int piecesLeft = TakPackedMove.getPickedUp(move);
+        int carried = 0;
+        int i = 0;
+        for(int drops = TakPackedMove.getDropMask(move); drops != 0; drops &= drops - 1) {
+            // Check that the move stays on the board
+            if(i >= distance) {
+                return TakEngineErrorCode.INVALID_LOCATION;
+            }
+            square += step;
+
+            //Check that it is okay to place there
+            PieceType topType = state.getTopType(square);
+            // If there is a capstone, fail
+            if(topType == PieceType.CAPSTONE) {
+                return TakEngineErrorCode.BLOCKED_FROM_PLACING;
+            }
+
+            // If there is a wall and you don't have only a capstone, fail
+            if(topType == PieceType.WALL && (piecesLeft != 1 || !topCapstone)) {
+                return TakEngineErrorCode.BLOCKED_FROM_PLACING;
+            }
+
+            int end = Integer.numberOfTrailingZeros(drops) + 1;
+            piecesLeft -= end - carried;
+            carried = end;
+            i++;
+        }
+
+        return null;
     }
 
     @Override
     public List<Action> getPossibleActions(TakState state) throws BoardGameEngineException {
         ArrayList<Action> possibleActions = new ArrayList<>();
 
-        List<List<Action>> actions = state.getBoard().getAllLocations().parallelStream()
-                .map(tile -> getPossibleForLocation(state, tile)).collect(Collectors.toList());
-
-        for(List<Action> a : actions) {
-            possibleActions.addAll(a);
+        //Generating for one state is too little work to be worth splitting across threads,
+        //see GenerationPolicy for generating many states at once
+        for(GridBoardLocation location : state.getBoard().getAllLocations()) {
+            possibleActions.addAll(getPossibleForLocation(state, location));
         }
 
         return possibleActions;
@@ -165,6 +337,58 @@ public class TakEngineMainTurns extends InOrderGameEngine<TakState> {
     }
 
 
+    public List<Action> getPossibleActions(TakBitState state) throws BoardGameEngineException {
+        ArrayList<Action> possibleActions = new ArrayList<>();
+        PlayerIndicator player = state.getCurrentPlayer();
+
+        for(int square = 0; square < state.getSize() * state.getSize(); square++) {
+            GridBoardLocation location = state.getLocation(square);
+            //If it is empty, add possible places
+            if(state.getHeight(square) == 0) {
+                if(state.getStones(state.getCurrent()) > 0) {
+                    possibleActions.add(new TakPlaceAction(player, location, PieceType.STONE));
+                    possibleActions.add(new TakPlaceAction(player, location, PieceType.WALL));
+                }
+                if(state.getCapstones(state.getCurrent()) > 0) {
+                    possibleActions.add(new TakPlaceAction(player, location, PieceType.CAPSTONE));
+                }
+            }
+            //Otherwise iterate through possible moves if player owns the stack
+            else if(state.getTopOwner(square) == state.getCurrent()) {
+                possibleActions.addAll(getMoves(state, square, location, Direction.NORTH));
+                possibleActions.addAll(getMoves(state, square, location, Direction.SOUTH));
+                possibleActions.addAll(getMoves(state, square, location, Direction.EAST));
+                possibleActions.addAll(getMoves(state, square, location, Direction.WEST));
+            }
+        }
+
+        return possibleActions;
+    }
+
+    private List<Action> getMoves(TakBitState state, int square, GridBoardLocation location, Direction dir) throws BoardGameEngineException {
+        ArrayList<Action> possibleTurns = new ArrayList<>();
+
+        int numPieces = Math.min(state.getHeight(square), state.getSize());
+        int distance = BitBoards.getDistanceToEdge(state.getSize(), square, dir);
+        int step = BitBoards.getStep(state.getSize(), dir);
+        int distToBlock = 0;
+        int current = square + step;
+        while(distToBlock < distance &&
+                (state.getHeight(current) == 0 || state.getTopType(current) == PieceType.STONE)) {
+            distToBlock++;
+            current += step;
+        }
+        boolean canFlatten = distToBlock < distance &&
+                state.getTopType(current) == PieceType.WALL &&
+                state.getTopType(square) == PieceType.CAPSTONE;
+
+        if(distToBlock > 0 || canFlatten) {
+            addMoves(possibleTurns, location, dir, numPieces, distToBlock, canFlatten, state.getCurrentPlayer());
+        }
+
+        return possibleTurns;
+    }
+
     private ArrayList<Action> getMoves(TakState state, GridBoardLocation location, Direction dir) throws BoardGameEngineException {
         PieceStack<TakPiece> tile = state.getBoard().getTile(location);
         ArrayList<Action> possibleTurns = new ArrayList<>();
@@ -186,49 +410,31 @@ public class TakEngineMainTurns extends InOrderGameEngine<TakState> {
             canFlatten = true;
         }
 
-        if(distToBlock > 0) {
-            while (numPieces > 0) {
-                possibleTurns.addAll(getMovesInner(distToBlock - 1, canFlatten, numPieces, new ArrayList<>(),
-                        location, dir, numPieces, state.getCurrentPlayerInfo().getIdentifier()));
-                numPieces--;
-            }
+        if(distToBlock > 0 || canFlatten) {
+            addMoves(possibleTurns, location, dir, numPieces, distToBlock, canFlatten, state.getCurrentPlayerInfo().getIdentifier());
         }
 
         return possibleTurns;
     }
 
-    private List<Action> getMovesInner(int distToBlock, boolean canFlatten, int numPieces, List<Integer> drops, GridBoardLocation location, Direction dir, int pickup, PlayerIndicator player) throws BoardGameEngineException {
-        List<Action> possibleActions = new ArrayList<>();
-        //at last spot
-        if(distToBlock == 0) {
-            possibleActions.add(buildMove(location, pickup, dir, drops, numPieces, player));
-            if(canFlatten && numPieces > 1) {
-                drops.add(numPieces - 1);
-                possibleActions.add(buildMove(location, pickup, dir, drops, 1, player));
+    //Builds every spread carrying numPieces or fewer from the drop tables in TakMoveGenerator
+    private void addMoves(List<Action> possibleTurns, GridBoardLocation location, Direction dir, int numPieces,
+                          int distToBlock, boolean canFlatten, PlayerIndicator player) throws BoardGameEngineException {
+        while(numPieces > 0) {
+            for(int drops : TakMoveGenerator.getSpreads(numPieces, distToBlock)) {
+                possibleTurns.add(new TakMoveAction(player, location, numPieces, dir, TakPackedMove.getDrops(drops)));
             }
-        }
-        //iterate through everything else
-        else {
-            possibleActions.add(buildMove(location, pickup, dir, drops, numPieces, player));
-            int piecesLeft = numPieces - 1;
-            while(piecesLeft > 0) {
-                drops.add(piecesLeft);
-                possibleActions.addAll(getMovesInner(distToBlock - 1, canFlatten, numPieces - piecesLeft, new ArrayList<>(drops), location, dir, pickup, player));
-                drops.remove(drops.size() - 1);
-                piecesLeft--;
+            if(canFlatten) {
+                for(int drops : TakMoveGenerator.getFlattens(numPieces, distToBlock)) {
+                    possibleTurns.add(new TakMoveAction(player, location, numPieces, dir, TakPackedMove.getDrops(drops)));
+                }
             }
+            numPieces--;
         }
-
-        return possibleActions;
     }
 
-    private TakMoveAction buildMove(GridBoardLocation location, int pickup, Direction dir, List<Integer> drops, int current, PlayerIndicator player) throws BoardGameEngineException {
-        int[] drop = new int[drops.size() + 1];
-        for(int i = 0; i < drops.size(); i++) {
-            drop[i] = drops.get(i);
-        }
-        drop[drop.length - 1] = current;
-        return new TakMoveAction(player, location, pickup, dir, drop);
+    public int getPossibleMoves(TakBitState state, int[] moves) {
+        return TakMoveGenerator.generateMainTurn(state, moves);
     }
 
     private void fillOutStatus(TakState state) throws BoardGameEngineException {
@@ -244,44 +450,73 @@ public class TakEngineMainTurns extends InOrderGameEngine<TakState> {
         }
 
         //Check for a full board
-        boolean full = true;
-        for(int x = 0; x < state.getSize(); x++) {
-            for(int y = 0; y < state.getSize(); y++) {
-                if(state.getBoard().getTile(x, y).getHeight() == 0) {
-                    full = false;
-                    break;
-                }
-            }
-        }
-
-        if(full) {
+        if(state.isBoardFull()) {
             state.setStatus(getWinnerFromPoints(state, WinReason.BOARD_FULL));
             return;
         }
 
-        //Check for each possible path
-        for(int i = 0; i < state.getSize(); i++) {
-            PieceStack<TakPiece> tile = state.getBoard().getTile(0, i);
-            if(tile.getTopPiece() != null && tile.getTopPiece().getOwner() == player.getIdentifier() &&
-               tile.getTopPiece().getType() != PieceType.WALL &&
-               isWinPath(state.getBoard(), new GridBoardLocation(0, i), new boolean[state.getSize()][state.getSize()],
-                       true, tile.getTopPiece().getOwner())) {
-                state.setStatus(new TakStatus(Status.COMPLETE, player.getIdentifier(), WinReason.PATH, getScore(state, player.getIdentifier())));
-                return;
-            }
-            tile = state.getBoard().getTile(i, 0);
-            if(tile.getTopPiece() != null && tile.getTopPiece().getOwner() == player.getIdentifier() &&
-               tile.getTopPiece().getType() != PieceType.WALL &&
-               isWinPath(state.getBoard(), new GridBoardLocation(i, 0), new boolean[state.getSize()][state.getSize()],
-                       false, tile.getTopPiece().getOwner())) {
-                state.setStatus(new TakStatus(Status.COMPLETE, player.getIdentifier(), WinReason.PATH, getScore(state, player.getIdentifier())));
-                return;
-            }
+        //Check for a path
+        if(state.hasRoad(player.getIdentifier())) {
+            state.setStatus(new TakStatus(Status.COMPLETE, player.getIdentifier(), WinReason.PATH, getScore(state, player.getIdentifier())));
+            return;
         }
 
         state.setStatus(new TakStatus());
     }
 
+    private void fillOutStatus(TakBitState state) {
+        if(state.getStatus() == null) {
+            state.setStatus(getStatus(state, state.getCurrent()));
+        }
+    }
+
+    //The status once the player has moved, whether or not the turn has passed yet
+    public static TakStatus getStatus(TakPosition state, int player) {
+        // Check if someone is out of pieces
+        if(state.getStones(player) == 0 && state.getCapstones(player) == 0) {
+            return getWinnerFromPoints(state, WinReason.OUT_OF_PIECES);
+        }
+
+        //Check for a full board
+        if(state.getOccupied() == BitBoards.getBoardMask(state.getSize())) {
+            return getWinnerFromPoints(state, WinReason.BOARD_FULL);
+        }
+
+        //Check for a path
+        if(state.hasRoad(player)) {
+            return new TakStatus(Status.COMPLETE, TakBitState.getPlayer(player), WinReason.PATH, getScore(state, player));
+        }
+
+        return new TakStatus();
+    }
+
+    private static TakStatus getWinnerFromPoints(TakPosition state, WinReason reason) {
+        int whitePoints = state.getFlatCount(TakBitState.WHITE);
+        int blackPoints = state.getFlatCount(TakBitState.BLACK);
+        int whiteCapstones = state.getCapstones(TakBitState.WHITE);
+        int blackCapstones = state.getCapstones(TakBitState.BLACK);
+
+        if(whitePoints > blackPoints) {
+            return new TakStatus(Status.COMPLETE, PlayerIndicator.WHITE, reason, getScore(state, TakBitState.WHITE));
+        }
+        else if(blackPoints > whitePoints) {
+            return new TakStatus(Status.COMPLETE, PlayerIndicator.BLACK, reason, getScore(state, TakBitState.BLACK));
+        }
+        else if(whiteCapstones > blackCapstones) {
+            return new TakStatus(Status.COMPLETE, PlayerIndicator.WHITE, reason, getScore(state, TakBitState.WHITE));
+        }
+        else if(blackCapstones > whiteCapstones) {
+            return new TakStatus(Status.COMPLETE, PlayerIndicator.BLACK, reason, getScore(state, TakBitState.BLACK));
+        }
+        else {
+            return new TakStatus(Status.COMPLETE, null, reason, 0);
+        }
+    }
+
+    private static int getScore(TakPosition state, int player) {
+        return state.getSize() * state.getSize() + state.getStones(player) + state.getCapstones(player);
+    }
+
     private TakStatus getWinnerFromPoints(TakState state, WinReason reason) throws BoardGameEngineException {
         int whitePoints = 0;
         int blackPoints = 0;
@@ -327,41 +562,146 @@ public class TakEngineMainTurns extends InOrderGameEngine<TakState> {
         return state.getSize() * state.getSize() + points;
     }
 
-    private boolean isWinPath(GridBoard<PieceStack<TakPiece>> board, GridBoardLocation current, boolean[][] checked, boolean horizontal, PlayerIndicator player) throws BoardGameEngineException {
-        if((horizontal && current.getX() == board.getWidth() - 1) ||
-           (!horizontal && current.getY() == board.getWidth() - 1)) {
-            return true;
+    @Override
+    public ActionResult updateState(TakState state, Action action) throws BoardGameEngineException {
+        validateAction(state, action);
+        applyAction(state, action);
+        // The turn passes to the other player once this is applied
+        state.updateHash(Zobrist.getBlackToMoveKey());
+        state.setStatus(null);
+        fillOutStatus(state);
+
+        return null;
+    }
+
+    public void updateState(TakBitState state, Action action) throws BoardGameEngineException {
+        int move = validateAction(state, action);
+        if(applyAction(state, move)) {
+            ((TakMoveAction) action).flatten();
         }
+        state.setStatus(null);
+        fillOutStatus(state);
+    }
 
-        Direction[] dirs = {Direction.NORTH, Direction.SOUTH, Direction.EAST, Direction.WEST};
+    public void updateState(TakBitState state, int move) throws BoardGameEngineException {
+        validateAction(state, move);
+        applyAction(state, move);
+        state.setStatus(null);
+        fillOutStatus(state);
+    }
 
-        for(int i = 0; i < dirs.length; i++) {
-            current.move(dirs[i], 1);
-            if (current.getY() >= 0 && current.getY() < board.getWidth() &&
-                current.getX() >= 0 && current.getX() < board.getWidth()) {
-                TakPiece topPiece = board.getTile(current).getTopPiece();
-                if(topPiece != null && !checked[current.getX()][current.getY()] && topPiece.getOwner() == player &&
-                   (topPiece.getType() == PieceType.CAPSTONE || topPiece.getType() == PieceType.STONE)) {
-                    checked[current.getX()][current.getY()] = true;
-                    if (isWinPath(board, current, checked, horizontal, player)) {
-                        return true;
-                    }
+    //Records what is needed to take the action back, so it has to be called before the action is applied
+    public TakUndo getUndo(TakState state, Action action) throws BoardGameEngineException {
+        if(action instanceof TakPlaceAction) {
+            return new TakUndo(state, action, false, TakUndo.getIndex(state, state.getCurrentPlayerInfo()));
+        }
+
+        boolean flattened = false;
+        if(action instanceof TakMoveAction) {
+            TakMoveAction move = (TakMoveAction) action;
+            if(move.getDirection() != null && move.getPlaced() != null) {
+                GridBoardLocation last = new GridBoardLocation(move.getStartLocation().getX(), move.getStartLocation().getY());
+                last.move(move.getDirection(), move.getPlaced().length);
+                if(state.getBoard().onBoard(last)) {
+                    TakPiece topPiece = state.getBoard().getTile(last).getTopPiece();
+                    flattened = topPiece != null && topPiece.getType() == PieceType.WALL;
                 }
             }
-            current.move(dirs[i].opposite(), 1);
         }
 
-        return false;
+        return new TakUndo(state, action, flattened, -1);
     }
 
-    @Override
-    public ActionResult updateState(TakState state, Action action) throws BoardGameEngineException {
-        validateAction(state, action);
-        applyAction(state, action);
+    //The inverse of updateState, putting the board, reserves and status back to how they were
+    public void undoState(TakState state, TakUndo undo) throws BoardGameEngineException {
+        if(undo.getAction() instanceof TakPlaceAction) {
+            GridBoardLocation location = ((TakPlaceAction) undo.getAction()).getLocation();
+            state.getBoard().getTile(location).removePieces(1);
+            state.updateSquare(location);
+        }
+        else {
+            undoMove(state, (TakMoveAction) undo.getAction(), undo.isFlattened());
+        }
+
+        undo.restore(state);
+    }
+
+    private void undoMove(TakState state, TakMoveAction move, boolean flattened) throws BoardGameEngineException {
+        GridBoardLocation current = new GridBoardLocation(move.getStartLocation().getX(), move.getStartLocation().getY());
+        current.move(move.getDirection(), move.getPlaced().length);
+        List<TakPiece> pieces = new ArrayList<>();
+        // Pick the pieces back up starting from the last square
+        for(int i = move.getPlaced().length - 1; i >= 0; i--) {
+            PieceStack<TakPiece> tile = state.getBoard().getTile(current);
+            pieces.addAll(0, tile.removePieces(move.getPlaced()[i]));
+            // Stand the wall the capstone flattened back up
+            if(flattened && i == move.getPlaced().length - 1) {
+                replaceTop(tile, PieceType.WALL);
+            }
+            state.updateSquare(current);
+            current.move(move.getDirection().opposite(), 1);
+        }
+
+        PieceStack<TakPiece> start = state.getBoard().getTile(current);
+        for(TakPiece piece : pieces) {
+            start.addPiece(piece);
+        }
+        state.updateSquare(current);
+    }
+
+    //Pieces are shared so they can't be changed, the top is swapped for the piece of the new type instead
+    private static void replaceTop(PieceStack<TakPiece> tile, PieceType type) throws BoardGameEngineException {
+        TakPiece top = tile.removePieces(1).get(0);
+        tile.addPiece(TakPiece.of(top.getOwner(), type));
+    }
+
+    //Applies a move without validating it, so it has to be legal, such as one from getPossibleMoves.
+    //Returns what unmakeMove needs to take it back.
+    public long makeMove(TakBitState state, int move) {
+        TakStatus status = state.getStatus();
+        if(applyAction(state, move)) {
+            move = TakPackedMove.flatten(move);
+        }
         state.setStatus(null);
         fillOutStatus(state);
 
-        return null;
+        return TakUndo.pack(move, status);
+    }
+
+    public void unmakeMove(TakBitState state, long undo) {
+        int move = TakUndo.getMove(undo);
+        if(TakPackedMove.isMove(move)) {
+            unapplyMove(state, move);
+        }
+        else {
+            state.unplace(TakPackedMove.getSquare(move));
+        }
+
+        state.setStatus(TakUndo.getStatus(undo));
+    }
+
+    private void unapplyMove(TakBitState state, int move) {
+        int square = TakPackedMove.getSquare(move);
+        int step = BitBoards.getStep(state.getSize(), TakPackedMove.getDirection(move));
+        int drops = TakPackedMove.getDropMask(move);
+        int target = square + step * Integer.bitCount(drops);
+        PieceType topType = state.getTopType(target);
+        int pieces = 0;
+        // Pick the pieces back up starting from the last square, the highest carried first
+        while(drops != 0) {
+            int end = 32 - Integer.numberOfLeadingZeros(drops);
+            boolean last = drops == TakPackedMove.getDropMask(move);
+            drops &= ~Integer.highestOneBit(drops);
+            int count = end - (32 - Integer.numberOfLeadingZeros(drops));
+            pieces = (pieces << count) | state.pickUp(target, count);
+            // Stand the wall the capstone flattened back up
+            if(last && TakPackedMove.isFlattened(move)) {
+                state.setTopType(target, PieceType.WALL);
+            }
+            target -= step;
+        }
+
+        state.drop(square, pieces, TakPackedMove.getPickedUp(move), topType);
     }
 
     @Override
@@ -380,31 +720,90 @@ public class TakEngineMainTurns extends InOrderGameEngine<TakState> {
 
     private void applyPlace(TakState state, TakPlaceAction place) throws BoardGameEngineException {
         TakPlayerInfo player = state.getCurrentPlayerInfo();
-        state.getBoard().getTile(place.getLocation()).addPiece(new TakPiece(player.getIdentifier(), place.getPieceType()));
+        state.getBoard().getTile(place.getLocation()).addPiece(TakPiece.of(player.getIdentifier(), place.getPieceType()));
+        state.updateSquare(place.getLocation());
 
+        int index = TakBitState.getIndex(player.getIdentifier());
+        int square = BitBoards.getSquare(state.getSize(), place.getLocation().getX(), place.getLocation().getY());
+        long change = Zobrist.getPieceKey(square, 0, index) ^ Zobrist.getTopKey(square, place.getPieceType());
         if(place.getPieceType() == PieceType.CAPSTONE) {
+            int left = player.getCapstones().getPiecesLeft();
             player.getCapstones().removePieces(1);
+            change ^= Zobrist.getCapstonesKey(index, left) ^ Zobrist.getCapstonesKey(index, left - 1);
         }
         else {
+            int left = player.getStones().getPiecesLeft();
             player.getStones().removePieces(1);
+            change ^= Zobrist.getStonesKey(index, left) ^ Zobrist.getStonesKey(index, left - 1);
         }
+        state.updateHash(change);
     }
 
     private void applyMove(TakState state, TakMoveAction move) throws BoardGameEngineException {
-        List<TakPiece> pieces = state.getBoard().getTile(move.getStartLocation()).removePieces(move.getPickedUp());
+        PieceStack<TakPiece> start = state.getBoard().getTile(move.getStartLocation());
+        int height = start.getHeight() - move.getPickedUp();
+        List<TakPiece> pieces = start.removePieces(move.getPickedUp());
+        state.updateSquare(move.getStartLocation());
         GridBoardLocation current = new GridBoardLocation(move.getStartLocation().getX(), move.getStartLocation().getY());
+        int square = BitBoards.getSquare(state.getSize(), current.getX(), current.getY());
+        PieceType topType = pieces.get(pieces.size() - 1).getType();
+        long change = Zobrist.getTopKey(square, topType);
+        for(int i = 0; i < pieces.size(); i++) {
+            change ^= Zobrist.getPieceKey(square, height + i, TakBitState.getIndex(pieces.get(i).getOwner()));
+        }
         for(int i = 0; i < move.getPlaced().length; i++) {
             current.move(move.getDirection(), 1);
-            TakPiece topPiece = state.getBoard().getTile(current).getTopPiece();
+            square = BitBoards.getSquare(state.getSize(), current.getX(), current.getY());
+            PieceStack<TakPiece> tile = state.getBoard().getTile(current);
+            TakPiece topPiece = tile.getTopPiece();
             // If there is a wall, collapse it
             if(topPiece != null && topPiece.getType() == PieceType.WALL) {
-                topPiece.setType(PieceType.STONE);
+                replaceTop(tile, PieceType.STONE);
+                change ^= Zobrist.getTopKey(square, PieceType.WALL);
                 move.flatten();
             }
             // Place the right number of pieces in
             for(int j = 0; j < move.getPlaced()[i]; j++) {
-                state.getBoard().getTile(current).addPiece(pieces.remove(0));
+                TakPiece piece = pieces.remove(0);
+                change ^= Zobrist.getPieceKey(square, tile.getHeight(), TakBitState.getIndex(piece.getOwner()));
+                tile.addPiece(piece);
             }
+            state.updateSquare(current);
+        }
+        state.updateHash(change ^ Zobrist.getTopKey(square, topType));
+    }
+
+    //Returns whether a wall was flattened
+    private boolean applyAction(TakBitState state, int move) {
+        if(!TakPackedMove.isMove(move)) {
+            state.place(TakPackedMove.getSquare(move), state.getCurrent(), TakPackedMove.getPieceType(move));
+            return false;
         }
+
+        return applyMove(state, move);
+    }
+
+    private boolean applyMove(TakBitState state, int move) {
+        int square = TakPackedMove.getSquare(move);
+        int step = BitBoards.getStep(state.getSize(), TakPackedMove.getDirection(move));
+        PieceType topType = state.getTopType(square);
+        int pieces = state.pickUp(square, TakPackedMove.getPickedUp(move));
+        boolean flattened = false;
+        int carried = 0;
+        for(int drops = TakPackedMove.getDropMask(move); drops != 0; drops &= drops - 1) {
+            square += step;
+            // If there is a wall, it gets collapsed by the drop
+            if(state.getTopType(square) == PieceType.WALL) {
+                flattened = true;
+            }
+            // Place the right number of pieces in, lowest first
+            int end = Integer.numberOfTrailingZeros(drops) + 1;
+            int count = end - carried;
+            state.drop(square, pieces & ((1 << count) - 1), count, (drops & (drops - 1)) == 0 ? topType : PieceType.STONE);
+            pieces >>>= count;
+            carried = end;
+        }
+
+        return flattened;
     }
 }
@@ -0,0 +1,292 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+
+import java.util.Random;
+
+//Generates packed moves for a TakBitState into a buffer supplied by the caller, without allocating.
+//Spreads come from tables of drop masks built once, indexed by the number of pieces carried
+//and the number of squares that can be reached before something blocks the way.
+public final class TakMoveGenerator {
+    private static final int MAX_CARRY = BitBoards.MAX_SIZE;
+    private static final int DIRECTIONS = 4;
+
+    //Drop masks that use at most the reachable squares
+    private static final int[][][] SPREADS = new int[MAX_CARRY + 1][MAX_CARRY + 1][];
+    //Drop masks that use every reachable square and then flatten a wall with the capstone alone
+    private static final int[][][] FLATTENS = new int[MAX_CARRY + 1][MAX_CARRY + 1][];
+    //How many spreads and flattens there are carrying up to the number of pieces, for counting moves without making them
+    private static final int[][] SPREAD_TOTALS = new int[MAX_CARRY + 1][MAX_CARRY + 1];
+    private static final int[][] FLATTEN_TOTALS = new int[MAX_CARRY + 1][MAX_CARRY + 1];
+    //Set on a reach when the spread can end by flattening a wall
+    private static final int FLATTEN = 1 << 8;
+
+    static {
+        for(int carried = 1; carried <= MAX_CARRY; carried++) {
+            for(int reach = 0; reach <= MAX_CARRY; reach++) {
+                SPREADS[carried][reach] = buildSpreads(carried, reach);
+                FLATTENS[carried][reach] = buildFlattens(carried, reach);
+                SPREAD_TOTALS[carried][reach] = SPREAD_TOTALS[carried - 1][reach] + SPREADS[carried][reach].length;
+                FLATTEN_TOTALS[carried][reach] = FLATTEN_TOTALS[carried - 1][reach] + FLATTENS[carried][reach].length;
+            }
+        }
+    }
+
+    private TakMoveGenerator() {
+    }
+
+    //Upper bound on the moves that can be generated for a board size, used to size buffers
+    public static int getMaxMoves(int size) {
+        int carry = Math.min(size, MAX_CARRY);
+        return size * size * (3 + DIRECTIONS * ((1 << carry) - 1));
+    }
+
+    static int[] getSpreads(int carried, int reach) {
+        return SPREADS[carried][reach];
+    }
+
+    static int[] getFlattens(int carried, int reach) {
+        return FLATTENS[carried][reach];
+    }
+
+    //During the first turns a stone for the opponent can go on any empty square
+    static int generateFirstTurn(TakBitState state, int[] moves) {
+        int count = 0;
+        long empty = ~state.getOccupied() & BitBoards.getBoardMask(state.getSize());
+        for(long bits = empty; bits != 0; bits &= bits - 1) {
+            moves[count++] = TakPackedMove.place(Long.numberOfTrailingZeros(bits), PieceType.STONE);
+        }
+
+        return count;
+    }
+
+    static int generateMainTurn(TakBitState state, int[] moves) {
+        int size = state.getSize();
+        int player = state.getCurrent();
+        int count = 0;
+
+        //Places on every empty square
+        long empty = ~state.getOccupied() & BitBoards.getBoardMask(size);
+        boolean haveStones = state.getStones(player) > 0;
+        boolean haveCapstones = state.getCapstones(player) > 0;
+        for(long bits = empty; bits != 0; bits &= bits - 1) {
+            int square = Long.numberOfTrailingZeros(bits);
+            if(haveStones) {
+                moves[count++] = TakPackedMove.place(square, PieceType.STONE);
+                moves[count++] = TakPackedMove.place(square, PieceType.WALL);
+            }
+            if(haveCapstones) {
+                moves[count++] = TakPackedMove.place(square, PieceType.CAPSTONE);
+            }
+        }
+
+        //Spreads from every stack the player controls
+        long walls = state.getPieces(TakBitState.WHITE, PieceType.WALL) | state.getPieces(TakBitState.BLACK, PieceType.WALL);
+        long blockers = walls | state.getPieces(TakBitState.WHITE, PieceType.CAPSTONE) |
+                state.getPieces(TakBitState.BLACK, PieceType.CAPSTONE);
+        long capstones = state.getPieces(player, PieceType.CAPSTONE);
+        for(long bits = state.getPieces(player); bits != 0; bits &= bits - 1) {
+            int square = Long.numberOfTrailingZeros(bits);
+            int carry = Math.min(state.getHeight(square), size);
+            boolean capstone = (capstones & BitBoards.bit(square)) != 0;
+            for(int direction = 0; direction < DIRECTIONS; direction++) {
+                int reach = getReach(size, square, direction, blockers, walls, capstone);
+                boolean flatten = (reach & FLATTEN) != 0;
+                reach &= ~FLATTEN;
+                if(reach == 0 && !flatten) {
+                    continue;
+                }
+
+                for(int carried = carry; carried > 0; carried--) {
+                    for(int drops : SPREADS[carried][reach]) {
+                        moves[count++] = TakPackedMove.move(square, direction, carried, drops);
+                    }
+                    if(flatten) {
+                        for(int drops : FLATTENS[carried][reach]) {
+                            moves[count++] = TakPackedMove.move(square, direction, carried, drops);
+                        }
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    //Picks one of the moves generateFirstTurn would give with the same chance for each, or -1 when there are none
+    static int sampleFirstTurn(TakBitState state, Random rand) {
+        long empty = ~state.getOccupied() & BitBoards.getBoardMask(state.getSize());
+        if(empty == 0) {
+            return -1;
+        }
+
+        return TakPackedMove.place(getNthSquare(empty, rand.nextInt(Long.bitCount(empty))), PieceType.STONE);
+    }
+
+    //Picks one of the moves generateMainTurn would give with the same chance for each, or -1 when there are none.
+    //The moves are counted from the tables rather than generated, then the chosen one is found by counting again.
+    static int sampleMainTurn(TakBitState state, Random rand) {
+        int size = state.getSize();
+        int player = state.getCurrent();
+        long empty = ~state.getOccupied() & BitBoards.getBoardMask(size);
+        int placeTypes = (state.getStones(player) > 0 ? 2 : 0) + (state.getCapstones(player) > 0 ? 1 : 0);
+        int places = Long.bitCount(empty) * placeTypes;
+
+        long walls = state.getPieces(TakBitState.WHITE, PieceType.WALL) | state.getPieces(TakBitState.BLACK, PieceType.WALL);
+        long blockers = walls | state.getPieces(TakBitState.WHITE, PieceType.CAPSTONE) |
+                state.getPieces(TakBitState.BLACK, PieceType.CAPSTONE);
+        long capstones = state.getPieces(player, PieceType.CAPSTONE);
+        int total = places;
+        for(int pass = 0; pass < 2; pass++) {
+            if(pass == 1) {
+                if(total == 0) {
+                    return -1;
+                }
+                int chosen = rand.nextInt(total);
+                if(chosen < places) {
+                    int square = getNthSquare(empty, chosen / placeTypes);
+                    int type = chosen % placeTypes;
+                    return TakPackedMove.place(square, placeTypes == 1 ? PieceType.CAPSTONE :
+                            (type == 0 ? PieceType.STONE : (type == 1 ? PieceType.WALL : PieceType.CAPSTONE)));
+                }
+                total = chosen - places;
+            }
+
+            for(long bits = state.getPieces(player); bits != 0; bits &= bits - 1) {
+                int square = Long.numberOfTrailingZeros(bits);
+                int carry = Math.min(state.getHeight(square), size);
+                boolean capstone = (capstones & BitBoards.bit(square)) != 0;
+                for(int direction = 0; direction < DIRECTIONS; direction++) {
+                    int reach = getReach(size, square, direction, blockers, walls, capstone);
+                    boolean flatten = (reach & FLATTEN) != 0;
+                    reach &= ~FLATTEN;
+                    int count = SPREAD_TOTALS[carry][reach] + (flatten ? FLATTEN_TOTALS[carry][reach] : 0);
+                    if(pass == 0) {
+                        total += count;
+                    }
+                    else if(total < count) {
+                        return getSpread(square, direction, carry, reach, flatten, total);
+                    }
+                    else {
+                        total -= count;
+                    }
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    //The index-th move generateMainTurn gives for the square and direction
+    private static int getSpread(int square, int direction, int carry, int reach, boolean flatten, int index) {
+        for(int carried = carry; carried > 0; carried--) {
+            int[] spreads = SPREADS[carried][reach];
+            if(index < spreads.length) {
+                return TakPackedMove.move(square, direction, carried, spreads[index]);
+            }
+            index -= spreads.length;
+            if(flatten) {
+                int[] flattens = FLATTENS[carried][reach];
+                if(index < flattens.length) {
+                    return TakPackedMove.move(square, direction, carried, flattens[index]);
+                }
+                index -= flattens.length;
+            }
+        }
+
+        return -1;
+    }
+
+    //How many squares a spread in the direction can reach before it is blocked,
+    //with FLATTEN set when the capstone could flatten the wall that blocks it
+    private static int getReach(int size, int square, int direction, long blockers, long walls, boolean capstone) {
+        int distance;
+        int step;
+        switch(direction) {
+            case 0:
+                distance = BitBoards.getY(size, square);
+                step = -size;
+                break;
+            case 1:
+                distance = size - 1 - BitBoards.getY(size, square);
+                step = size;
+                break;
+            case 2:
+                distance = size - 1 - BitBoards.getX(size, square);
+                step = 1;
+                break;
+            default:
+                distance = BitBoards.getX(size, square);
+                step = -1;
+                break;
+        }
+
+        int reach = 0;
+        int target = square + step;
+        while(reach < distance && (blockers & BitBoards.bit(target)) == 0) {
+            reach++;
+            target += step;
+        }
+        if(capstone && reach < distance && (walls & BitBoards.bit(target)) != 0) {
+            return reach | FLATTEN;
+        }
+
+        return reach;
+    }
+
+    private static int getNthSquare(long bits, int n) {
+        for(int i = 0; i < n; i++) {
+            bits &= bits - 1;
+        }
+
+        return Long.numberOfTrailingZeros(bits);
+    }
+
+    private static int[] buildSpreads(int carried, int reach) {
+        int top = 1 << (carried - 1);
+        int count = 0;
+        for(int low = 0; low < top; low++) {
+            if(Integer.bitCount(low | top) <= reach) {
+                count++;
+            }
+        }
+
+        int[] spreads = new int[count];
+        count = 0;
+        for(int low = 0; low < top; low++) {
+            if(Integer.bitCount(low | top) <= reach) {
+                spreads[count++] = low | top;
+            }
+        }
+
+        return spreads;
+    }
+
+    private static int[] buildFlattens(int carried, int reach) {
+        //A capstone carried alone can only flatten a wall right next to it
+        if(carried < 2) {
+            return reach == 0 ? new int[] {1} : new int[0];
+        }
+
+        //The capstone is dropped alone, so the second to last piece always ends a drop
+        int end = (1 << (carried - 1)) | (1 << (carried - 2));
+        int count = 0;
+        for(int low = 0; low < (1 << (carried - 2)); low++) {
+            if(Integer.bitCount(low | end) == reach + 1) {
+                count++;
+            }
+        }
+
+        int[] flattens = new int[count];
+        count = 0;
+        for(int low = 0; low < (1 << (carried - 2)); low++) {
+            if(Integer.bitCount(low | end) == reach + 1) {
+                flattens[count++] = low | end;
+            }
+        }
+
+        return flattens;
+    }
+}
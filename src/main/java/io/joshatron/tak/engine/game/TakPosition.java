@@ -0,0 +1,49 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.PieceType;
+
+//What the rules read from a position, so packed moves are checked and statuses worked out the same
+//way whether the position is updated in place or copied on every move.
+//Squares are indexed y * size + x and players are TakBitState.WHITE and TakBitState.BLACK.
+public interface TakPosition {
+    int getSize();
+
+    PlayerIndicator getFirst();
+
+    int getCurrent();
+
+    PlayerIndicator getCurrentPlayer();
+
+    int getPly();
+
+    //Null when it hasn't been worked out yet
+    TakStatus getStatus();
+
+    long getHash();
+
+    int getStones(int player);
+
+    int getCapstones(int player);
+
+    int getHeight(int square);
+
+    //Owner of the piece at the index of the stack, 0 being the bottom
+    int getOwner(int square, int index);
+
+    //-1 when the square is empty
+    int getTopOwner(int square);
+
+    //Null when the square is empty
+    PieceType getTopType(int square);
+
+    long getPieces(int player, PieceType type);
+
+    long getOccupied();
+
+    long getRoadPieces(int player);
+
+    boolean hasRoad(int player);
+
+    int getFlatCount(int player);
+}
@@ -0,0 +1,274 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.board.Zobrist;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+//A position that never changes once made, so it can be kept for replays or handed to other threads
+//without copying or locking. Applying a move through TakEngine returns a new snapshot that shares
+//everything the move didn't touch with this one: only the rows with a changed square are copied,
+//and stacks are linked lists from the top down so pieces added or taken off the top leave the
+//pieces below shared. A move costs the rows and pieces it changes rather than the whole board.
+//Squares and players are indexed the same way as TakBitState, and the hash matches it.
+@EqualsAndHashCode
+public final class TakSnapshot implements Serializable, TakPosition {
+    private static final PieceType[] TYPES = PieceType.values();
+    private static final int TYPE_COUNT = TYPES.length;
+
+    @Getter
+    private final int size;
+    @Getter
+    private final PlayerIndicator first;
+    //Indexed [y][x], null for an empty square
+    private final Stack[][] rows;
+    private final long[] tops;
+    private final int[] stones;
+    private final int[] capstones;
+    @Getter
+    private final int current;
+    @Getter
+    private final int ply;
+    @Getter
+    private final TakStatus status;
+    @Getter
+    private final long hash;
+
+    public TakSnapshot(PlayerIndicator first, int size) throws BoardGameEngineException {
+        this(new TakBitState(first, size));
+    }
+
+    public TakSnapshot(TakState state) throws BoardGameEngineException {
+        this(new TakBitState(state));
+    }
+
+    public TakSnapshot(TakBitState state) {
+        this.size = state.getSize();
+        this.first = state.getFirst();
+        this.rows = new Stack[size][size];
+        this.tops = new long[2 * TYPE_COUNT];
+        for(int square = 0; square < size * size; square++) {
+            Stack stack = null;
+            for(int i = 0; i < state.getHeight(square); i++) {
+                stack = new Stack(state.getOwner(square, i), stack);
+            }
+            rows[BitBoards.getY(size, square)][BitBoards.getX(size, square)] = stack;
+            if(stack != null) {
+                tops[stack.owner * TYPE_COUNT + state.getTopType(square).ordinal()] |= BitBoards.bit(square);
+            }
+        }
+        this.stones = new int[]{state.getStones(TakBitState.WHITE), state.getStones(TakBitState.BLACK)};
+        this.capstones = new int[]{state.getCapstones(TakBitState.WHITE), state.getCapstones(TakBitState.BLACK)};
+        this.current = state.getCurrent();
+        this.ply = state.getPly();
+        this.status = state.getStatus();
+        this.hash = state.getHash();
+    }
+
+    //Applies a move that has already been checked, see TakEngine.submitAction
+    TakSnapshot(TakSnapshot parent, int move) {
+        this.size = parent.size;
+        this.first = parent.first;
+        this.rows = parent.rows.clone();
+        this.tops = parent.tops.clone();
+        this.stones = parent.stones.clone();
+        this.capstones = parent.capstones.clone();
+        this.current = parent.current ^ 1;
+        this.ply = parent.ply + 1;
+
+        long change = Zobrist.getBlackToMoveKey();
+        if(parent.ply < 2) {
+            // The first stone each player places belongs to the other player
+            change ^= place(parent, TakPackedMove.getSquare(move), current, PieceType.STONE);
+        }
+        else if(TakPackedMove.isMove(move)) {
+            change ^= move(parent, move);
+        }
+        else {
+            change ^= place(parent, TakPackedMove.getSquare(move), parent.current, TakPackedMove.getPieceType(move));
+        }
+        this.hash = parent.hash ^ change;
+        this.status = parent.ply < 2 ? parent.status : TakEngineMainTurns.getStatus(this, parent.current);
+    }
+
+    public PlayerIndicator getCurrentPlayer() {
+        return TakBitState.getPlayer(current);
+    }
+
+    public int getStones(int player) {
+        return stones[player];
+    }
+
+    public int getCapstones(int player) {
+        return capstones[player];
+    }
+
+    public int getHeight(int square) {
+        Stack stack = getStack(square);
+        return stack == null ? 0 : stack.height;
+    }
+
+    public int getOwner(int square, int index) {
+        Stack stack = getStack(square);
+        for(int i = stack.height - 1; i > index; i--) {
+            stack = stack.below;
+        }
+
+        return stack.owner;
+    }
+
+    public int getTopOwner(int square) {
+        Stack stack = getStack(square);
+        return stack == null ? -1 : stack.owner;
+    }
+
+    public PieceType getTopType(int square) {
+        long bit = BitBoards.bit(square);
+        for(int type = 0; type < TYPE_COUNT; type++) {
+            if(((tops[type] | tops[TYPE_COUNT + type]) & bit) != 0) {
+                return TYPES[type];
+            }
+        }
+
+        return null;
+    }
+
+    public long getPieces(int player, PieceType type) {
+        return tops[player * TYPE_COUNT + type.ordinal()];
+    }
+
+    public long getOccupied() {
+        long occupied = 0;
+        for(long top : tops) {
+            occupied |= top;
+        }
+
+        return occupied;
+    }
+
+    public long getRoadPieces(int player) {
+        int base = player * TYPE_COUNT;
+        return tops[base + PieceType.STONE.ordinal()] | tops[base + PieceType.CAPSTONE.ordinal()];
+    }
+
+    //Nothing is cached since the snapshot can't change, so this looks over the road pieces each time
+    public boolean hasRoad(int player) {
+        return BitBoards.hasRoad(getRoadPieces(player), size);
+    }
+
+    public int getFlatCount(int player) {
+        return Long.bitCount(tops[player * TYPE_COUNT + PieceType.STONE.ordinal()]);
+    }
+
+    //A copy that can be searched or played on in place
+    public TakBitState toBitState() {
+        return new TakBitState(this);
+    }
+
+    private Stack getStack(int square) {
+        return rows[BitBoards.getY(size, square)][BitBoards.getX(size, square)];
+    }
+
+    //Only called while building a new snapshot, copying the row the first time it changes
+    private void setStack(TakSnapshot parent, int square, Stack stack) {
+        int y = BitBoards.getY(size, square);
+        if(rows[y] == parent.rows[y]) {
+            rows[y] = rows[y].clone();
+        }
+        rows[y][BitBoards.getX(size, square)] = stack;
+    }
+
+    private void setTop(int square, int owner, PieceType type) {
+        long bit = BitBoards.bit(square);
+        for(int i = 0; i < tops.length; i++) {
+            tops[i] &= ~bit;
+        }
+        if(type != null) {
+            tops[owner * TYPE_COUNT + type.ordinal()] |= bit;
+        }
+    }
+
+    //Returns the change to the hash
+    private long place(TakSnapshot parent, int square, int player, PieceType type) {
+        setStack(parent, square, new Stack(player, null));
+        setTop(square, player, type);
+        long change = Zobrist.getPieceKey(square, 0, player) ^ Zobrist.getTopKey(square, type);
+        if(type == PieceType.CAPSTONE) {
+            change ^= Zobrist.getCapstonesKey(player, capstones[player]) ^ Zobrist.getCapstonesKey(player, capstones[player] - 1);
+            capstones[player]--;
+        }
+        else {
+            change ^= Zobrist.getStonesKey(player, stones[player]) ^ Zobrist.getStonesKey(player, stones[player] - 1);
+            stones[player]--;
+        }
+
+        return change;
+    }
+
+    //Returns the change to the hash
+    private long move(TakSnapshot parent, int move) {
+        int square = TakPackedMove.getSquare(move);
+        int step = BitBoards.getStep(size, TakPackedMove.getDirection(move));
+        int pickedUp = TakPackedMove.getPickedUp(move);
+        PieceType topType = parent.getTopType(square);
+
+        // Take the carried pieces off the top, leaving the rest of the stack as it was
+        Stack stack = parent.getStack(square);
+        int[] carried = new int[pickedUp];
+        long change = Zobrist.getTopKey(square, topType);
+        for(int i = pickedUp - 1; i >= 0; i--) {
+            carried[i] = stack.owner;
+            change ^= Zobrist.getPieceKey(square, stack.height - 1, stack.owner);
+            stack = stack.below;
+        }
+        setStack(parent, square, stack);
+        setTop(square, stack == null ? -1 : stack.owner, stack == null ? null : PieceType.STONE);
+
+        int dropped = 0;
+        for(int drops = TakPackedMove.getDropMask(move); drops != 0; drops &= drops - 1) {
+            square += step;
+            stack = parent.getStack(square);
+            // Whatever was on top is buried as a stone, including a wall the capstone flattens
+            if(stack != null) {
+                change ^= Zobrist.getTopKey(square, parent.getTopType(square));
+            }
+            // Add the right number of pieces on top, lowest first
+            int end = Integer.numberOfTrailingZeros(drops) + 1;
+            for(; dropped < end; dropped++) {
+                stack = new Stack(carried[dropped], stack);
+                change ^= Zobrist.getPieceKey(square, stack.height - 1, stack.owner);
+            }
+            PieceType type = (drops & (drops - 1)) == 0 ? topType : PieceType.STONE;
+            setStack(parent, square, stack);
+            setTop(square, stack.owner, type);
+            change ^= Zobrist.getTopKey(square, type);
+        }
+
+        return change;
+    }
+
+    @Override
+    public String toString() {
+        return toBitState().toString();
+    }
+
+    //One piece and everything below it, which is never changed once made so it can be shared
+    @EqualsAndHashCode
+    private static final class Stack implements Serializable {
+        private final int owner;
+        private final Stack below;
+        private final int height;
+
+        private Stack(int owner, Stack below) {
+            this.owner = owner;
+            this.below = below;
+            this.height = below == null ? 1 : below.height + 1;
+        }
+    }
+}
@@ -1,23 +1,48 @@
 package io.joshatron.tak.engine.game;
 
 import io.joshatron.bgt.engine.board.grid.GridBoard;
+import io.joshatron.bgt.engine.board.grid.GridBoardLocation;
 import io.joshatron.bgt.engine.component.PiecePile;
 import io.joshatron.bgt.engine.component.PieceStack;
 import io.joshatron.bgt.engine.exception.BoardGameEngineException;
 import io.joshatron.bgt.engine.player.PlayerIndicator;
 import io.joshatron.bgt.engine.state.InOrderGameState;
+import io.joshatron.tak.engine.board.BitBoards;
 import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.board.RoadGroups;
 import io.joshatron.tak.engine.board.TakPiece;
+import io.joshatron.tak.engine.board.Zobrist;
 import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 
-@EqualsAndHashCode(callSuper = true)
+@EqualsAndHashCode(callSuper = true, exclude = {"hash", "roads", "occupied", "roadPieces"})
 @Data
 public class TakState extends InOrderGameState<TakStatus,TakPlayerInfo> {
     private int size;
     private PlayerIndicator first;
     private GridBoard<PieceStack<TakPiece>> board;
+    //Plies played before the game log starts, for games set up part way through
+    private int startingPly;
+    //Zobrist hash of the position, updated by the engine as actions are applied
+    @Setter(AccessLevel.NONE)
+    private long hash;
+    //Not part of the state, built from the board when first needed
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient RoadGroups[] roads;
+    //Which squares are taken and which hold each player's road pieces, updated square by square
+    //as the engine changes them so the status checks don't have to look over the whole board.
+    //Changing or setting the board outside of the engine needs a rehash() after, as the hash does.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient long occupied;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient long[] roadPieces;
 
     public TakState(PlayerIndicator first, int size) throws BoardGameEngineException {
         super(new TakStatus());
@@ -32,55 +57,154 @@ public class TakState extends InOrderGameState<TakStatus,TakPlayerInfo> {
             case 3:
                 board = new GridBoard<>(size, size, new PieceStack<>());
                 getPlayers().add(new TakPlayerInfo(PlayerIndicator.WHITE,
-                        new PiecePile<>(new TakPiece(PlayerIndicator.WHITE, PieceType.STONE), 10),
-                        new PiecePile<>(new TakPiece(PlayerIndicator.WHITE, PieceType.CAPSTONE), 0)));
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.WHITE, PieceType.STONE), 10),
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.WHITE, PieceType.CAPSTONE), 0)));
                 getPlayers().add(new TakPlayerInfo(PlayerIndicator.BLACK,
-                        new PiecePile<>(new TakPiece(PlayerIndicator.WHITE, PieceType.STONE),10),
-                        new PiecePile<>(new TakPiece(PlayerIndicator.WHITE, PieceType.CAPSTONE), 0)));
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.WHITE, PieceType.STONE),10),
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.WHITE, PieceType.CAPSTONE), 0)));
                 break;
             case 4:
                 board = new GridBoard<>(size, size, new PieceStack<>());
                 getPlayers().add(new TakPlayerInfo(PlayerIndicator.WHITE,
-                        new PiecePile<>(new TakPiece(PlayerIndicator.WHITE, PieceType.STONE), 15),
-                        new PiecePile<>(new TakPiece(PlayerIndicator.WHITE, PieceType.CAPSTONE), 0)));
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.WHITE, PieceType.STONE), 15),
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.WHITE, PieceType.CAPSTONE), 0)));
                 getPlayers().add(new TakPlayerInfo(PlayerIndicator.BLACK,
-                        new PiecePile<>(new TakPiece(PlayerIndicator.BLACK, PieceType.STONE), 15),
-                        new PiecePile<>(new TakPiece(PlayerIndicator.BLACK, PieceType.CAPSTONE), 0)));
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.BLACK, PieceType.STONE), 15),
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.BLACK, PieceType.CAPSTONE), 0)));
                 break;
             case 5:
                 board = new GridBoard<>(size, size, new PieceStack<>());
                 getPlayers().add(new TakPlayerInfo(PlayerIndicator.WHITE,
-                        new PiecePile<>(new TakPiece(PlayerIndicator.WHITE, PieceType.STONE), 21),
-                        new PiecePile<>(new TakPiece(PlayerIndicator.WHITE, PieceType.CAPSTONE), 1)));
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.WHITE, PieceType.STONE), 21),
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.WHITE, PieceType.CAPSTONE), 1)));
                 getPlayers().add(new TakPlayerInfo(PlayerIndicator.BLACK,
-                        new PiecePile<>(new TakPiece(PlayerIndicator.BLACK, PieceType.STONE), 21),
-                        new PiecePile<>(new TakPiece(PlayerIndicator.BLACK, PieceType.CAPSTONE), 1)));
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.BLACK, PieceType.STONE), 21),
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.BLACK, PieceType.CAPSTONE), 1)));
                 break;
             case 6:
                 board = new GridBoard<>(size, size, new PieceStack<>());
                 getPlayers().add(new TakPlayerInfo(PlayerIndicator.WHITE,
-                        new PiecePile<>(new TakPiece(PlayerIndicator.WHITE, PieceType.STONE), 30),
-                        new PiecePile<>(new TakPiece(PlayerIndicator.WHITE, PieceType.CAPSTONE), 1)));
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.WHITE, PieceType.STONE), 30),
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.WHITE, PieceType.CAPSTONE), 1)));
                 getPlayers().add(new TakPlayerInfo(PlayerIndicator.BLACK,
-                        new PiecePile<>(new TakPiece(PlayerIndicator.BLACK, PieceType.STONE), 30),
-                        new PiecePile<>(new TakPiece(PlayerIndicator.BLACK, PieceType.CAPSTONE), 1)));
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.BLACK, PieceType.STONE), 30),
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.BLACK, PieceType.CAPSTONE), 1)));
                 break;
             case 8:
                 board = new GridBoard<>(size, size, new PieceStack<>());
                 getPlayers().add(new TakPlayerInfo(PlayerIndicator.WHITE,
-                        new PiecePile<>(new TakPiece(PlayerIndicator.WHITE, PieceType.STONE), 50),
-                        new PiecePile<>(new TakPiece(PlayerIndicator.WHITE, PieceType.CAPSTONE), 2)));
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.WHITE, PieceType.STONE), 50),
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.WHITE, PieceType.CAPSTONE), 2)));
                 getPlayers().add(new TakPlayerInfo(PlayerIndicator.BLACK,
-                        new PiecePile<>(new TakPiece(PlayerIndicator.BLACK, PieceType.STONE), 50),
-                        new PiecePile<>(new TakPiece(PlayerIndicator.BLACK, PieceType.CAPSTONE), 2)));
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.BLACK, PieceType.STONE), 50),
+                        new PiecePile<>(TakPiece.of(PlayerIndicator.BLACK, PieceType.CAPSTONE), 2)));
                 break;
             default:
                 throw new BoardGameEngineException(TakEngineErrorCode.INVALID_BOARD_SIZE);
         }
+
+        hash = computeHash();
     }
 
     @Override
     public String getDisplayForPlayer(PlayerIndicator player) {
         return getPlayers().get(0).toString() + "\n" + getPlayers().get(1).toString() + "\n" + board.toString();
     }
+
+    //Plies played so far, counting the ones before the game log starts
+    public int getPly() {
+        return startingPly + getGameLog().size();
+    }
+
+    public int getEmptySquares() throws BoardGameEngineException {
+        summarize();
+        return size * size - Long.bitCount(occupied);
+    }
+
+    public boolean isBoardFull() throws BoardGameEngineException {
+        return getEmptySquares() == 0;
+    }
+
+    //Only the squares that changed since the last call are searched again
+    public boolean hasRoad(PlayerIndicator player) throws BoardGameEngineException {
+        summarize();
+        if(roads == null) {
+            roads = new RoadGroups[]{new RoadGroups(size), new RoadGroups(size)};
+        }
+
+        int index = TakBitState.getIndex(player);
+        roads[index].update(roadPieces[index]);
+        return roads[index].hasRoad();
+    }
+
+    //Called by the engine whenever the pieces on a square change
+    void updateSquare(GridBoardLocation location) throws BoardGameEngineException {
+        if(roadPieces == null) {
+            return;
+        }
+
+        long bit = BitBoards.bit(BitBoards.getSquare(size, location.getX(), location.getY()));
+        occupied &= ~bit;
+        roadPieces[0] &= ~bit;
+        roadPieces[1] &= ~bit;
+        TakPiece top = board.getTile(location.getX(), location.getY()).getTopPiece();
+        if(top != null) {
+            occupied |= bit;
+            if(top.getType() != PieceType.WALL) {
+                roadPieces[TakBitState.getIndex(top.getOwner())] |= bit;
+            }
+        }
+    }
+
+    private void summarize() throws BoardGameEngineException {
+        if(roadPieces != null) {
+            return;
+        }
+
+        roadPieces = new long[2];
+        occupied = 0;
+        for(int x = 0; x < size; x++) {
+            for(int y = 0; y < size; y++) {
+                updateSquare(new GridBoardLocation(x, y));
+            }
+        }
+    }
+
+    //Works the hash out from scratch, for when the board has been changed outside of the engine
+    public long computeHash() throws BoardGameEngineException {
+        long computed = 0;
+        for(int x = 0; x < size; x++) {
+            for(int y = 0; y < size; y++) {
+                int square = BitBoards.getSquare(size, x, y);
+                PieceStack<TakPiece> tile = board.getTile(x, y);
+                for(int i = 0; i < tile.getHeight(); i++) {
+                    computed ^= Zobrist.getPieceKey(square, i, TakBitState.getIndex(tile.getPieces().get(i).getOwner()));
+                }
+                if(tile.getHeight() > 0) {
+                    computed ^= Zobrist.getTopKey(square, tile.getTopPiece().getType());
+                }
+            }
+        }
+        for(TakPlayerInfo info : getPlayers()) {
+            int player = TakBitState.getIndex(info.getIdentifier());
+            computed ^= Zobrist.getStonesKey(player, info.getStones().getPiecesLeft()) ^
+                        Zobrist.getCapstonesKey(player, info.getCapstones().getPiecesLeft());
+        }
+        if(getCurrentPlayerInfo().getIdentifier() == PlayerIndicator.BLACK) {
+            computed ^= Zobrist.getBlackToMoveKey();
+        }
+
+        return computed;
+    }
+
+    //Brings the hash and the squares the status checks use up to date after the board was changed outside of the engine
+    public void rehash() throws BoardGameEngineException {
+        hash = computeHash();
+        roadPieces = null;
+        roads = null;
+    }
+
+    void updateHash(long change) {
+        hash ^= change;
+    }
 }
@@ -28,4 +28,9 @@ public class TakStatus extends GameStatus {
         reason = WinReason.NONE;
         score = 0;
     }
+
+    //Whether the game has ended, going by the reason it ended
+    public boolean isFinished() {
+        return reason != WinReason.NONE;
+    }
 }
@@ -0,0 +1,132 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.component.PiecePile;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.bgt.engine.state.Status;
+import lombok.Data;
+
+import java.io.Serializable;
+
+//Everything needed to take an action back off a TakState.
+//Moved pieces are recovered from the action itself, so only what the action can't tell is kept:
+//whether a wall was flattened, the reserve a place took from, the status and whose turn it was.
+//TakBitState moves are undone from a long instead, see pack.
+@Data
+public class TakUndo implements Serializable {
+    private static final TakStatus IN_PROGRESS = new TakStatus();
+    private static final WinReason[] REASONS = WinReason.values();
+
+    private Action action;
+    private boolean flattened;
+    private int reservePlayer;
+    private int stones;
+    private int capstones;
+    private TakStatus status;
+    private int player;
+    private long hash;
+
+    //The reserve player is the index of the player whose pieces a place takes, or -1 for a move
+    TakUndo(TakState state, Action action, boolean flattened, int reservePlayer) throws BoardGameEngineException {
+        this.action = action;
+        this.flattened = flattened;
+        this.reservePlayer = reservePlayer;
+        if(reservePlayer >= 0) {
+            TakPlayerInfo info = state.getPlayers().get(reservePlayer);
+            this.stones = info.getStones().getPiecesLeft();
+            this.capstones = info.getCapstones().getPiecesLeft();
+        }
+        this.status = state.getStatus();
+        this.player = getIndex(state, state.getCurrentPlayerInfo());
+        this.hash = state.getHash();
+    }
+
+    static int getIndex(TakState state, TakPlayerInfo info) {
+        for(int i = 0; i < state.getPlayers().size(); i++) {
+            if(state.getPlayers().get(i) == info) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    //Puts the reserves, status and hash back to how they were
+    void restore(TakState state) throws BoardGameEngineException {
+        if(reservePlayer >= 0) {
+            TakPlayerInfo info = state.getPlayers().get(reservePlayer);
+            setPiecesLeft(info.getStones(), stones);
+            setPiecesLeft(info.getCapstones(), capstones);
+        }
+        state.setStatus(status);
+        state.updateHash(state.getHash() ^ hash);
+    }
+
+    private static void setPiecesLeft(PiecePile pile, int left) throws BoardGameEngineException {
+        int change = left - pile.getPiecesLeft();
+        if(change > 0) {
+            pile.addPieces(change);
+        }
+        else if(change < 0) {
+            pile.removePieces(-change);
+        }
+    }
+
+    //Bits 0-31 are the packed move, flagged if it flattened a wall.
+    //Above it is the status from before the move: bits 32-34 the reason,
+    //bits 35-36 the winner and bits 37-52 the score.
+    static long pack(int move, TakStatus status) {
+        if(status == null) {
+            status = IN_PROGRESS;
+        }
+
+        int winner;
+        if(status.getWinner() == null) {
+            winner = 3;
+        }
+        else if(status.getWinner() == PlayerIndicator.BLACK) {
+            winner = 2;
+        }
+        else if(status.getWinner() == PlayerIndicator.WHITE) {
+            winner = 1;
+        }
+        else {
+            winner = 0;
+        }
+
+        return (move & 0xFFFFFFFFL) |
+               ((long) status.getReason().ordinal() << 32) |
+               ((long) winner << 35) |
+               ((long) (status.getScore() & 0xFFFF) << 37);
+    }
+
+    static int getMove(long undo) {
+        return (int) undo;
+    }
+
+    static TakStatus getStatus(long undo) {
+        WinReason reason = REASONS[(int) (undo >>> 32) & 0x7];
+        if(reason == WinReason.NONE) {
+            return IN_PROGRESS;
+        }
+
+        PlayerIndicator winner;
+        switch((int) (undo >>> 35) & 0x3) {
+            case 1:
+                winner = PlayerIndicator.WHITE;
+                break;
+            case 2:
+                winner = PlayerIndicator.BLACK;
+                break;
+            case 3:
+                winner = null;
+                break;
+            default:
+                winner = PlayerIndicator.NONE;
+                break;
+        }
+
+        return new TakStatus(Status.COMPLETE, winner, reason, (int) (undo >>> 37) & 0xFFFF);
+    }
+}
@@ -0,0 +1,26 @@
+package io.joshatron.tak.engine.perft;
+
+import io.joshatron.bgt.engine.action.Action;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class PerftResult {
+    private int depth;
+    private long nodes;
+    //The nodes under each root action, in the order the actions were generated
+    private Map<Action, Long> divide;
+    private long time;
+
+    public PerftResult(int depth, long nodes, Map<Action, Long> divide, long time) {
+        this.depth = depth;
+        this.nodes = nodes;
+        this.divide = divide;
+        this.time = time;
+    }
+
+    public long getNodesPerSecond() {
+        return nodes * 1000 / Math.max(time, 1);
+    }
+}
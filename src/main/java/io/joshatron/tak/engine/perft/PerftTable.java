@@ -0,0 +1,52 @@
+package io.joshatron.tak.engine.perft;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+//The known perft counts from the start of a game for each board size, white moving first.
+//They are read from perft.txt next to this class, one "size depth nodes" per line.
+public final class PerftTable {
+    private static final Map<Integer, Map<Integer, Long>> NODES = load();
+
+    private PerftTable() {
+    }
+
+    //Returns null when there is no count for that size and depth
+    public static Long getNodes(int size, int depth) {
+        Map<Integer, Long> depths = NODES.get(size);
+        return depths == null ? null : depths.get(depth);
+    }
+
+    public static int getMaxDepth(int size) {
+        Map<Integer, Long> depths = NODES.get(size);
+        return depths == null ? 0 : depths.keySet().stream().max(Integer::compare).orElse(0);
+    }
+
+    private static Map<Integer, Map<Integer, Long>> load() {
+        Map<Integer, Map<Integer, Long>> nodes = new HashMap<>();
+        try(InputStream stream = PerftTable.class.getResourceAsStream("perft.txt");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] parts = line.split("\\s+");
+                nodes.computeIfAbsent(Integer.parseInt(parts[0]), size -> new HashMap<>())
+                     .put(Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return nodes;
+    }
+}
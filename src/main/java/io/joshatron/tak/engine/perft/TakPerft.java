@@ -0,0 +1,212 @@
+package io.joshatron.tak.engine.perft;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.game.TakUndo;
+import io.joshatron.tak.engine.game.WinReason;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//Counts the positions reached by every sequence of legal turns to a depth, to check move generation
+//against known counts and to time it. A finished game isn't played on, so it only counts at the full depth.
+//The TakState count applies and takes back every turn, leaves included, so it times the full
+//getPossibleActions, submitAction and unmakeAction path. The TakBitState count goes through packed
+//moves and only counts the moves at the last ply, so it is the one to use for deep counts.
+public class TakPerft {
+    private final TakEngine engine;
+
+    public TakPerft() {
+        engine = new TakEngine();
+    }
+
+    public long perft(TakState state, int depth) throws BoardGameEngineException {
+        if(depth == 0) {
+            return 1;
+        }
+        if(state.getStatus().isComplete()) {
+            return 0;
+        }
+
+        long nodes = 0;
+        for(Action action : engine.getPossibleActions(state)) {
+            TakUndo undo = engine.makeAction(state, action);
+            nodes += perft(state, depth - 1);
+            engine.unmakeAction(state, undo);
+        }
+
+        return nodes;
+    }
+
+    public long perft(TakBitState state, int depth) {
+        return perft(state, depth, new int[Math.max(depth, 1)][TakMoveGenerator.getMaxMoves(state.getSize())]);
+    }
+
+    private long perft(TakBitState state, int depth, int[][] buffers) {
+        if(depth == 0) {
+            return 1;
+        }
+        if(isOver(state)) {
+            return 0;
+        }
+
+        int[] moves = buffers[depth - 1];
+        int count = engine.getPossibleMoves(state, moves);
+        if(depth == 1) {
+            return count;
+        }
+
+        long nodes = 0;
+        for(int i = 0; i < count; i++) {
+            long undo = engine.makeMove(state, moves[i]);
+            nodes += perft(state, depth - 1, buffers);
+            engine.unmakeMove(state, undo);
+        }
+
+        return nodes;
+    }
+
+    //The counts under each root action on the calling thread
+    public PerftResult divide(TakState state, int depth) throws BoardGameEngineException {
+        return divide(state, depth, 1);
+    }
+
+    public PerftResult divide(TakBitState state, int depth) throws BoardGameEngineException {
+        return divide(state, depth, 1);
+    }
+
+    //The root actions are shared out between the threads, each counting on its own copy of the state
+    public PerftResult divide(TakState state, int depth, int threads) throws BoardGameEngineException {
+        long start = System.currentTimeMillis();
+        List<Action> actions = depth > 0 && !state.getStatus().isComplete() ? engine.getPossibleActions(state) : new ArrayList<>();
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for(Action action : actions) {
+            tasks.add(() -> {
+                TakState copy = new TakBitState(state).toState();
+                engine.submitAction(copy, action);
+                return perft(copy, depth - 1);
+            });
+        }
+
+        return getResult(depth, actions, run(tasks, threads), start);
+    }
+
+    public PerftResult divide(TakBitState state, int depth, int threads) throws BoardGameEngineException {
+        long start = System.currentTimeMillis();
+        List<Action> actions = new ArrayList<>();
+        List<Callable<Long>> tasks = new ArrayList<>();
+        if(depth > 0 && !isOver(state)) {
+            int[] moves = new int[TakMoveGenerator.getMaxMoves(state.getSize())];
+            int count = engine.getPossibleMoves(state, moves);
+            for(int i = 0; i < count; i++) {
+                int move = moves[i];
+                actions.add(TakPackedMove.toAction(move, state.getCurrentPlayer(), state.getSize()));
+                tasks.add(() -> {
+                    TakBitState copy = new TakBitState(state);
+                    engine.makeMove(copy, move);
+                    return perft(copy, depth - 1);
+                });
+            }
+        }
+
+        return getResult(depth, actions, run(tasks, threads), start);
+    }
+
+    private static PerftResult getResult(int depth, List<Action> actions, List<Long> counts, long start) {
+        Map<Action, Long> divide = new LinkedHashMap<>();
+        long nodes = depth == 0 ? 1 : 0;
+        for(int i = 0; i < actions.size(); i++) {
+            divide.put(actions.get(i), counts.get(i));
+            nodes += counts.get(i);
+        }
+
+        return new PerftResult(depth, nodes, divide, System.currentTimeMillis() - start);
+    }
+
+    private static List<Long> run(List<Callable<Long>> tasks, int threads) throws BoardGameEngineException {
+        List<Long> counts = new ArrayList<>();
+        if(threads <= 1) {
+            for(Callable<Long> task : tasks) {
+                counts.add(call(task));
+            }
+            return counts;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tak-perft");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Long>> running = new ArrayList<>();
+            for(Callable<Long> task : tasks) {
+                running.add(executor.submit(task));
+            }
+            for(Future<Long> count : running) {
+                counts.add(getCount(count));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return counts;
+    }
+
+    private static long call(Callable<Long> task) throws BoardGameEngineException {
+        try {
+            return task.call();
+        } catch(BoardGameEngineException | RuntimeException e) {
+            throw e;
+        } catch(Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long getCount(Future<Long> count) throws BoardGameEngineException {
+        try {
+            return count.get();
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof BoardGameEngineException) {
+                throw (BoardGameEngineException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isOver(TakBitState state) {
+        return state.getStatus() != null && state.getStatus().getReason() != WinReason.NONE;
+    }
+
+    //Prints the divide from the start of a game: size depth [threads]
+    public static void main(String[] args) throws BoardGameEngineException {
+        int size = Integer.parseInt(args[0]);
+        int depth = Integer.parseInt(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        PerftResult result = new TakPerft().divide(new TakBitState(PlayerIndicator.WHITE, size), depth, threads);
+        for(Map.Entry<Action, Long> entry : result.getDivide().entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+        }
+        System.out.println("nodes " + result.getNodes() + " in " + result.getTime() + "ms, " + result.getNodesPerSecond() + " nodes/s");
+        Long expected = PerftTable.getNodes(size, depth);
+        if(expected != null) {
+            System.out.println(expected == result.getNodes() ? "matches reference" : "reference is " + expected);
+        }
+    }
+}
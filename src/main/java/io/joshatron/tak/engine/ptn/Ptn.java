@@ -0,0 +1,210 @@
+package io.joshatron.tak.engine.ptn;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakStatus;
+import io.joshatron.tak.engine.game.WinReason;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+
+//Portable Tak Notation for single moves, read straight into packed moves and written from them.
+//Squares are a file letter from a and a rank number from 1, rank 1 being the row with the highest y.
+//A place is an optional F, S or C for the piece then the square, like "a1" or "Cc3".
+//A move is the number picked up if more than 1, the square, the direction and the drops if more than one,
+//like "c3+" or "3c3>12". + is north, - south, > east and < west.
+//Marks after a move (' " ! ? and * for a flatten) are allowed and ignored when reading.
+public final class Ptn {
+    //The directions in the order they are packed
+    private static final char[] DIRECTIONS = {'+', '-', '>', '<'};
+
+    private Ptn() {
+    }
+
+    public static int parseMove(String move, int size) throws BoardGameEngineException {
+        int end = move.length();
+        while(end > 0 && isMark(move.charAt(end - 1))) {
+            end--;
+        }
+
+        int i = 0;
+        int pickedUp = -1;
+        PieceType type = PieceType.STONE;
+        //A piece letter, even F for a flat, only goes in front of a placement
+        boolean piece = false;
+        if(i < end && Character.isDigit(move.charAt(i))) {
+            pickedUp = move.charAt(i++) - '0';
+        }
+        else if(i < end && getPieceType(move.charAt(i)) != null) {
+            type = getPieceType(move.charAt(i++));
+            piece = true;
+        }
+        if(i + 2 > end) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_TURN_STRING);
+        }
+        int square = parseSquare(move.charAt(i), move.charAt(i + 1), size);
+        i += 2;
+
+        if(i == end) {
+            if(pickedUp >= 0) {
+                throw new BoardGameEngineException(TakEngineErrorCode.INVALID_TURN_STRING);
+            }
+            return TakPackedMove.place(square, type);
+        }
+
+        int direction = getDirectionIndex(move.charAt(i++));
+        if(direction < 0 || piece || pickedUp == 0) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_TURN_STRING);
+        }
+        if(pickedUp < 0) {
+            pickedUp = 1;
+        }
+        if(pickedUp > size) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_PICKUP_AMOUNT);
+        }
+
+        int dropMask;
+        if(i == end) {
+            dropMask = 1 << (pickedUp - 1);
+        }
+        else {
+            dropMask = 0;
+            int carried = 0;
+            for(; i < end; i++) {
+                char drop = move.charAt(i);
+                if(drop < '1' || drop > '9') {
+                    throw new BoardGameEngineException(TakEngineErrorCode.INVALID_TURN_STRING);
+                }
+                carried += drop - '0';
+                if(carried > pickedUp) {
+                    throw new BoardGameEngineException(TakEngineErrorCode.PICK_UP_AND_PLACED_DO_NOT_MATCH);
+                }
+                dropMask |= 1 << (carried - 1);
+            }
+            if(carried != pickedUp) {
+                throw new BoardGameEngineException(TakEngineErrorCode.PICK_UP_AND_PLACED_DO_NOT_MATCH);
+            }
+        }
+
+        return TakPackedMove.move(square, direction, pickedUp, dropMask);
+    }
+
+    public static String formatMove(int move, int size) {
+        StringBuilder str = new StringBuilder(12);
+        appendMove(str, move, size);
+        return str.toString();
+    }
+
+    public static void appendMove(StringBuilder str, int move, int size) {
+        int square = TakPackedMove.getSquare(move);
+        if(!TakPackedMove.isMove(move)) {
+            PieceType type = TakPackedMove.getPieceType(move);
+            if(type == PieceType.WALL) {
+                str.append('S');
+            }
+            else if(type == PieceType.CAPSTONE) {
+                str.append('C');
+            }
+            appendSquare(str, square, size);
+            return;
+        }
+
+        int pickedUp = TakPackedMove.getPickedUp(move);
+        if(pickedUp > 1) {
+            str.append(pickedUp);
+        }
+        appendSquare(str, square, size);
+        str.append(DIRECTIONS[TakPackedMove.getDirectionIndex(move)]);
+        int[] drops = TakPackedMove.getDrops(TakPackedMove.getDropMask(move));
+        if(drops.length > 1) {
+            for(int drop : drops) {
+                str.append(drop);
+            }
+        }
+        if(TakPackedMove.isFlattened(move)) {
+            str.append('*');
+        }
+    }
+
+    public static int parseSquare(char file, char rank, int size) throws BoardGameEngineException {
+        int x = Character.toLowerCase(file) - 'a';
+        int y = size - (rank - '0');
+        if(x < 0 || x >= size || y < 0 || y >= size) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_LOCATION);
+        }
+
+        return BitBoards.getSquare(size, x, y);
+    }
+
+    public static void appendSquare(StringBuilder str, int square, int size) {
+        str.append((char) ('a' + BitBoards.getX(size, square)));
+        str.append(size - BitBoards.getY(size, square));
+    }
+
+    //The result as written at the end of a game, or null while it is still going
+    public static String getResult(TakStatus status) {
+        if(status == null || !status.isFinished()) {
+            return null;
+        }
+        if(status.getWinner() == null || status.getWinner() == PlayerIndicator.NONE) {
+            return "1/2-1/2";
+        }
+
+        String win;
+        if(status.getReason() == WinReason.PATH) {
+            win = "R";
+        }
+        else if(status.getReason() == WinReason.SURRENDER) {
+            win = "1";
+        }
+        else {
+            win = "F";
+        }
+
+        return status.getWinner() == PlayerIndicator.WHITE ? win + "-0" : "0-" + win;
+    }
+
+    public static boolean isResult(String token) {
+        switch(token) {
+            case "R-0":
+            case "0-R":
+            case "F-0":
+            case "0-F":
+            case "1-0":
+            case "0-1":
+            case "1/2-1/2":
+            case "0-0":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isMark(char c) {
+        return c == '\'' || c == '"' || c == '!' || c == '?' || c == '*';
+    }
+
+    private static PieceType getPieceType(char c) {
+        switch(c) {
+            case 'F':
+                return PieceType.STONE;
+            case 'S':
+                return PieceType.WALL;
+            case 'C':
+                return PieceType.CAPSTONE;
+            default:
+                return null;
+        }
+    }
+
+    private static int getDirectionIndex(char c) {
+        for(int i = 0; i < DIRECTIONS.length; i++) {
+            if(DIRECTIONS[i] == c) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
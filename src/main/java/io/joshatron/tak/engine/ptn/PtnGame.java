@@ -0,0 +1,61 @@
+package io.joshatron.tak.engine.ptn;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//One game from a PTN file. The tags are kept in the order they were read, and the moves are packed.
+//The state is the position after the last move when the game was replayed, and null when it wasn't.
+@Data
+public class PtnGame {
+    private Map<String,String> tags;
+    private int size;
+    private int[] moves;
+    private String result;
+    private TakBitState state;
+
+    public PtnGame(int size, int[] moves, String result) {
+        this(new LinkedHashMap<>(), size, moves, result, null);
+    }
+
+    public PtnGame(Map<String,String> tags, int size, int[] moves, String result, TakBitState state) {
+        this.tags = tags;
+        this.size = size;
+        this.moves = moves;
+        this.result = result;
+        this.state = state;
+    }
+
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public int getPlies() {
+        return moves.length;
+    }
+
+    //The ply the first move was made on, which is only past 0 for games set up with a TPS tag
+    public int getStartingPly() {
+        return state == null ? 0 : state.getPly() - moves.length;
+    }
+
+    //The moves as actions, for replaying the game on a TakState
+    public List<Action> getActions() throws BoardGameEngineException {
+        List<Action> actions = new ArrayList<>(moves.length);
+        PlayerIndicator player = getStartingPly() % 2 == 0 ? PlayerIndicator.WHITE : PlayerIndicator.BLACK;
+        for(int move : moves) {
+            actions.add(TakPackedMove.toAction(move, player, size));
+            player = player == PlayerIndicator.WHITE ? PlayerIndicator.BLACK : PlayerIndicator.WHITE;
+        }
+
+        return actions;
+    }
+}
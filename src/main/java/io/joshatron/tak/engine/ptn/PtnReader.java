@@ -0,0 +1,270 @@
+package io.joshatron.tak.engine.ptn;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Reads PTN games one at a time from a stream, so files with any number of games can be read without holding
+//more than the current game. Each game is replayed on a TakBitState as it is read. With validation every move
+//is checked by the engine, and without it the moves are made as they are, which is a lot faster for files
+//that are known to be good but gives nonsense for a file with an illegal move in it.
+//A game is its tags followed by its moves, and ends at its result, the next game's tags or the end of the stream.
+//A game without moves ends when an Event tag comes after a blank line, so its tags aren't taken for the next game's.
+//Comments in braces and move numbers are skipped, as is the -- standing in for white's move when a game set up
+//with a TPS tag starts on black's turn.
+public class PtnReader implements Closeable {
+    private final Reader in;
+    private final boolean validate;
+    private final TakEngine engine;
+    private final char[] buffer;
+    private final StringBuilder token;
+    private int position;
+    private int limit;
+    //Whether the whitespace skipped last had a blank line in it
+    private boolean blankLine;
+    //The tag that started the next game, already read while finishing the last one
+    private Map<String,String> pending;
+
+    public PtnReader(Reader in) {
+        this(in, true);
+    }
+
+    public PtnReader(Reader in, boolean validate) {
+        this.in = in;
+        this.validate = validate;
+        this.engine = new TakEngine();
+        this.buffer = new char[8192];
+        this.token = new StringBuilder();
+    }
+
+    //Returns the next game, or null at the end of the stream.
+    //A bad game is read to its end before its error is thrown, so reading can carry on with the game after it.
+    public PtnGame read() throws IOException, BoardGameEngineException {
+        Map<String,String> tags = new LinkedHashMap<>();
+        List<String> moves = new ArrayList<>();
+        String result = null;
+        boolean found = false;
+        boolean badTag = false;
+        if(pending != null) {
+            tags.putAll(pending);
+            pending = null;
+            found = true;
+        }
+
+        while(true) {
+            int next = skipSpace();
+            if(next < 0) {
+                break;
+            }
+            if(next == '[') {
+                if(!moves.isEmpty()) {
+                    break;
+                }
+                boolean blank = blankLine;
+                Map<String,String> tag = new LinkedHashMap<>();
+                boolean goodTag = readTag(tag);
+                if(goodTag && blank && !tags.isEmpty() && tag.containsKey("Event")) {
+                    pending = tag;
+                    break;
+                }
+                tags.putAll(tag);
+                badTag |= !goodTag;
+                found = true;
+                continue;
+            }
+
+            found = true;
+            String read = readToken();
+            if(Ptn.isResult(read)) {
+                result = read;
+                break;
+            }
+            read = stripMoveNumber(read);
+            if(!read.isEmpty() && !read.equals("--")) {
+                moves.add(read);
+            }
+        }
+
+        if(!found) {
+            return null;
+        }
+        if(badTag) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_GAME_RECORD);
+        }
+
+        return replay(tags, moves, result);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private PtnGame replay(Map<String,String> tags, List<String> moves, String result) throws BoardGameEngineException {
+        TakBitState state = null;
+        if(tags.containsKey("TPS")) {
+            state = Tps.readBitState(tags.get("TPS"));
+        }
+
+        int size;
+        try {
+            size = tags.containsKey("Size") ? Integer.parseInt(tags.get("Size").trim()) : -1;
+        } catch(NumberFormatException e) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_GAME_RECORD);
+        }
+        if(state == null) {
+            if(size < 0) {
+                throw new BoardGameEngineException(TakEngineErrorCode.INVALID_GAME_RECORD);
+            }
+            state = new TakBitState(PlayerIndicator.WHITE, size);
+        }
+        else if(size >= 0 && size != state.getSize()) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_GAME_RECORD);
+        }
+        size = state.getSize();
+
+        int[] packed = new int[moves.size()];
+        for(int i = 0; i < packed.length; i++) {
+            packed[i] = Ptn.parseMove(moves.get(i), size);
+            if(validate) {
+                engine.submitAction(state, packed[i]);
+            }
+            else {
+                engine.makeMove(state, packed[i]);
+            }
+        }
+
+        return new PtnGame(tags, size, packed, result, state);
+    }
+
+    //Reads a tag like [Size "5"], returning false when it is malformed
+    private boolean readTag(Map<String,String> tags) throws IOException {
+        position++;
+        StringBuilder name = new StringBuilder();
+        int c = next();
+        while(c >= 0 && c != ']' && c != '"' && !Character.isWhitespace(c)) {
+            name.append((char) c);
+            c = next();
+        }
+        while(c >= 0 && Character.isWhitespace(c)) {
+            c = next();
+        }
+        if(c != '"' || name.length() == 0) {
+            skipTo(c, ']');
+            return false;
+        }
+
+        StringBuilder value = new StringBuilder();
+        c = next();
+        while(c >= 0 && c != '"') {
+            if(c == '\\') {
+                c = next();
+                if(c < 0) {
+                    break;
+                }
+            }
+            value.append((char) c);
+            c = next();
+        }
+        tags.put(name.toString(), value.toString());
+
+        c = next();
+        while(c >= 0 && Character.isWhitespace(c)) {
+            c = next();
+        }
+        if(c != ']') {
+            skipTo(c, ']');
+            return false;
+        }
+
+        return true;
+    }
+
+    private void skipTo(int c, char end) throws IOException {
+        while(c >= 0 && c != end) {
+            c = next();
+        }
+    }
+
+    private String readToken() throws IOException {
+        token.setLength(0);
+        int c = peek();
+        while(c >= 0 && c != '{' && c != '[' && !Character.isWhitespace(c)) {
+            token.append((char) c);
+            position++;
+            c = peek();
+        }
+
+        return token.toString();
+    }
+
+    //Skips whitespace and comments, returning the next character without reading it, or -1 at the end
+    private int skipSpace() throws IOException {
+        blankLine = false;
+        int lines = 0;
+        int c = peek();
+        while(c >= 0) {
+            if(c == '{') {
+                skipTo(next(), '}');
+                lines = 0;
+            }
+            else if(!Character.isWhitespace(c)) {
+                return c;
+            }
+            else {
+                if(c == '\n' && ++lines == 2) {
+                    blankLine = true;
+                }
+                position++;
+            }
+            c = peek();
+        }
+
+        return -1;
+    }
+
+    //Move numbers are usually their own token but can be written against the move, like 1.a1
+    private static String stripMoveNumber(String token) {
+        int i = 0;
+        while(i < token.length() && Character.isDigit(token.charAt(i))) {
+            i++;
+        }
+        if(i > 0 && i < token.length() && token.charAt(i) == '.') {
+            return token.substring(i + 1);
+        }
+
+        return token;
+    }
+
+    private int peek() throws IOException {
+        if(position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if(limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+
+        return buffer[position];
+    }
+
+    private int next() throws IOException {
+        int c = peek();
+        if(c >= 0) {
+            position++;
+        }
+
+        return c;
+    }
+}
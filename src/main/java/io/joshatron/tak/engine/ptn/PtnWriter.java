@@ -0,0 +1,96 @@
+package io.joshatron.tak.engine.ptn;
+
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.simulation.GameRecord;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Writes games as PTN one after another, each as its tags, a blank line, a line for each turn and its result.
+//A game is written in one go, so wrap the writer in a BufferedWriter when writing a lot of them.
+public class PtnWriter implements Closeable, Flushable {
+    private final Writer out;
+    private final StringBuilder game;
+
+    public PtnWriter(Writer out) {
+        this.out = out;
+        this.game = new StringBuilder(1024);
+    }
+
+    public void write(PtnGame ptn) throws IOException {
+        write(ptn.getTags(), ptn.getSize(), ptn.getStartingPly(), ptn.getMoves(), ptn.getResult());
+    }
+
+    //Simulated games are always started by white
+    public void write(GameRecord record) throws IOException {
+        if(record.getFirst() != PlayerIndicator.WHITE) {
+            throw new IllegalArgumentException("PTN games are started by white");
+        }
+
+        write(new LinkedHashMap<>(), record.getSize(), 0, record.getMoves(), Ptn.getResult(record.getStatus()));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    //Games set up with a TPS tag are numbered on from its turn, with -- for white's move when black goes first
+    private void write(Map<String,String> tags, int size, int start, int[] moves, String result) throws IOException {
+        game.setLength(0);
+        if(!tags.containsKey("Size")) {
+            appendTag("Size", Integer.toString(size));
+        }
+        for(Map.Entry<String,String> tag : tags.entrySet()) {
+            appendTag(tag.getKey(), tag.getValue());
+        }
+        if(result != null && !tags.containsKey("Result")) {
+            appendTag("Result", result);
+        }
+        game.append('\n');
+
+        for(int i = 0; i < moves.length; i++) {
+            int ply = start + i;
+            if(ply % 2 == 0 || i == 0) {
+                if(i > 0) {
+                    game.append('\n');
+                }
+                game.append(ply / 2 + 1).append(". ");
+                if(ply % 2 == 1) {
+                    game.append("--");
+                }
+            }
+            if(ply % 2 == 1) {
+                game.append(' ');
+            }
+            Ptn.appendMove(game, moves[i], size);
+        }
+        if(result != null) {
+            game.append(moves.length > 0 ? " " : "").append(result);
+        }
+        game.append("\n\n");
+
+        out.write(game.toString());
+    }
+
+    private void appendTag(String name, String value) {
+        game.append('[').append(name).append(" \"");
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c == '"' || c == '\\') {
+                game.append('\\');
+            }
+            game.append(c);
+        }
+        game.append("\"]\n");
+    }
+}
@@ -0,0 +1,185 @@
+package io.joshatron.tak.engine.ptn;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngineMainTurns;
+import io.joshatron.tak.engine.game.TakPosition;
+import io.joshatron.tak.engine.game.TakState;
+
+//Tak Positional System, a position on one line like "x3,12,2S/x,22S,x2/1,21,x3/x5/x5 2 4".
+//The rows go from the top rank down to rank 1, separated by slashes, and the squares of a row from file a,
+//separated by commas. A square is x for empty, x and a number for that many empty squares, or the owners
+//of its pieces from the bottom up, 1 for white and 2 for black, with S or C on the end when the top is a wall
+//or capstone. Then come the player to move and the turn number, turn 1 being the first two plies.
+//Reserves aren't written, they are whatever pieces aren't on the board.
+//Positions are read straight into a TakBitState a character at a time without building anything else along the way.
+public final class Tps {
+    private Tps() {
+    }
+
+    public static TakBitState readBitState(CharSequence tps) throws BoardGameEngineException {
+        int size = 1;
+        int end = 0;
+        while(end < tps.length() && tps.charAt(end) != ' ') {
+            if(tps.charAt(end) == '/') {
+                size++;
+            }
+            end++;
+        }
+        if(size < 3 || size > BitBoards.MAX_SIZE) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_POSITION_STRING);
+        }
+
+        TakBitState state = new TakBitState(PlayerIndicator.WHITE, size);
+        int i = 0;
+        for(int y = 0; y < size; y++) {
+            if(y > 0) {
+                i = expect(tps, i, '/');
+            }
+            int x = 0;
+            while(true) {
+                if(i < end && tps.charAt(i) == 'x') {
+                    int empty = 0;
+                    i++;
+                    while(i < end && Character.isDigit(tps.charAt(i))) {
+                        empty = empty * 10 + tps.charAt(i++) - '0';
+                    }
+                    x += Math.max(empty, 1);
+                }
+                else {
+                    int first = i;
+                    while(i < end && (tps.charAt(i) == '1' || tps.charAt(i) == '2')) {
+                        i++;
+                    }
+                    int height = i - first;
+                    if(height == 0 || x >= size) {
+                        throw new BoardGameEngineException(TakEngineErrorCode.INVALID_POSITION_STRING);
+                    }
+                    PieceType top = PieceType.STONE;
+                    if(i < end && tps.charAt(i) == 'S') {
+                        top = PieceType.WALL;
+                        i++;
+                    }
+                    else if(i < end && tps.charAt(i) == 'C') {
+                        top = PieceType.CAPSTONE;
+                        i++;
+                    }
+                    int square = BitBoards.getSquare(size, x, y);
+                    for(int piece = 0; piece < height; piece++) {
+                        state.addPiece(square, tps.charAt(first + piece) - '1', piece == height - 1 ? top : PieceType.STONE);
+                    }
+                    x++;
+                }
+
+                if(x > size) {
+                    throw new BoardGameEngineException(TakEngineErrorCode.INVALID_POSITION_STRING);
+                }
+                if(i == end || tps.charAt(i) != ',') {
+                    break;
+                }
+                i++;
+            }
+            if(x != size) {
+                throw new BoardGameEngineException(TakEngineErrorCode.INVALID_POSITION_STRING);
+            }
+        }
+
+        i = expect(tps, i, ' ');
+        if(i == tps.length() || (tps.charAt(i) != '1' && tps.charAt(i) != '2')) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_POSITION_STRING);
+        }
+        int current = tps.charAt(i++) - '1';
+        i = expect(tps, i, ' ');
+        int turn = 0;
+        while(i < tps.length() && Character.isDigit(tps.charAt(i)) && turn < 10000) {
+            turn = turn * 10 + tps.charAt(i++) - '0';
+        }
+        while(i < tps.length() && Character.isWhitespace(tps.charAt(i))) {
+            i++;
+        }
+        if(turn < 1 || i != tps.length()) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_POSITION_STRING);
+        }
+
+        state.setTurn(current, (turn - 1) * 2 + current);
+        state.setStatus(TakEngineMainTurns.getStatus(state, current ^ 1));
+        return state;
+    }
+
+    //The game log of the state starts at the position, and the engine carries on from its ply
+    public static TakState readState(CharSequence tps) throws BoardGameEngineException {
+        return readBitState(tps).toState();
+    }
+
+    public static String write(TakPosition state) {
+        StringBuilder str = new StringBuilder(state.getSize() * state.getSize() * 2 + 8);
+        append(str, state);
+        return str.toString();
+    }
+
+    public static String write(TakState state) throws BoardGameEngineException {
+        return write(new TakBitState(state));
+    }
+
+    public static void append(StringBuilder str, TakPosition state) {
+        int size = state.getSize();
+        for(int y = 0; y < size; y++) {
+            if(y > 0) {
+                str.append('/');
+            }
+            int empty = 0;
+            for(int x = 0; x < size; x++) {
+                int square = BitBoards.getSquare(size, x, y);
+                int height = state.getHeight(square);
+                if(height == 0) {
+                    empty++;
+                    continue;
+                }
+
+                appendEmpty(str, empty, x - empty);
+                empty = 0;
+                if(x > 0) {
+                    str.append(',');
+                }
+                for(int i = 0; i < height; i++) {
+                    str.append((char) ('1' + state.getOwner(square, i)));
+                }
+                if(state.getTopType(square) == PieceType.WALL) {
+                    str.append('S');
+                }
+                else if(state.getTopType(square) == PieceType.CAPSTONE) {
+                    str.append('C');
+                }
+            }
+            appendEmpty(str, empty, size - empty);
+        }
+
+        str.append(' ').append(state.getCurrent() + 1);
+        str.append(' ').append(state.getPly() / 2 + 1);
+    }
+
+    private static void appendEmpty(StringBuilder str, int empty, int x) {
+        if(empty == 0) {
+            return;
+        }
+        if(x > 0) {
+            str.append(',');
+        }
+        str.append('x');
+        if(empty > 1) {
+            str.append(empty);
+        }
+    }
+
+    private static int expect(CharSequence tps, int i, char c) throws BoardGameEngineException {
+        if(i == tps.length() || tps.charAt(i) != c) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_POSITION_STRING);
+        }
+
+        return i + 1;
+    }
+}
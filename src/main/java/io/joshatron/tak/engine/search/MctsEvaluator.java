@@ -0,0 +1,12 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+
+import java.util.Random;
+
+//Scores a new leaf of an MCTS tree. Every search thread calls the same evaluator, so it has to be thread safe.
+public interface MctsEvaluator {
+    //From 0 for a sure loss to 1 for a sure win for the player to move. The state has to be left as it was.
+    double evaluate(TakEngine engine, TakBitState state, Random rand);
+}
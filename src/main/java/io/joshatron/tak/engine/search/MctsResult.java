@@ -0,0 +1,32 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.bgt.engine.action.Action;
+import lombok.Data;
+
+@Data
+public class MctsResult {
+    //The most visited move from the root
+    private Action action;
+    private int move;
+    private int visits;
+    //The average score of the move for the player making it, from 0 to 1
+    private double value;
+    private long playouts;
+    //Nodes in the tree when the search finished, including those kept from earlier searches
+    private int nodes;
+    private long time;
+
+    public MctsResult(Action action, int move, int visits, double value, long playouts, int nodes, long time) {
+        this.action = action;
+        this.move = move;
+        this.visits = visits;
+        this.value = value;
+        this.playouts = playouts;
+        this.nodes = nodes;
+        this.time = time;
+    }
+
+    public long getPlayoutsPerSecond() {
+        return playouts * 1000 / Math.max(time, 1);
+    }
+}
@@ -0,0 +1,316 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.tak.engine.book.BookMove;
+import io.joshatron.tak.engine.book.OpeningBook;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Monte Carlo tree search with UCT selection. Leaves are expanded with the engine's own move generation
+//and scored by an MctsEvaluator, random playouts by default.
+//Every thread descends the same tree on its own copy of the root with make/unmake, using virtual loss to
+//spread out. The calling thread searches too, and the helpers stop as soon as it finishes.
+//The tree is kept between searches: when the next position is a move or two on from the last root,
+//the subtree under it is copied into a second set of arrays and the rest of the old tree is recycled.
+//With an opening book, positions in it are answered with a book move picked by how often it was played,
+//leaving the tree alone. Like TakSearch, one MctsSearch can only run one search at a time.
+public class MctsSearch {
+    public static final double DEFAULT_EXPLORATION = Math.sqrt(2);
+
+    private static final int CHECK_PLAYOUTS = 64;
+
+    private final MctsEvaluator evaluator;
+    private final double exploration;
+    private final long seed;
+    private final ExecutorService helpers;
+    private final int threads;
+    private MctsTree tree;
+    private MctsTree spare;
+    private TakBitState root;
+    private volatile boolean stopRequested;
+    private long searches;
+    private OpeningBook book;
+
+    //The tree holds up to the given number of nodes, about 24 bytes each across the two sets of arrays
+    public MctsSearch(int threads, int nodes) {
+        this(threads, nodes, new PlayoutEvaluator(200), DEFAULT_EXPLORATION, System.nanoTime());
+    }
+
+    public MctsSearch(int threads, int nodes, MctsEvaluator evaluator, double exploration, long seed) {
+        this.evaluator = evaluator;
+        this.exploration = exploration;
+        this.seed = seed;
+        this.threads = Math.max(threads, 1);
+        this.tree = new MctsTree(Math.max(nodes, 1));
+        this.spare = new MctsTree(Math.max(nodes, 1));
+        //With one thread everything runs on the caller, so there is no pool at all
+        if(this.threads == 1) {
+            this.helpers = null;
+        }
+        else {
+            this.helpers = Executors.newFixedThreadPool(this.threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "tak-mcts-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getNodes() {
+        return tree.getUsed();
+    }
+
+    public OpeningBook getBook() {
+        return book;
+    }
+
+    //Null to always search
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public MctsResult search(TakState state, long playouts, long millis) throws BoardGameEngineException {
+        return search(new TakBitState(state), playouts, millis);
+    }
+
+    //Runs until the playouts are done or the time in milliseconds runs out, 0 meaning no limit for either.
+    //The state is left as it was.
+    public MctsResult search(TakBitState state, long playouts, long millis) throws BoardGameEngineException {
+        if(TakSearch.isOver(state)) {
+            throw new BoardGameEngineException(TakEngineErrorCode.GAME_FINISHED);
+        }
+
+        long start = System.currentTimeMillis();
+        searches++;
+        if(book != null) {
+            int move = book.getMove(state, new Random(seed + searches * threads));
+            BookMove entry = move < 0 ? null : book.getEntry(state, move);
+            if(entry != null) {
+                // The games the move was played in stand in for visits
+                return new MctsResult(TakPackedMove.toAction(move, state.getCurrentPlayer(), state.getSize()), move,
+                        entry.getGames(), entry.getScore(), 0, tree.getUsed(), System.currentTimeMillis() - start);
+            }
+        }
+
+        long deadline = millis > 0 ? start + millis : Long.MAX_VALUE;
+        reuseTree(state);
+        stopRequested = false;
+        AtomicLong remaining = new AtomicLong(playouts > 0 ? playouts : Long.MAX_VALUE);
+
+        List<Future<Long>> running = new ArrayList<>();
+        for(int i = 1; i < threads; i++) {
+            TakBitState copy = new TakBitState(state);
+            Random rand = new Random(seed + searches * threads + i);
+            running.add(helpers.submit(() -> search(copy, rand, remaining, deadline)));
+        }
+
+        long done;
+        try {
+            done = search(new TakBitState(state), new Random(seed + searches * threads), remaining, deadline);
+        } finally {
+            stopRequested = true;
+        }
+        for(Future<Long> helper : running) {
+            done += getPlayouts(helper);
+        }
+
+        int best = getBestChild(0);
+        if(best < 0) {
+            throw new BoardGameEngineException(TakEngineErrorCode.GAME_FINISHED);
+        }
+        int move = tree.getMove(best);
+        int visits = tree.getVisits(best);
+        return new MctsResult(TakPackedMove.toAction(move, state.getCurrentPlayer(), state.getSize()), move, visits,
+                (double) tree.getScore(best) / MctsTree.SCORE_ONE / Math.max(visits, 1), done, tree.getUsed(),
+                System.currentTimeMillis() - start);
+    }
+
+    //Makes a search running on another thread finish as if it ran out of time
+    public void stop() {
+        stopRequested = true;
+    }
+
+    //Forgets the tree so the next search starts over
+    public void clear() {
+        tree.clear();
+        root = null;
+    }
+
+    //Stops the helper threads for good
+    public void shutdown() {
+        if(helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    //Returns the playouts done
+    private long search(TakBitState state, Random rand, AtomicLong remaining, long deadline) {
+        TakEngine engine = new TakEngine();
+        int[] moves = new int[TakMoveGenerator.getMaxMoves(state.getSize())];
+        int[] path = new int[TakSearch.MAX_DEPTH * 8];
+        long[] undos = new long[path.length];
+        long done = 0;
+
+        while(!stopRequested && remaining.getAndDecrement() > 0) {
+            if(done % CHECK_PLAYOUTS == 0 && System.currentTimeMillis() >= deadline) {
+                break;
+            }
+
+            // Select down to a leaf, counting a virtual loss on the way
+            int node = 0;
+            int depth = 0;
+            tree.addVirtualLoss(node);
+            double score;
+            while(true) {
+                if(TakSearch.isOver(state)) {
+                    score = PlayoutEvaluator.getScore(state.getStatus(), state.getCurrentPlayer());
+                    break;
+                }
+
+                int first = tree.getFirstChild(node);
+                if(first == MctsTree.UNEXPANDED && tree.startExpanding(node)) {
+                    int count = engine.getPossibleMoves(state, moves);
+                    tree.expand(node, moves, count);
+                }
+                if(first < 0 || depth == path.length) {
+                    score = evaluator.evaluate(engine, state, rand);
+                    break;
+                }
+
+                node = select(node, first);
+                tree.addVirtualLoss(node);
+                undos[depth] = engine.makeMove(state, tree.getMove(node));
+                path[depth++] = node;
+            }
+
+            // Each node is scored for the player who moved into it, so the score flips on the way up
+            tree.addScore(node, 1 - score);
+            for(int i = depth - 1; i >= 0; i--) {
+                engine.unmakeMove(state, undos[i]);
+                score = 1 - score;
+                tree.addScore(i > 0 ? path[i - 1] : 0, 1 - score);
+            }
+            done++;
+        }
+
+        return done;
+    }
+
+    //The child with the best upper confidence bound, trying every child once first
+    private int select(int node, int first) {
+        int count = tree.getChildCount(node);
+        double logVisits = Math.log(Math.max(tree.getVisits(node), 1));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for(int child = first; child < first + count; child++) {
+            int visits = tree.getVisits(child);
+            if(visits == 0) {
+                return child;
+            }
+
+            double value = (double) tree.getScore(child) / MctsTree.SCORE_ONE / visits +
+                           exploration * Math.sqrt(logVisits / visits);
+            if(value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+
+        return best;
+    }
+
+    private int getBestChild(int node) {
+        int first = tree.getFirstChild(node);
+        if(first < 0) {
+            return -1;
+        }
+
+        int best = first;
+        for(int child = first; child < first + tree.getChildCount(node); child++) {
+            if(tree.getVisits(child) > tree.getVisits(best)) {
+                best = child;
+            }
+        }
+
+        return best;
+    }
+
+    //Keeps the part of the tree under the new position when it is one or two moves on from the last root
+    private void reuseTree(TakBitState state) {
+        int node = root == null ? -1 : findPosition(state);
+        if(node < 0) {
+            tree.clear();
+        }
+        else if(node > 0) {
+            tree.copySubtree(node, spare);
+            MctsTree old = tree;
+            tree = spare;
+            spare = old;
+        }
+
+        root = new TakBitState(state);
+    }
+
+    private int findPosition(TakBitState state) {
+        if(state.equals(root)) {
+            return 0;
+        }
+        if(state.getPly() != root.getPly() + 1 && state.getPly() != root.getPly() + 2) {
+            return -1;
+        }
+
+        TakEngine engine = new TakEngine();
+        TakBitState position = new TakBitState(root);
+        int first = tree.getFirstChild(0);
+        for(int child = first; first >= 0 && child < first + tree.getChildCount(0); child++) {
+            long undo = engine.makeMove(position, tree.getMove(child));
+            if(state.getPly() == position.getPly() && state.equals(position)) {
+                return child;
+            }
+
+            int grandchildren = state.getPly() == position.getPly() ? -1 : tree.getFirstChild(child);
+            for(int grandchild = grandchildren; grandchildren >= 0 && grandchild < grandchildren + tree.getChildCount(child); grandchild++) {
+                long next = engine.makeMove(position, tree.getMove(grandchild));
+                boolean found = state.equals(position);
+                engine.unmakeMove(position, next);
+                if(found) {
+                    return grandchild;
+                }
+            }
+            engine.unmakeMove(position, undo);
+        }
+
+        return -1;
+    }
+
+    private static long getPlayouts(Future<Long> helper) throws BoardGameEngineException {
+        try {
+            return helper.get();
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof BoardGameEngineException) {
+                throw (BoardGameEngineException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package io.joshatron.tak.engine.search;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//The nodes of an MCTS tree kept in fixed size arrays rather than as objects, node 0 being the root.
+//The children of a node are next to each other, so a node only needs the index of its first child.
+//Statistics are updated with atomic adds and nodes are expanded by whichever thread wins a compare and set,
+//so threads never lock. Once the arrays are full nodes stop being expanded and the search carries on
+//from the leaves it has.
+class MctsTree {
+    static final int UNEXPANDED = -1;
+    static final int EXPANDING = -2;
+    //Scores are kept in fixed point so they can be added atomically
+    static final long SCORE_ONE = 1 << 16;
+
+    private final int[] moves;
+    private final int[] childCounts;
+    private final AtomicIntegerArray children;
+    private final AtomicIntegerArray visits;
+    private final AtomicLongArray scores;
+    private final AtomicInteger used;
+
+    MctsTree(int capacity) {
+        moves = new int[capacity];
+        childCounts = new int[capacity];
+        children = new AtomicIntegerArray(capacity);
+        visits = new AtomicIntegerArray(capacity);
+        scores = new AtomicLongArray(capacity);
+        used = new AtomicInteger();
+        clear();
+    }
+
+    int getCapacity() {
+        return moves.length;
+    }
+
+    int getUsed() {
+        return used.get();
+    }
+
+    //Leaves only an unexpanded root
+    void clear() {
+        used.set(1);
+        moves[0] = -1;
+        childCounts[0] = 0;
+        children.set(0, UNEXPANDED);
+        visits.set(0, 0);
+        scores.set(0, 0);
+    }
+
+    int getMove(int node) {
+        return moves[node];
+    }
+
+    //The first child, or UNEXPANDED or EXPANDING
+    int getFirstChild(int node) {
+        return children.get(node);
+    }
+
+    int getChildCount(int node) {
+        return childCounts[node];
+    }
+
+    int getVisits(int node) {
+        return visits.get(node);
+    }
+
+    //The total score of the node for the player who moved into it
+    long getScore(int node) {
+        return scores.get(node);
+    }
+
+    //Only one thread gets to expand a node
+    boolean startExpanding(int node) {
+        return children.compareAndSet(node, UNEXPANDED, EXPANDING);
+    }
+
+    //Adds the children of a node being expanded, leaving it unexpanded when there is no room for them
+    boolean expand(int node, int[] childMoves, int count) {
+        int first = reserve(count);
+        if(first < 0) {
+            children.set(node, UNEXPANDED);
+            return false;
+        }
+
+        for(int i = 0; i < count; i++) {
+            moves[first + i] = childMoves[i];
+            childCounts[first + i] = 0;
+            children.set(first + i, UNEXPANDED);
+            visits.set(first + i, 0);
+            scores.set(first + i, 0);
+        }
+        childCounts[node] = count;
+        // Setting the first child last publishes the children to the other threads
+        children.set(node, first);
+        return true;
+    }
+
+    //Takes count nodes for new children, or returns -1 without taking any when there isn't room,
+    //so used never goes past the nodes actually handed out
+    private int reserve(int count) {
+        while(true) {
+            int first = used.get();
+            if(first + count > moves.length) {
+                return -1;
+            }
+            if(used.compareAndSet(first, first + count)) {
+                return first;
+            }
+        }
+    }
+
+    //Counting the visit before the result is known makes the node look like a loss to the other threads
+    //until it is, so they spread out over the tree instead of all following the same path
+    void addVirtualLoss(int node) {
+        visits.incrementAndGet(node);
+    }
+
+    void addScore(int node, double score) {
+        scores.addAndGet(node, (long) (score * SCORE_ONE));
+    }
+
+    //Copies the subtree under the node into the other tree with the node as its root, dropping the rest.
+    //Neither tree can be searched while this runs.
+    void copySubtree(int node, MctsTree to) {
+        to.clear();
+        to.visits.set(0, visits.get(node));
+        to.scores.set(0, scores.get(node));
+        int[] queue = new int[getUsed()];
+        int[] copies = new int[queue.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail] = node;
+        copies[tail++] = 0;
+        while(head < tail) {
+            int from = queue[head];
+            int copy = copies[head++];
+            int first = children.get(from);
+            if(first < 0) {
+                continue;
+            }
+
+            int count = childCounts[from];
+            int copyFirst = to.used.getAndAdd(count);
+            for(int i = 0; i < count; i++) {
+                to.moves[copyFirst + i] = moves[first + i];
+                to.childCounts[copyFirst + i] = 0;
+                to.children.set(copyFirst + i, UNEXPANDED);
+                to.visits.set(copyFirst + i, visits.get(first + i));
+                to.scores.set(copyFirst + i, scores.get(first + i));
+                queue[tail] = first + i;
+                copies[tail++] = copyFirst + i;
+            }
+            to.childCounts[copy] = count;
+            to.children.set(copy, copyFirst);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package io.joshatron.tak.engine.search;
+
+import lombok.Data;
+
+@Data
+public class ParallelSearchResult {
+    //The result of the thread that got deepest, preferring the main thread
+    private SearchResult best;
+    //What each thread did, the main thread first
+    private SearchResult[] threads;
+
+    public ParallelSearchResult(SearchResult best, SearchResult[] threads) {
+        this.best = best;
+        this.threads = threads;
+    }
+
+    public long getNodes() {
+        long nodes = 0;
+        for(SearchResult thread : threads) {
+            nodes += thread.getNodes();
+        }
+
+        return nodes;
+    }
+
+    public long getNodesPerSecond() {
+        return getNodes() * 1000 / Math.max(threads[0].getTime(), 1);
+    }
+}
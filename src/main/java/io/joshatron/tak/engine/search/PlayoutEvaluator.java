@@ -0,0 +1,32 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakStatus;
+
+import java.util.Random;
+
+//Plays random moves on a copy of the leaf until the game ends, scoring a draw or a game still going at the ply limit as half
+public class PlayoutEvaluator implements MctsEvaluator {
+    private final int maxPlies;
+
+    public PlayoutEvaluator(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    @Override
+    public double evaluate(TakEngine engine, TakBitState state, Random rand) {
+        TakBitState playout = new TakBitState(state);
+        TakStatus status = engine.playout(playout, rand, state.getPly() + maxPlies);
+        return getScore(status, state.getCurrentPlayer());
+    }
+
+    static double getScore(TakStatus status, PlayerIndicator player) {
+        if(status == null || !status.isFinished() || status.getWinner() == null || status.getWinner() == PlayerIndicator.NONE) {
+            return 0.5;
+        }
+
+        return status.getWinner() == player ? 1 : 0;
+    }
+}
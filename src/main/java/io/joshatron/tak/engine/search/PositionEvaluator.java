@@ -0,0 +1,18 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakState;
+
+//Scores a leaf of TakSearch. It is called at every leaf, so it should read what the state already keeps up to
+//date rather than look over the whole board. A TakSearch only calls its evaluator from its own thread.
+public interface PositionEvaluator {
+    //Higher is better for the player to move and the score has to stay well inside TakSearch.WIN.
+    //The state has to be left as it was.
+    int evaluate(TakBitState state);
+
+    //Scores a TakState by converting it, which is fine for a one off but too slow for a search
+    default int evaluate(TakState state) throws BoardGameEngineException {
+        return evaluate(new TakBitState(state));
+    }
+}
@@ -0,0 +1,28 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.bgt.engine.action.Action;
+import lombok.Data;
+
+@Data
+public class SearchResult {
+    private Action action;
+    private int move;
+    //For the player to move. A forced win is TakSearch.WIN less the plies to it, and a forced loss the negative
+    private int score;
+    private int depth;
+    private long nodes;
+    private long time;
+
+    public SearchResult(Action action, int move, int score, int depth, long nodes, long time) {
+        this.action = action;
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.time = time;
+    }
+
+    public long getNodesPerSecond() {
+        return nodes * 1000 / Math.max(time, 1);
+    }
+}
@@ -0,0 +1,70 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.board.RoadGroups;
+import io.joshatron.tak.engine.game.TakBitState;
+
+//Scores a position for the player to move, higher being better for them.
+//Flats on top count the most since they decide the game when nobody makes a road,
+//then how far each player's largest road group already stretches across the board.
+//The smaller terms are pieces left in reserve, control of the centre, own pieces under a player's stacks
+//that they can spread without giving anything away, the opponent's pieces held captive under them and the
+//squares next to a capstone it can move to. All of them are kept up to date by TakBitState as pieces move,
+//so nothing here looks over the whole board.
+public class TakEvaluator implements PositionEvaluator {
+    public static final int FLAT = 100;
+    public static final int CAPSTONE = 40;
+    public static final int WALL = 10;
+    public static final int SPAN = 12;
+    public static final int RESERVE = 4;
+    public static final int CENTRE = 6;
+    public static final int SUPPORT = 15;
+    public static final int CAPTIVE = 10;
+    public static final int MOBILITY = 3;
+
+    @Override
+    public int evaluate(TakBitState state) {
+        int player = state.getCurrent();
+        return evaluate(state, player) - evaluate(state, player ^ 1);
+    }
+
+    private int evaluate(TakBitState state, int player) {
+        int size = state.getSize();
+        long capstones = state.getPieces(player, PieceType.CAPSTONE);
+        int score = state.getFlatCount(player) * FLAT +
+                    Long.bitCount(capstones) * CAPSTONE +
+                    Long.bitCount(state.getPieces(player, PieceType.WALL)) * WALL +
+                    (state.getStones(player) + state.getCapstones(player)) * RESERVE +
+                    state.getCentre(player) * CENTRE +
+                    state.getSupport(player) * SUPPORT +
+                    state.getCaptives(player) * CAPTIVE;
+
+        // A capstone can move onto anything next to it but another capstone
+        if(capstones != 0) {
+            long blocked = state.getPieces(TakBitState.WHITE, PieceType.CAPSTONE) | state.getPieces(TakBitState.BLACK, PieceType.CAPSTONE);
+            score += Long.bitCount(BitBoards.getNeighbours(capstones, size) & ~blocked) * MOBILITY;
+        }
+
+        int span = 0;
+        RoadGroups groups = state.getRoadGroups(player);
+        for(int i = 0; i < groups.getGroupCount(); i++) {
+            span = Math.max(span, getSpan(groups.getGroup(i), size));
+        }
+
+        return score + span * span * SPAN;
+    }
+
+    //The most rows or columns the group covers
+    public static int getSpan(long group, int size) {
+        int rows = 0;
+        int columns = 0;
+        for(long bits = group; bits != 0; bits &= bits - 1) {
+            int square = Long.numberOfTrailingZeros(bits);
+            rows |= 1 << BitBoards.getY(size, square);
+            columns |= 1 << BitBoards.getX(size, square);
+        }
+
+        return Math.max(Integer.bitCount(rows), Integer.bitCount(columns));
+    }
+}
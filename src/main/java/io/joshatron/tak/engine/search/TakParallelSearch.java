@@ -0,0 +1,147 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.tak.engine.book.OpeningBook;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.tablebase.Tablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//Lazy SMP: every thread runs its own TakSearch on its own copy of the root, and they only
+//share the transposition table. Threads help each other through what they leave in the table,
+//and every other helper starts a depth deeper so they spread out over the tree.
+//Killer and history tables stay with each thread's TakSearch.
+//The calling thread is the main one, and the helpers stop as soon as it finishes.
+//Positions in the opening book, when there is one, are answered from it before any thread starts, and a
+//tablebase is shared by every thread's TakSearch.
+public class TakParallelSearch {
+    private final TranspositionTable table;
+    private final TakSearch[] searches;
+    private final ExecutorService helpers;
+    private OpeningBook book;
+
+    public TakParallelSearch(int threads, long tableBytes) {
+        this(threads, tableBytes, new TakEvaluator());
+    }
+
+    //The evaluator is shared by every thread, so it has to be thread safe
+    public TakParallelSearch(int threads, long tableBytes, PositionEvaluator evaluator) {
+        table = new TranspositionTable(tableBytes);
+        searches = new TakSearch[Math.max(threads, 1)];
+        for(int i = 0; i < searches.length; i++) {
+            searches[i] = new TakSearch(table, evaluator);
+        }
+        //With one thread everything runs on the caller, so there is no pool at all
+        if(searches.length == 1) {
+            helpers = null;
+        }
+        else {
+            helpers = Executors.newFixedThreadPool(searches.length - 1, runnable -> {
+                Thread thread = new Thread(runnable, "tak-search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int getThreads() {
+        return searches.length;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    public OpeningBook getBook() {
+        return book;
+    }
+
+    //Null to always search
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public Tablebase getTablebase() {
+        return searches[0].getTablebase();
+    }
+
+    //Null to always search
+    public void setTablebase(Tablebase tablebase) {
+        for(TakSearch search : searches) {
+            search.setTablebase(tablebase);
+        }
+    }
+
+    public ParallelSearchResult search(TakState state, int maxDepth, long millis) throws BoardGameEngineException {
+        return search(new TakBitState(state), maxDepth, millis);
+    }
+
+    //Searches until the depth is reached or the time in milliseconds runs out, 0 meaning no limit
+    public ParallelSearchResult search(TakBitState state, int maxDepth, long millis) throws BoardGameEngineException {
+        if(TakSearch.isOver(state)) {
+            throw new BoardGameEngineException(TakEngineErrorCode.GAME_FINISHED);
+        }
+        SearchResult booked = TakSearch.probeBook(book, state);
+        if(booked != null) {
+            return new ParallelSearchResult(booked, new SearchResult[] {booked});
+        }
+
+        table.newSearch();
+        List<Future<SearchResult>> running = new ArrayList<>();
+        for(int i = 1; i < searches.length; i++) {
+            TakSearch search = searches[i];
+            TakBitState copy = new TakBitState(state);
+            int startDepth = 1 + i % 2;
+            search.clearStop();
+            running.add(helpers.submit(() -> search.search(copy, startDepth, maxDepth, millis)));
+        }
+
+        SearchResult[] results = new SearchResult[searches.length];
+        searches[0].clearStop();
+        try {
+            results[0] = searches[0].search(state, 1, maxDepth, millis);
+        } finally {
+            for(int i = 1; i < searches.length; i++) {
+                searches[i].stop();
+            }
+        }
+
+        SearchResult best = results[0];
+        for(int i = 1; i < searches.length; i++) {
+            results[i] = getResult(running.get(i - 1));
+            if(results[i].getDepth() > best.getDepth()) {
+                best = results[i];
+            }
+        }
+
+        return new ParallelSearchResult(best, results);
+    }
+
+    private SearchResult getResult(Future<SearchResult> future) throws BoardGameEngineException {
+        try {
+            return future.get();
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof BoardGameEngineException) {
+                throw (BoardGameEngineException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //Stops the helper threads for good
+    public void shutdown() {
+        if(helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.book.OpeningBook;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.game.WinReason;
+import io.joshatron.tak.engine.tablebase.Tablebase;
+import io.joshatron.tak.engine.tablebase.TablebaseValue;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+
+import java.util.Arrays;
+
+//Iterative deepening principal variation search using the engine's own move generation.
+//It searches a TakBitState in place with make/unmake, and positions are looked up in the
+//transposition table by their Zobrist hash so transpositions and the best move of the
+//previous iteration are reused. After the table move, moves are tried killers first and then
+//by how often they caused a cutoff before. With an opening book, positions in it are answered with the
+//book's most played move without generating moves or searching, and with a tablebase, positions solved in it
+//are scored from it instead of being searched below. Leaves are scored by a PositionEvaluator, TakEvaluator by
+//default. Not thread safe, each thread needs its own TakSearch,
+//though several can share one table.
+public class TakSearch {
+    public static final int WIN = 30000;
+    public static final int MAX_DEPTH = 64;
+
+    private static final int INFINITY = WIN + 1;
+    private static final int CHECK_NODES = 1024;
+    private static final int TABLE_MOVE_SCORE = 1 << 30;
+    private static final int KILLER_SCORE = TABLE_MOVE_SCORE - 2;
+    //The square, kind and pickup of a move, enough to tell most moves apart for history
+    private static final int HISTORY_MASK = 0x1FFF;
+    private static final int HISTORY_MAX = 1 << 24;
+
+    private final TakEngine engine;
+    private final TranspositionTable table;
+    private final PositionEvaluator evaluator;
+    private final int[][] moves;
+    private final long[][] ordering;
+    private final int[][] killers;
+    private final int[][] history;
+    private int movesSize;
+    private long nodes;
+    private long deadline;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+    private int rootMove;
+    private OpeningBook book;
+    private Tablebase tablebase;
+
+    //The table budget is in bytes
+    public TakSearch(long tableBytes) {
+        this(new TranspositionTable(tableBytes));
+    }
+
+    public TakSearch(TranspositionTable table) {
+        this(table, new TakEvaluator());
+    }
+
+    public TakSearch(TranspositionTable table, PositionEvaluator evaluator) {
+        this.engine = new TakEngine();
+        this.table = table;
+        this.evaluator = evaluator;
+        this.moves = new int[MAX_DEPTH + 1][];
+        this.ordering = new long[MAX_DEPTH + 1][];
+        this.killers = new int[MAX_DEPTH + 1][2];
+        this.history = new int[2][HISTORY_MASK + 1];
+        this.movesSize = 0;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    public PositionEvaluator getEvaluator() {
+        return evaluator;
+    }
+
+    public OpeningBook getBook() {
+        return book;
+    }
+
+    //Null to always search
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    //Null to always search
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    //Searches until the depth is reached or the time in milliseconds runs out, 0 meaning no limit.
+    //The result is from the last depth that was searched completely.
+    public SearchResult search(TakState state, int maxDepth, long millis) throws BoardGameEngineException {
+        return search(new TakBitState(state), maxDepth, millis);
+    }
+
+    //The state is searched in place and is back as it was when this returns
+    public SearchResult search(TakBitState state, int maxDepth, long millis) throws BoardGameEngineException {
+        if(isOver(state)) {
+            throw new BoardGameEngineException(TakEngineErrorCode.GAME_FINISHED);
+        }
+        SearchResult booked = probeBook(book, state);
+        if(booked != null) {
+            return booked;
+        }
+
+        stopRequested = false;
+        table.newSearch();
+        return search(state, 1, maxDepth, millis);
+    }
+
+    //Makes a search running on another thread finish as if it ran out of time
+    public void stop() {
+        stopRequested = true;
+    }
+
+    //The book's move as a result at depth 0, or null when there is no book or the position isn't in it
+    static SearchResult probeBook(OpeningBook book, TakBitState state) throws BoardGameEngineException {
+        int move = book == null ? -1 : book.getBestMove(state);
+        if(move < 0) {
+            return null;
+        }
+
+        return new SearchResult(TakPackedMove.toAction(move, state.getCurrentPlayer(), state.getSize()), move, 0, 0, 0, 0);
+    }
+
+    void clearStop() {
+        stopRequested = false;
+    }
+
+    //Iterative deepening from the start depth, which helper threads vary so they don't all do the same work
+    SearchResult search(TakBitState state, int startDepth, int maxDepth, long millis) throws BoardGameEngineException {
+        long start = System.currentTimeMillis();
+        deadline = millis > 0 ? start + millis : Long.MAX_VALUE;
+        nodes = 0;
+        stopped = false;
+        for(int[] killer : killers) {
+            killer[0] = -1;
+            killer[1] = -1;
+        }
+        for(int[] scores : history) {
+            for(int i = 0; i < scores.length; i++) {
+                scores[i] >>= 2;
+            }
+        }
+
+        if(engine.getPossibleMoves(state, getMoves(state, 0)) == 0) {
+            throw new BoardGameEngineException(TakEngineErrorCode.GAME_FINISHED);
+        }
+        int bestMove = moves[0][0];
+        int bestScore = 0;
+        int completed = 0;
+        for(int depth = Math.min(startDepth, maxDepth); depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+            int score = search(state, depth, -INFINITY, INFINITY, 0);
+            if(stopped) {
+                break;
+            }
+
+            bestMove = rootMove;
+            bestScore = score;
+            completed = depth;
+            // Nothing deeper changes a forced result
+            if(Math.abs(score) > WIN - MAX_DEPTH) {
+                break;
+            }
+        }
+
+        return new SearchResult(TakPackedMove.toAction(bestMove, state.getCurrentPlayer(), state.getSize()),
+                bestMove, bestScore, completed, nodes, System.currentTimeMillis() - start);
+    }
+
+    private int search(TakBitState state, int depth, int alpha, int beta, int ply) {
+        if(isOver(state)) {
+            return getFinalScore(state, ply);
+        }
+        nodes++;
+        if(tablebase != null && ply > 0) {
+            int value = tablebase.probe(state);
+            if(value >= 0) {
+                return TablebaseValue.toScore(value, ply);
+            }
+        }
+        if(depth <= 0) {
+            return evaluator.evaluate(state);
+        }
+        if((nodes & (CHECK_NODES - 1)) == 0 && (stopRequested || System.currentTimeMillis() >= deadline)) {
+            stopped = true;
+        }
+        if(stopped) {
+            return 0;
+        }
+
+        long hash = state.getHash();
+        long entry = table.probe(hash);
+        if(entry != 0 && ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.getScore(entry), ply);
+            int bound = TranspositionTable.getBound(entry);
+            if(bound == TranspositionTable.EXACT ||
+               (bound == TranspositionTable.LOWER && score >= beta) ||
+               (bound == TranspositionTable.UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+
+        int[] buffer = getMoves(state, ply);
+        int count = engine.getPossibleMoves(state, buffer);
+        int tableMove = entry != 0 ? TranspositionTable.getMove(entry) : -1;
+        if(depth > 1) {
+            orderMoves(state.getCurrent(), buffer, count, tableMove, ply);
+        }
+        else {
+            // The replies are only evaluated, so sorting them all costs more than it saves
+            moveToFront(buffer, count, tableMove);
+        }
+
+        int original = alpha;
+        int best = -INFINITY;
+        int bestMove = buffer[0];
+        for(int i = 0; i < count; i++) {
+            long undo = engine.makeMove(state, buffer[i]);
+            int score;
+            if(i == 0) {
+                score = -search(state, depth - 1, -beta, -alpha, ply + 1);
+            }
+            else {
+                // Prove the move is no better than the first with a null window, and only search it fully if it is
+                score = -search(state, depth - 1, -alpha - 1, -alpha, ply + 1);
+                if(score > alpha && score < beta) {
+                    score = -search(state, depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+            engine.unmakeMove(state, undo);
+            if(stopped) {
+                return 0;
+            }
+
+            if(score > best) {
+                best = score;
+                bestMove = buffer[i];
+                if(score > alpha) {
+                    alpha = score;
+                    if(ply == 0) {
+                        rootMove = bestMove;
+                    }
+                    if(alpha >= beta) {
+                        addCutoff(state.getCurrent(), bestMove, depth, ply);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound;
+        if(best >= beta) {
+            bound = TranspositionTable.LOWER;
+        }
+        else if(best > original) {
+            bound = TranspositionTable.EXACT;
+        }
+        else {
+            bound = TranspositionTable.UPPER;
+        }
+        table.store(hash, bestMove, toTable(best, ply), depth, bound);
+
+        return best;
+    }
+
+    private int[] getMoves(TakBitState state, int ply) {
+        int size = TakMoveGenerator.getMaxMoves(state.getSize());
+        if(size != movesSize) {
+            for(int i = 0; i < moves.length; i++) {
+                moves[i] = null;
+                ordering[i] = null;
+            }
+            movesSize = size;
+        }
+        if(moves[ply] == null) {
+            moves[ply] = new int[size];
+            ordering[ply] = new long[size];
+        }
+
+        return moves[ply];
+    }
+
+    //The table move first, then the killers, then the rest by history
+    private void orderMoves(int player, int[] buffer, int count, int tableMove, int ply) {
+        long[] keys = ordering[ply];
+        int[] scores = history[player];
+        for(int i = 0; i < count; i++) {
+            int move = buffer[i];
+            int score;
+            if(move == tableMove) {
+                score = TABLE_MOVE_SCORE;
+            }
+            else if(move == killers[ply][0]) {
+                score = KILLER_SCORE;
+            }
+            else if(move == killers[ply][1]) {
+                score = KILLER_SCORE - 1;
+            }
+            else {
+                score = scores[move & HISTORY_MASK];
+            }
+            // Sorting ascending puts the highest score first, moves are never negative
+            keys[i] = ((long) -score << 32) | move;
+        }
+
+        Arrays.sort(keys, 0, count);
+        for(int i = 0; i < count; i++) {
+            buffer[i] = (int) keys[i];
+        }
+    }
+
+    private static void moveToFront(int[] buffer, int count, int move) {
+        for(int i = 0; i < count; i++) {
+            if(buffer[i] == move) {
+                System.arraycopy(buffer, 0, buffer, 1, i);
+                buffer[0] = move;
+                return;
+            }
+        }
+    }
+
+    private void addCutoff(int player, int move, int depth, int ply) {
+        if(killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        int[] scores = history[player];
+        scores[move & HISTORY_MASK] += depth * depth;
+        if(scores[move & HISTORY_MASK] > HISTORY_MAX) {
+            for(int i = 0; i < scores.length; i++) {
+                scores[i] >>= 1;
+            }
+        }
+    }
+
+    static boolean isOver(TakBitState state) {
+        return state.getStatus() != null && state.getStatus().getReason() != WinReason.NONE;
+    }
+
+    //The sooner a win the better, so wins are worth less the further away they are
+    static int getFinalScore(TakBitState state, int ply) {
+        PlayerIndicator winner = state.getStatus().getWinner();
+        if(winner == null || winner == PlayerIndicator.NONE) {
+            return 0;
+        }
+
+        return winner == state.getCurrentPlayer() ? WIN - ply : ply - WIN;
+    }
+
+    //Win scores are stored as distance from the position rather than the root
+    static int toTable(int score, int ply) {
+        if(score > WIN - MAX_DEPTH - 1) {
+            return score + ply;
+        }
+        if(score < MAX_DEPTH + 1 - WIN) {
+            return score - ply;
+        }
+
+        return score;
+    }
+
+    static int fromTable(int score, int ply) {
+        if(score > WIN - MAX_DEPTH - 1) {
+            return score - ply;
+        }
+        if(score < MAX_DEPTH + 1 - WIN) {
+            return score + ply;
+        }
+
+        return score;
+    }
+}
@@ -0,0 +1,123 @@
+package io.joshatron.tak.engine.search;
+
+import java.nio.ByteBuffer;
+
+//A fixed size table of search results keyed by Zobrist hash, kept off the heap so large tables
+//don't weigh on the garbage collector.
+//Each bucket holds two entries. The first keeps the deepest result and is only replaced by one
+//at least as deep or left from an earlier search, the second always takes whatever didn't fit.
+//An entry is two longs, the hash XORed with the data and the data itself. Threads read and
+//write without locking, and an entry torn by two writers no longer matches its hash so it is
+//treated as a miss.
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_BYTES = 2 * ENTRY_BYTES;
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    //The data is the move in bits 0-21, the score in 22-37, the depth in 38-45,
+    //the bound in 46-47 and the search generation in 48-55
+    private static final int SCORE_SHIFT = 22;
+    private static final int DEPTH_SHIFT = 38;
+    private static final int BOUND_SHIFT = 46;
+    private static final int GENERATION_SHIFT = 48;
+    private static final long MOVE_MASK = (1L << SCORE_SHIFT) - 1;
+
+    private final ByteBuffer[] chunks;
+    private final long buckets;
+    private volatile int generation;
+
+    //Uses the largest power of two number of buckets that fits in the budget
+    public TranspositionTable(long bytes) {
+        long count = Long.highestOneBit(Math.max(bytes / BUCKET_BYTES, 1));
+        long total = count * BUCKET_BYTES;
+        chunks = new ByteBuffer[(int) ((total + CHUNK_MASK) >>> CHUNK_BITS)];
+        for(int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.allocateDirect((int) Math.min(total - ((long) i << CHUNK_BITS), 1L << CHUNK_BITS));
+        }
+        buckets = count;
+        generation = 0;
+    }
+
+    public long getBuckets() {
+        return buckets;
+    }
+
+    public long getBytes() {
+        return buckets * BUCKET_BYTES;
+    }
+
+    //Marks the start of a new search so entries from older ones are replaced first
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        for(ByteBuffer chunk : chunks) {
+            for(int i = 0; i < chunk.capacity(); i += 8) {
+                chunk.putLong(i, 0);
+            }
+        }
+    }
+
+    //Returns the data stored for the hash, or 0 when there is none
+    public long probe(long hash) {
+        long offset = (hash & (buckets - 1)) * BUCKET_BYTES;
+        ByteBuffer chunk = chunks[(int) (offset >>> CHUNK_BITS)];
+        int index = (int) (offset & CHUNK_MASK);
+        for(int slot = 0; slot < 2; slot++, index += ENTRY_BYTES) {
+            long data = chunk.getLong(index + 8);
+            if((chunk.getLong(index) ^ data) == hash && data != 0) {
+                return data;
+            }
+        }
+
+        return 0;
+    }
+
+    public void store(long hash, int move, int score, int depth, int bound) {
+        long data = (move & MOVE_MASK) |
+                    ((long) (score & 0xFFFF) << SCORE_SHIFT) |
+                    ((long) depth << DEPTH_SHIFT) |
+                    ((long) bound << BOUND_SHIFT) |
+                    ((long) generation << GENERATION_SHIFT);
+        long offset = (hash & (buckets - 1)) * BUCKET_BYTES;
+        ByteBuffer chunk = chunks[(int) (offset >>> CHUNK_BITS)];
+        int index = (int) (offset & CHUNK_MASK);
+
+        long deepest = chunk.getLong(index + 8);
+        if(deepest == 0 || (chunk.getLong(index) ^ deepest) == hash || depth >= getDepth(deepest) ||
+           getGeneration(deepest) != generation) {
+            chunk.putLong(index, hash ^ data);
+            chunk.putLong(index + 8, data);
+        }
+        else {
+            chunk.putLong(index + ENTRY_BYTES, hash ^ data);
+            chunk.putLong(index + ENTRY_BYTES + 8, data);
+        }
+    }
+
+    public static int getMove(long data) {
+        return (int) (data & MOVE_MASK);
+    }
+
+    public static int getScore(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int getDepth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int getBound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    private static int getGeneration(long data) {
+        return (int) (data >>> GENERATION_SHIFT) & 0xFF;
+    }
+}
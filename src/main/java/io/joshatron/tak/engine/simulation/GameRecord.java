@@ -0,0 +1,44 @@
+package io.joshatron.tak.engine.simulation;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.game.TakStatus;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//A finished simulated game, kept as packed moves so a lot of them can be held or written out cheaply.
+//The status is still in progress when the game was cut off at the simulator's ply limit.
+@Data
+public class GameRecord {
+    private int size;
+    private PlayerIndicator first;
+    private int[] moves;
+    private TakStatus status;
+
+    public GameRecord(int size, PlayerIndicator first, int[] moves, TakStatus status) {
+        this.size = size;
+        this.first = first;
+        this.moves = moves;
+        this.status = status;
+    }
+
+    public int getPlies() {
+        return moves.length;
+    }
+
+    //The moves as actions, for replaying the game on a TakState
+    public List<Action> getActions() throws BoardGameEngineException {
+        List<Action> actions = new ArrayList<>(moves.length);
+        PlayerIndicator player = first;
+        for(int move : moves) {
+            actions.add(TakPackedMove.toAction(move, player, size));
+            player = player == PlayerIndicator.WHITE ? PlayerIndicator.BLACK : PlayerIndicator.WHITE;
+        }
+
+        return actions;
+    }
+}
@@ -0,0 +1,12 @@
+package io.joshatron.tak.engine.simulation;
+
+import io.joshatron.tak.engine.game.TakBitState;
+
+import java.util.Random;
+
+//Picks the move a simulated game plays next. Each simulator thread gets its own policy,
+//so a policy only needs to be safe for one thread at a time.
+public interface MovePolicy {
+    //Returns the index of the move to play out of the first count moves, count always being at least 1
+    int choose(TakBitState state, int[] moves, int count, Random rand);
+}
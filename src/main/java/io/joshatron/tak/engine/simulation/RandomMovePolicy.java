@@ -0,0 +1,13 @@
+package io.joshatron.tak.engine.simulation;
+
+import io.joshatron.tak.engine.game.TakBitState;
+
+import java.util.Random;
+
+//Plays any of the possible moves with the same chance
+public class RandomMovePolicy implements MovePolicy {
+    @Override
+    public int choose(TakBitState state, int[] moves, int count, Random rand) {
+        return rand.nextInt(count);
+    }
+}
@@ -0,0 +1,20 @@
+package io.joshatron.tak.engine.simulation;
+
+import lombok.Data;
+
+@Data
+public class SimulationResult {
+    private long games;
+    private long plies;
+    private long time;
+
+    public SimulationResult(long games, long plies, long time) {
+        this.games = games;
+        this.plies = plies;
+        this.time = time;
+    }
+
+    public long getGamesPerSecond() {
+        return games * 1000 / Math.max(time, 1);
+    }
+}
@@ -0,0 +1,153 @@
+package io.joshatron.tak.engine.simulation;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+//Plays many independent games at once for self-play, each thread advancing its own batch of games in lockstep.
+//Every step generates the moves for each game in the batch, lets the policy pick one and makes it in place
+//on a TakBitState, so nothing is validated or copied along the way. The moves of a batch are logged into
+//one array with a row per game, and a finished game is handed out as a GameRecord and its slot started over
+//until the requested number of games have been played.
+//Each game is a TakBitState, which already keeps a position as a handful of primitive arrays, rather than the
+//batch's boards being interleaved into shared arrays. Move generation is branchy work on each game's own
+//bitboards that isn't vectorised across games, so a shared pass saves nothing, and every step of a bigger
+//batch walks more games through the cache. A batch of one measured the fastest, so that is the default,
+//see SimulationBenchmark.
+public class TakSimulator {
+    public static final int DEFAULT_BATCH_SIZE = 1;
+
+    private final TakBitState start;
+    private final int batchSize;
+    private final int maxPlies;
+    private final Supplier<MovePolicy> policies;
+    private final ExecutorService workers;
+    private final int threads;
+
+    //Uses a thread per processor and random moves
+    public TakSimulator(int size) throws BoardGameEngineException {
+        this(size, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE, 500, RandomMovePolicy::new);
+    }
+
+    //Games that reach the ply limit are cut off and recorded as still in progress
+    public TakSimulator(int size, int threads, int batchSize, int maxPlies, Supplier<MovePolicy> policies) throws BoardGameEngineException {
+        this.start = new TakBitState(PlayerIndicator.WHITE, size);
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxPlies = Math.max(maxPlies, 1);
+        this.policies = policies;
+        this.threads = Math.max(threads, 1);
+        this.workers = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "tak-simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    //Plays the games and waits for them to finish. Records are handed out from the simulator's threads
+    //as games finish, so the consumer has to be thread safe. The seed makes each thread's games repeatable,
+    //though which thread plays which game isn't.
+    public SimulationResult run(long games, long seed, Consumer<GameRecord> records) {
+        long startTime = System.currentTimeMillis();
+        AtomicLong remaining = new AtomicLong(games);
+        List<Future<Long>> running = new ArrayList<>();
+        for(int i = 0; i < threads; i++) {
+            Random rand = new Random(seed + i);
+            MovePolicy policy = policies.get();
+            running.add(workers.submit(() -> simulate(remaining, rand, policy, records)));
+        }
+
+        long plies = 0;
+        for(Future<Long> worker : running) {
+            plies += getPlies(worker);
+        }
+
+        return new SimulationResult(games, plies, System.currentTimeMillis() - startTime);
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    //Returns the plies played
+    private long simulate(AtomicLong remaining, Random rand, MovePolicy policy, Consumer<GameRecord> records) {
+        TakEngine engine = new TakEngine();
+        TakBitState[] states = new TakBitState[batchSize];
+        int[] log = new int[batchSize * maxPlies];
+        int[] moves = new int[TakMoveGenerator.getMaxMoves(start.getSize())];
+        long plies = 0;
+
+        int active = 0;
+        for(int i = 0; i < batchSize && remaining.getAndDecrement() > 0; i++) {
+            states[i] = new TakBitState(start);
+            active++;
+        }
+
+        while(active > 0) {
+            for(int i = 0; i < batchSize; i++) {
+                TakBitState state = states[i];
+                if(state == null) {
+                    continue;
+                }
+
+                int count = engine.getPossibleMoves(state, moves);
+                if(count > 0) {
+                    int move = moves[policy.choose(state, moves, count, rand)];
+                    log[i * maxPlies + state.getPly()] = move;
+                    engine.makeMove(state, move);
+                    plies++;
+                }
+                if(count > 0 && !state.getStatus().isFinished() && state.getPly() < maxPlies) {
+                    continue;
+                }
+
+                records.accept(new GameRecord(start.getSize(), start.getFirst(),
+                        Arrays.copyOfRange(log, i * maxPlies, i * maxPlies + state.getPly()), state.getStatus()));
+                if(remaining.getAndDecrement() > 0) {
+                    states[i] = new TakBitState(start);
+                }
+                else {
+                    states[i] = null;
+                    active--;
+                }
+            }
+        }
+
+        return plies;
+    }
+
+    private static long getPlies(Future<Long> worker) {
+        try {
+            return worker.get();
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
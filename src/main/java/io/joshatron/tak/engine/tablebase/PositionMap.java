@@ -0,0 +1,112 @@
+package io.joshatron.tak.engine.tablebase;
+
+import java.util.Arrays;
+
+//Zobrist hashes to TablebaseValue bytes with open addressing, so millions of positions don't each need an object.
+//A position can be in the map without a value yet, which reads as 0.
+class PositionMap {
+    private long[] keys;
+    private byte[] values;
+    private int count;
+    //A hash of 0 marks an empty slot, so that one position is kept to the side
+    private boolean hasZero;
+    private byte zeroValue;
+
+    PositionMap() {
+        keys = new long[1 << 10];
+        values = new byte[keys.length];
+        count = 0;
+    }
+
+    int size() {
+        return count;
+    }
+
+    //The value, 0 when there isn't one yet or -1 when the position isn't in the map
+    int get(long key) {
+        if(key == 0) {
+            return hasZero ? zeroValue & 0xFF : -1;
+        }
+
+        int mask = keys.length - 1;
+        for(int slot = mix(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if(keys[slot] == key) {
+                return values[slot] & 0xFF;
+            }
+        }
+
+        return -1;
+    }
+
+    //Adds the position without a value, returning false when it was already there
+    boolean add(long key) {
+        if(get(key) >= 0) {
+            return false;
+        }
+
+        put(key, 0);
+        return true;
+    }
+
+    void put(long key, int value) {
+        if(key == 0) {
+            count += hasZero ? 0 : 1;
+            hasZero = true;
+            zeroValue = (byte) value;
+            return;
+        }
+        if((count + 1) * 2 > keys.length) {
+            grow();
+        }
+
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while(keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if(keys[slot] == 0) {
+            keys[slot] = key;
+            count++;
+        }
+        values[slot] = (byte) value;
+    }
+
+    //The positions with values, sorted as unsigned numbers
+    long[] getSolved() {
+        long[] solved = new long[count];
+        int found = 0;
+        if(hasZero && zeroValue != 0) {
+            solved[found++] = Long.MIN_VALUE;
+        }
+        for(int slot = 0; slot < keys.length; slot++) {
+            if(keys[slot] != 0 && values[slot] != 0) {
+                //Flipping the sign bit makes a signed sort unsigned
+                solved[found++] = keys[slot] ^ Long.MIN_VALUE;
+            }
+        }
+        solved = Arrays.copyOf(solved, found);
+        Arrays.sort(solved);
+        for(int i = 0; i < solved.length; i++) {
+            solved[i] ^= Long.MIN_VALUE;
+        }
+
+        return solved;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        byte[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new byte[keys.length];
+        count = hasZero ? 1 : 0;
+        for(int slot = 0; slot < oldKeys.length; slot++) {
+            if(oldKeys[slot] != 0) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        return (int) (key ^ (key >>> 32));
+    }
+}
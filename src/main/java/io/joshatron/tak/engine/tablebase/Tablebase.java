@@ -0,0 +1,195 @@
+package io.joshatron.tak.engine.tablebase;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakPosition;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Solved positions for one board size, written by TablebaseBuilder and read straight out of a memory mapped file.
+//The file starts with the magic bytes TAKT, a version byte, the size, the most pieces and the plies the
+//positions were solved to as bytes, then the number of positions and the length of the data as ints.
+//Positions are sorted by their Zobrist hash as an unsigned number and grouped in blocks of 64. An index of
+//every block's first hash as a long and where the block starts in the data as an int comes next, then the data.
+//A block is the width in bits of the biggest difference between hashes next to each other in it as a byte, the
+//TablebaseValue of every position in it and then each difference packed in that many bits. Differences between
+//sorted hashes are only about as wide as the bits the index doesn't already give, so in a table of tens of
+//thousands of positions each takes under eight bytes rather than the nine of a whole hash and value.
+//A probe binary searches the index and reads through one block, without creating anything.
+//Reading is safe from any number of threads.
+public class Tablebase implements Closeable {
+    static final byte[] MAGIC = {'T', 'A', 'K', 'T'};
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = MAGIC.length + 12;
+    static final int INDEX_ENTRY_LENGTH = 12;
+    static final int BLOCK = 64;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer file;
+    private final int size;
+    private final int maxPieces;
+    private final int maxPlies;
+    private final int totalPieces;
+    private final int positions;
+    private final int blocks;
+    private final int dataStart;
+    private final int dataEnd;
+
+    public Tablebase(Path path) throws IOException, BoardGameEngineException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        long length = channel.size();
+        if(length < HEADER_LENGTH || length > Integer.MAX_VALUE) {
+            channel.close();
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_TABLEBASE);
+        }
+        this.file = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        for(int i = 0; i < MAGIC.length; i++) {
+            if(file.get(i) != MAGIC[i]) {
+                channel.close();
+                throw new BoardGameEngineException(TakEngineErrorCode.INVALID_TABLEBASE);
+            }
+        }
+        this.size = file.get(MAGIC.length + 1);
+        this.maxPieces = file.get(MAGIC.length + 2) & 0xFF;
+        this.maxPlies = file.get(MAGIC.length + 3) & 0xFF;
+        this.positions = file.getInt(MAGIC.length + 4);
+        int dataLength = file.getInt(MAGIC.length + 8);
+        this.blocks = (int) (((long) Math.max(positions, 0) + BLOCK - 1) / BLOCK);
+        this.dataStart = HEADER_LENGTH + blocks * INDEX_ENTRY_LENGTH;
+        this.dataEnd = dataStart + dataLength;
+        if(file.get(MAGIC.length) != VERSION || positions < 0 || dataLength < 0 ||
+           (long) dataStart + dataLength != length || !hasValidIndex()) {
+            channel.close();
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_TABLEBASE);
+        }
+        try {
+            this.totalPieces = getTotalPieces(size);
+        } catch(BoardGameEngineException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    //Positions with more pieces on the board than this are never in the table
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    public int getMaxPlies() {
+        return maxPlies;
+    }
+
+    public int getPositions() {
+        return positions;
+    }
+
+    //The TablebaseValue of the position for the player to move, or -1 when it isn't in the table
+    public int probe(TakPosition state) {
+        if(state.getSize() != size || getPieces(state, totalPieces) > maxPieces || blocks == 0) {
+            return -1;
+        }
+
+        long hash = state.getHash();
+        int block = findBlock(hash);
+        if(block < 0) {
+            return -1;
+        }
+
+        int cursor = dataStart + file.getInt(HEADER_LENGTH + block * INDEX_ENTRY_LENGTH + 8);
+        int end = block + 1 < blocks ? dataStart + file.getInt(HEADER_LENGTH + (block + 1) * INDEX_ENTRY_LENGTH + 8) : dataEnd;
+        int count = Math.min(BLOCK, positions - block * BLOCK);
+        int width = file.get(cursor) & 0xFF;
+        int bits = cursor + 1 + count;
+        if(width > 64 || bits + ((count - 1) * width + 7) / 8 > end) {
+            return -1;
+        }
+
+        long current = getFirstHash(block);
+        for(int i = 0; i < count; i++) {
+            if(current == hash) {
+                return file.get(cursor + 1 + i) & 0xFF;
+            }
+            //Hashes only go up within a block, so once past the one wanted it isn't there
+            if(i + 1 == count || Long.compareUnsigned(current, hash) > 0) {
+                return -1;
+            }
+            current += readBits(bits, i * width, width);
+        }
+
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    //Everything on the board came out of the reserves, and nothing goes back
+    static int getPieces(TakPosition state, int totalPieces) {
+        return totalPieces - state.getStones(TakBitState.WHITE) - state.getStones(TakBitState.BLACK) -
+                state.getCapstones(TakBitState.WHITE) - state.getCapstones(TakBitState.BLACK);
+    }
+
+    static int getTotalPieces(int size) throws BoardGameEngineException {
+        return 2 * (TakBitState.getStartingStones(size) + TakBitState.getStartingCapstones(size));
+    }
+
+    //The last block starting at or before the hash, or -1 when the hash comes before all of them
+    private int findBlock(long hash) {
+        int low = 0;
+        int high = blocks;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(Long.compareUnsigned(getFirstHash(mid), hash) <= 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+
+        return low - 1;
+    }
+
+    //The number of the width at the bit offset from the start, lowest bit first
+    private long readBits(int start, int offset, int width) {
+        long value = 0;
+        for(int read = 0; read < width; ) {
+            int bit = offset + read;
+            int take = Math.min(width - read, 8 - (bit & 7));
+            long b = (file.get(start + (bit >>> 3)) & 0xFF) >>> (bit & 7);
+            value |= (b & ((1L << take) - 1)) << read;
+            read += take;
+        }
+
+        return value;
+    }
+
+    private long getFirstHash(int block) {
+        return file.getLong(HEADER_LENGTH + block * INDEX_ENTRY_LENGTH);
+    }
+
+    //Blocks have to start in order inside the data, so a probe never reads past it
+    private boolean hasValidIndex() {
+        int previous = 0;
+        for(int block = 0; block < blocks; block++) {
+            int offset = file.getInt(HEADER_LENGTH + block * INDEX_ENTRY_LENGTH + 8);
+            if(offset < previous || offset >= dataEnd - dataStart) {
+                return false;
+            }
+            previous = offset;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,209 @@
+package io.joshatron.tak.engine.tablebase;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+//Builds a tablebase of every position reachable from the start of a game with up to a number of pieces on
+//the board, meant for 3x3 and 4x4 where there are few enough of them. Pieces never leave the board, so the
+//positions are found breadth first, each kept as the position it was found from and the move, and then solved
+//with TakSolver in the reverse order. Positions with the most pieces are solved first and the rest use them
+//as they go, the way a retrograde solver works back from the end of the game.
+//Positions TakSolver can't solve within the plies are left out of the table.
+public class TablebaseBuilder {
+    private final int size;
+    private final int maxPieces;
+    private final int maxPlies;
+    private final int totalPieces;
+    private final TakEngine engine;
+    private final TakSolver solver;
+    private final PositionMap positions;
+    private final TakBitState start;
+    //The position each one was found from and the move that got there, the start being -1
+    private int[] parents;
+    private int[] moves;
+    private int[] path;
+    private int found;
+    private int solved;
+
+    //The solver's transposition tables take the budget in bytes
+    public TablebaseBuilder(int size, int maxPieces, int maxPlies, long tableBytes) throws BoardGameEngineException {
+        this.size = size;
+        this.maxPieces = Math.max(maxPieces, 0);
+        this.maxPlies = Math.min(Math.max(maxPlies, 1), TablebaseValue.MAX_DISTANCE);
+        this.totalPieces = Tablebase.getTotalPieces(size);
+        this.engine = new TakEngine();
+        this.solver = new TakSolver(tableBytes);
+        this.positions = new PositionMap();
+        this.start = new TakBitState(PlayerIndicator.WHITE, size);
+        this.path = new int[64];
+        this.parents = new int[1 << 10];
+        this.moves = new int[parents.length];
+        this.found = 0;
+        this.solved = 0;
+        solver.setKnown(positions);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    public int getMaxPlies() {
+        return maxPlies;
+    }
+
+    //Positions found that aren't already over
+    public int getPositions() {
+        return found;
+    }
+
+    public int getSolved() {
+        return solved;
+    }
+
+    public long getNodes() {
+        return solver.getNodes();
+    }
+
+    //Finds and solves the positions, returning how many were solved
+    public int build() {
+        if(found == 0) {
+            find();
+        }
+
+        for(int i = found - 1; i >= 0; i--) {
+            TakBitState state = replay(i);
+            int value = solver.solve(state, maxPlies);
+            if(value >= 0) {
+                positions.put(state.getHash(), value);
+                solved++;
+            }
+        }
+
+        return solved;
+    }
+
+    //Writes the solved positions, see Tablebase for the format, returning how many were written.
+    //The stream is flushed but left open.
+    public int write(OutputStream out) throws IOException {
+        long[] keys = positions.getSolved();
+        int blocks = (keys.length + Tablebase.BLOCK - 1) / Tablebase.BLOCK;
+        ByteArrayOutputStream data = new ByteArrayOutputStream(keys.length * 8);
+        int[] offsets = new int[blocks];
+        for(int block = 0; block < blocks; block++) {
+            int start = block * Tablebase.BLOCK;
+            int end = Math.min(start + Tablebase.BLOCK, keys.length);
+            long widest = 0;
+            for(int i = start + 1; i < end; i++) {
+                widest |= keys[i] - keys[i - 1];
+            }
+            int width = 64 - Long.numberOfLeadingZeros(widest);
+
+            offsets[block] = data.size();
+            data.write(width);
+            for(int i = start; i < end; i++) {
+                data.write(positions.get(keys[i]));
+            }
+            //The differences packed with the lowest bit first
+            long bits = 0;
+            int filled = 0;
+            for(int i = start + 1; i < end; i++) {
+                long delta = keys[i] - keys[i - 1];
+                for(int written = 0; written < width; ) {
+                    int take = Math.min(width - written, 8 - filled);
+                    bits |= ((delta >>> written) & ((1L << take) - 1)) << filled;
+                    filled += take;
+                    written += take;
+                    if(filled == 8) {
+                        data.write((int) bits);
+                        bits = 0;
+                        filled = 0;
+                    }
+                }
+            }
+            if(filled > 0) {
+                data.write((int) bits);
+            }
+        }
+
+        DataOutputStream header = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        header.write(Tablebase.MAGIC);
+        header.writeByte(Tablebase.VERSION);
+        header.writeByte(size);
+        header.writeByte(maxPieces);
+        header.writeByte(maxPlies);
+        header.writeInt(keys.length);
+        header.writeInt(data.size());
+        for(int block = 0; block < blocks; block++) {
+            header.writeLong(keys[block * Tablebase.BLOCK]);
+            header.writeInt(offsets[block]);
+        }
+        data.writeTo(header);
+        header.flush();
+
+        return keys.length;
+    }
+
+    private void find() {
+        positions.add(start.getHash());
+        add(-1, 0);
+
+        int[] buffer = new int[TakMoveGenerator.getMaxMoves(size)];
+        for(int i = 0; i < found; i++) {
+            TakBitState state = replay(i);
+            int count = engine.getPossibleMoves(state, buffer);
+            for(int m = 0; m < count; m++) {
+                long undo = engine.makeMove(state, buffer[m]);
+                if(!isOver(state) && Tablebase.getPieces(state, totalPieces) <= maxPieces && positions.add(state.getHash())) {
+                    add(i, buffer[m]);
+                }
+                engine.unmakeMove(state, undo);
+            }
+        }
+    }
+
+    private void add(int parent, int move) {
+        if(found == parents.length) {
+            parents = Arrays.copyOf(parents, found * 2);
+            moves = Arrays.copyOf(moves, found * 2);
+        }
+        parents[found] = parent;
+        moves[found] = move;
+        found++;
+    }
+
+    //Plays the moves to the position from the start
+    private TakBitState replay(int position) {
+        int length = 0;
+        for(int i = position; parents[i] >= 0; i = parents[i]) {
+            if(length == path.length) {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = moves[i];
+        }
+
+        TakBitState state = new TakBitState(start);
+        for(int i = length - 1; i >= 0; i--) {
+            engine.makeMove(state, path[i]);
+        }
+
+        return state;
+    }
+
+    private static boolean isOver(TakBitState state) {
+        return state.getStatus() != null && state.getStatus().isFinished();
+    }
+}
@@ -0,0 +1,70 @@
+package io.joshatron.tak.engine.tablebase;
+
+import io.joshatron.tak.engine.search.TakSearch;
+
+//The value of a solved position for the player to move, packed in a byte like moves are packed in an int.
+//Bits 0-5 are the distance in plies and bits 6-7 the outcome. The distance to a win or a loss is how many
+//plies the game lasts along the line TakSolver found, which is the shortest win and longest loss within the
+//plies it searched, and draws keep the depth they were proven at.
+public final class TablebaseValue {
+    public static final int WIN = 1;
+    public static final int LOSS = 2;
+    public static final int DRAW = 3;
+    public static final int MAX_DISTANCE = 63;
+
+    private static final int OUTCOME_SHIFT = 6;
+    private static final int DISTANCE_MASK = (1 << OUTCOME_SHIFT) - 1;
+
+    private TablebaseValue() {
+    }
+
+    public static int win(int distance) {
+        return (WIN << OUTCOME_SHIFT) | distance;
+    }
+
+    public static int loss(int distance) {
+        return (LOSS << OUTCOME_SHIFT) | distance;
+    }
+
+    public static int draw(int distance) {
+        return (DRAW << OUTCOME_SHIFT) | distance;
+    }
+
+    public static int getOutcome(int value) {
+        return value >>> OUTCOME_SHIFT;
+    }
+
+    public static int getDistance(int value) {
+        return value & DISTANCE_MASK;
+    }
+
+    //Whether the byte is a value at all, as unsolved positions are never stored
+    public static boolean isValid(int value) {
+        return value >= 0 && value <= 0xFF && getOutcome(value) != 0;
+    }
+
+    //The score TakSearch gives the result when the position is the given plies from the root
+    public static int toScore(int value, int ply) {
+        switch(getOutcome(value)) {
+            case WIN:
+                return TakSearch.WIN - ply - getDistance(value);
+            case LOSS:
+                return ply + getDistance(value) - TakSearch.WIN;
+            default:
+                return 0;
+        }
+    }
+
+    public static String toString(int value) {
+        switch(getOutcome(value)) {
+            case WIN:
+                return "win in " + getDistance(value);
+            case LOSS:
+                return "loss in " + getDistance(value);
+            case DRAW:
+                return "draw";
+            default:
+                return "unknown";
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package io.joshatron.tak.engine.tablebase;
+
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+import io.joshatron.tak.engine.search.TakSearch;
+import io.joshatron.tak.engine.search.TranspositionTable;
+
+//Solves positions exactly, as far as they can be solved within a number of plies.
+//Each depth is searched twice with alpha-beta, once counting positions cut off at the depth as lost for the
+//player to move at the root and once as won. The first gives a bound the real value can't be below and the
+//second one it can't be above, so a win found by the first, a loss found by the second or the two agreeing
+//on a draw is the real result. Positions already solved are used as they are wherever they come up, so
+//solving the positions deepest in the game first lets the rest see past the plies they are searched to.
+//Iterative deepening keeps distances short, though a line through a solved position can make one longer
+//than the real distance, never shorter.
+//Each way of counting the cut off positions has its own transposition table, kept between positions so
+//solving many that share lines is cheap. Not thread safe.
+public class TakSolver {
+    private static final int WIN = TakSearch.WIN;
+    //Worth more than any real result, so a cut off position is never mistaken for one
+    private static final int HORIZON = WIN + 1;
+    private static final int INFINITY = HORIZON + 1;
+    //Scores further from WIN than this aren't wins, leaving room for a solved position's distance past the plies
+    private static final int WIN_RANGE = 2 * (TablebaseValue.MAX_DISTANCE + 1);
+
+    private final TakEngine engine;
+    //By the player cut off positions are lost for
+    private final TranspositionTable[] tables;
+    private final int[][] moves;
+    private PositionMap known;
+    private long nodes;
+
+    //The budget is in bytes, split between the two tables
+    public TakSolver(long tableBytes) {
+        this.engine = new TakEngine();
+        this.tables = new TranspositionTable[] {new TranspositionTable(tableBytes / 2), new TranspositionTable(tableBytes / 2)};
+        this.moves = new int[TablebaseValue.MAX_DISTANCE + 1][];
+        this.nodes = 0;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    //Solved positions to use instead of searching them
+    void setKnown(PositionMap known) {
+        this.known = known;
+    }
+
+    //Returns the value of the position as a TablebaseValue, or -1 when it can't be solved within the plies.
+    //The state is searched in place and is back as it was when this returns.
+    public int solve(TakBitState state, int maxPlies) {
+        if(isOver(state)) {
+            return getFinalValue(state, 0);
+        }
+
+        int me = state.getCurrent();
+        for(int depth = 1; depth <= Math.min(maxPlies, TablebaseValue.MAX_DISTANCE); depth++) {
+            int lower = search(state, depth, WIN - WIN_RANGE, HORIZON, 0, me);
+            if(lower > WIN - WIN_RANGE) {
+                return TablebaseValue.win(Math.min(WIN - lower, TablebaseValue.MAX_DISTANCE));
+            }
+            int upper = search(state, depth, -HORIZON, WIN_RANGE - WIN, 0, me ^ 1);
+            if(upper < WIN_RANGE - WIN) {
+                return TablebaseValue.loss(Math.min(upper + WIN, TablebaseValue.MAX_DISTANCE));
+            }
+            //Neither side can win, so whether it is a draw only takes null windows
+            if(search(state, depth, -1, 0, 0, me) >= 0 && search(state, depth, 0, 1, 0, me ^ 1) <= 0) {
+                return TablebaseValue.draw(depth);
+            }
+        }
+
+        return -1;
+    }
+
+    //Negamax where positions cut off at the depth are lost for the loser and won for the other player
+    private int search(TakBitState state, int depth, int alpha, int beta, int ply, int loser) {
+        if(isOver(state)) {
+            return getFinalScore(state, ply);
+        }
+        long hash = state.getHash();
+        if(known != null && ply > 0) {
+            int value = known.get(hash);
+            if(value > 0) {
+                return TablebaseValue.toScore(value, ply);
+            }
+        }
+        if(depth == 0) {
+            return state.getCurrent() == loser ? -HORIZON : HORIZON;
+        }
+        nodes++;
+
+        TranspositionTable table = tables[loser];
+        long entry = table.probe(hash);
+        if(entry != 0 && TranspositionTable.getDepth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.getScore(entry), ply);
+            int bound = TranspositionTable.getBound(entry);
+            if(bound == TranspositionTable.EXACT ||
+               (bound == TranspositionTable.LOWER && score >= beta) ||
+               (bound == TranspositionTable.UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+
+        int[] buffer = getMoves(state, ply);
+        int count = engine.getPossibleMoves(state, buffer);
+        if(entry != 0) {
+            moveToFront(buffer, count, TranspositionTable.getMove(entry));
+        }
+
+        int original = alpha;
+        int best = -INFINITY;
+        int bestMove = buffer[0];
+        for(int i = 0; i < count; i++) {
+            long undo = engine.makeMove(state, buffer[i]);
+            int score = -search(state, depth - 1, -beta, -alpha, ply + 1, loser);
+            engine.unmakeMove(state, undo);
+
+            if(score > best) {
+                best = score;
+                bestMove = buffer[i];
+                if(score > alpha) {
+                    alpha = score;
+                    if(alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound;
+        if(best >= beta) {
+            bound = TranspositionTable.LOWER;
+        }
+        else if(best > original) {
+            bound = TranspositionTable.EXACT;
+        }
+        else {
+            bound = TranspositionTable.UPPER;
+        }
+        table.store(hash, bestMove, toTable(best, ply), depth, bound);
+
+        return best;
+    }
+
+    private int[] getMoves(TakBitState state, int ply) {
+        int size = TakMoveGenerator.getMaxMoves(state.getSize());
+        if(moves[ply] == null || moves[ply].length != size) {
+            moves[ply] = new int[size];
+        }
+
+        return moves[ply];
+    }
+
+    private static void moveToFront(int[] buffer, int count, int move) {
+        for(int i = 0; i < count; i++) {
+            if(buffer[i] == move) {
+                System.arraycopy(buffer, 0, buffer, 1, i);
+                buffer[0] = move;
+                return;
+            }
+        }
+    }
+
+    private static boolean isOver(TakBitState state) {
+        return state.getStatus() != null && state.getStatus().isFinished();
+    }
+
+    private static int getFinalScore(TakBitState state, int ply) {
+        PlayerIndicator winner = state.getStatus().getWinner();
+        if(winner == null || winner == PlayerIndicator.NONE) {
+            return 0;
+        }
+
+        return winner == state.getCurrentPlayer() ? WIN - ply : ply - WIN;
+    }
+
+    private static int getFinalValue(TakBitState state, int ply) {
+        int score = getFinalScore(state, ply);
+        if(score == 0) {
+            return TablebaseValue.draw(ply);
+        }
+
+        return score > 0 ? TablebaseValue.win(ply) : TablebaseValue.loss(ply);
+    }
+
+    //Wins and losses are stored as distance from the position rather than the root, the horizon as it is
+    private static int toTable(int score, int ply) {
+        if(Math.abs(score) >= HORIZON) {
+            return score;
+        }
+        if(score > WIN - WIN_RANGE) {
+            return score + ply;
+        }
+        if(score < WIN_RANGE - WIN) {
+            return score - ply;
+        }
+
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if(Math.abs(score) >= HORIZON) {
+            return score;
+        }
+        if(score > WIN - WIN_RANGE) {
+            return score - ply;
+        }
+        if(score < WIN_RANGE - WIN) {
+            return score + ply;
+        }
+
+        return score;
+    }
+}
@@ -0,0 +1,230 @@
+package io.joshatron.tak.engine.turn;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameCommonErrorCode;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.exception.BoardGameErrorCode;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+
+import java.nio.ByteBuffer;
+
+//Reads the strings TakPlaceAction and TakMoveAction write, like "pc c3" or "mn a1 g3 1 2", in one pass
+//without creating anything, straight into packed moves. Text is read from a CharSequence or the remaining
+//bytes of a ByteBuffer as ASCII, and letters can be either case.
+//The parse methods return the packed move, or when the string is bad the negative of its error from
+//getError, so bad input from clients doesn't pay for building exceptions. Locations have to be on the board.
+public final class TakActionParser {
+    private static final TakEngineErrorCode[] ERRORS = TakEngineErrorCode.values();
+    //The one common error a string can have, numbered after the engine's own
+    private static final int INVALID_DIRECTION = -ERRORS.length - 1;
+
+    private TakActionParser() {
+    }
+
+    public static int parse(CharSequence action, int size) {
+        return parse(action, null, 0, action.length(), size);
+    }
+
+    //Reads from the position to the limit without moving the position
+    public static int parse(ByteBuffer action, int size) {
+        return parse(null, action, action.position(), action.limit(), size);
+    }
+
+    public static boolean isError(int result) {
+        return result < 0;
+    }
+
+    //The error for a failed parse, or null when the result is a move
+    public static BoardGameErrorCode getError(int result) {
+        if(result == INVALID_DIRECTION) {
+            return BoardGameCommonErrorCode.INVALID_DIRECTION;
+        }
+
+        return result < 0 ? ERRORS[-result - 1] : null;
+    }
+
+    public static int parseMove(CharSequence action, int size) throws BoardGameEngineException {
+        return checkResult(parse(action, size));
+    }
+
+    public static int parseMove(ByteBuffer action, int size) throws BoardGameEngineException {
+        return checkResult(parse(action, size));
+    }
+
+    public static Action parseAction(PlayerIndicator player, CharSequence action, int size) throws BoardGameEngineException {
+        return TakPackedMove.toAction(parseMove(action, size), player, size);
+    }
+
+    private static int checkResult(int result) throws BoardGameEngineException {
+        if(result < 0) {
+            throw new BoardGameEngineException(getError(result));
+        }
+
+        return result;
+    }
+
+    private static int error(TakEngineErrorCode error) {
+        return -error.ordinal() - 1;
+    }
+
+    //Only one of chars and bytes is given
+    private static int parse(CharSequence chars, ByteBuffer bytes, int start, int end, int size) {
+        if(start == end) {
+            return error(TakEngineErrorCode.INVALID_TURN_STRING);
+        }
+
+        char kind = charAt(chars, bytes, start);
+        if(kind == 'p') {
+            return parsePlace(chars, bytes, start + 1, end, size);
+        }
+        if(kind == 'm') {
+            return parseMove(chars, bytes, start + 1, end, size);
+        }
+
+        return error(TakEngineErrorCode.INVALID_TURN_STRING);
+    }
+
+    private static int parsePlace(CharSequence chars, ByteBuffer bytes, int i, int end, int size) {
+        PieceType type;
+        switch(i < end ? charAt(chars, bytes, i) : ' ') {
+            case 's':
+                type = PieceType.STONE;
+                break;
+            case 'w':
+                type = PieceType.WALL;
+                break;
+            case 'c':
+                type = PieceType.CAPSTONE;
+                break;
+            default:
+                return error(TakEngineErrorCode.INVALID_PIECE_TYPE);
+        }
+        i++;
+        if(i == end || charAt(chars, bytes, i) != ' ') {
+            return error(TakEngineErrorCode.INVALID_PIECE_TYPE);
+        }
+
+        int square = parseLocation(chars, bytes, i + 1, end, size);
+        if(square < 0) {
+            return square;
+        }
+        if(skipNumber(chars, bytes, i + 2, end) != end) {
+            return error(TakEngineErrorCode.INVALID_TURN_STRING);
+        }
+
+        return TakPackedMove.place(square, type);
+    }
+
+    private static int parseMove(CharSequence chars, ByteBuffer bytes, int i, int end, int size) {
+        int direction;
+        switch(i < end ? charAt(chars, bytes, i) : ' ') {
+            case 'n':
+                direction = 0;
+                break;
+            case 's':
+                direction = 1;
+                break;
+            case 'e':
+                direction = 2;
+                break;
+            case 'w':
+                direction = 3;
+                break;
+            default:
+                return INVALID_DIRECTION;
+        }
+        i++;
+        // Diagonals like ne have a second letter
+        if(i == end || charAt(chars, bytes, i) != ' ') {
+            return INVALID_DIRECTION;
+        }
+
+        int square = parseLocation(chars, bytes, ++i, end, size);
+        if(square < 0) {
+            return square;
+        }
+        i = skipNumber(chars, bytes, i + 1, end);
+        if(i == end || charAt(chars, bytes, i) != ' ') {
+            return error(TakEngineErrorCode.INVALID_TURN_STRING);
+        }
+        i++;
+        if(i == end || charAt(chars, bytes, i) != 'g') {
+            return error(TakEngineErrorCode.INVALID_PICKUP_AMOUNT);
+        }
+
+        int next = skipNumber(chars, bytes, ++i, end);
+        int pickedUp = readNumber(chars, bytes, i, next);
+        if(pickedUp < 1 || pickedUp > size) {
+            return error(TakEngineErrorCode.INVALID_PICKUP_AMOUNT);
+        }
+
+        int dropMask = 0;
+        int carried = 0;
+        i = next;
+        while(i < end) {
+            if(charAt(chars, bytes, i) != ' ') {
+                return error(TakEngineErrorCode.INVALID_TURN_STRING);
+            }
+            next = skipNumber(chars, bytes, ++i, end);
+            int drop = readNumber(chars, bytes, i, next);
+            if(drop < 1) {
+                return error(TakEngineErrorCode.INVALID_PLACE_AMOUNT);
+            }
+            carried += drop;
+            if(carried > pickedUp) {
+                return error(TakEngineErrorCode.PICK_UP_AND_PLACED_DO_NOT_MATCH);
+            }
+            dropMask |= 1 << (carried - 1);
+            i = next;
+        }
+        if(carried != pickedUp) {
+            return error(TakEngineErrorCode.PICK_UP_AND_PLACED_DO_NOT_MATCH);
+        }
+
+        return TakPackedMove.move(square, direction, pickedUp, dropMask);
+    }
+
+    //A file letter then a rank number, both starting at 1, returning the square
+    private static int parseLocation(CharSequence chars, ByteBuffer bytes, int i, int end, int size) {
+        if(i == end) {
+            return error(TakEngineErrorCode.INVALID_LOCATION);
+        }
+        int x = charAt(chars, bytes, i) - 'a';
+        int y = readNumber(chars, bytes, i + 1, skipNumber(chars, bytes, i + 1, end)) - 1;
+        if(x < 0 || x >= size || y < 0 || y >= size) {
+            return error(TakEngineErrorCode.INVALID_LOCATION);
+        }
+
+        return BitBoards.getSquare(size, x, y);
+    }
+
+    private static int skipNumber(CharSequence chars, ByteBuffer bytes, int i, int end) {
+        while(i < end && charAt(chars, bytes, i) >= '0' && charAt(chars, bytes, i) <= '9') {
+            i++;
+        }
+
+        return i;
+    }
+
+    //The number between the indexes, or -1 when there isn't one or it is far too big to matter
+    private static int readNumber(CharSequence chars, ByteBuffer bytes, int start, int end) {
+        if(start == end || end - start > 3) {
+            return -1;
+        }
+
+        int number = 0;
+        for(int i = start; i < end; i++) {
+            number = number * 10 + charAt(chars, bytes, i) - '0';
+        }
+
+        return number;
+    }
+
+    private static char charAt(CharSequence chars, ByteBuffer bytes, int i) {
+        char c = chars != null ? chars.charAt(i) : (char) (bytes.get(i) & 0xFF);
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
@@ -6,12 +6,11 @@ import io.joshatron.bgt.engine.board.grid.GridBoardLocation;
 import io.joshatron.bgt.engine.exception.BoardGameCommonErrorCode;
 import io.joshatron.bgt.engine.exception.BoardGameEngineException;
 import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
 import io.joshatron.tak.engine.exception.TakEngineErrorCode;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
-import java.util.Arrays;
-
 @Data
 @EqualsAndHashCode(callSuper = true)
 public class TakMoveAction extends Action {
@@ -53,26 +52,26 @@ public class TakMoveAction extends Action {
     //Pattern is "m[direction] [start location] g[picked up] [place 1] ... [place n]
     public TakMoveAction(PlayerIndicator player, String action) throws BoardGameEngineException {
         super(player);
-        String[] parts = action.toLowerCase().split(" ");
-
-        this.direction = Direction.fromString(parts[0].substring(1));
-        if(direction.isDiagonal()) {
-            throw new BoardGameEngineException(BoardGameCommonErrorCode.INVALID_DIRECTION);
-        }
-        this.startLocation = new GridBoardLocation(parts[1]);
-        this.pickedUp = Integer.parseInt(parts[2].substring(1));
-        this.placed = new int[parts.length - 3];
-        this.flattened = false;
-
-        for(int i = 0; i < placed.length; i++) {
-            placed[i] = Integer.parseInt(parts[i + 3]);
+        int move = TakActionParser.parseMove(action, BitBoards.MAX_SIZE);
+        if(!TakPackedMove.isMove(move)) {
+            throw new BoardGameEngineException(TakEngineErrorCode.INVALID_TURN_STRING);
         }
 
-        validatePickedUpVsPlaced();
+        int square = TakPackedMove.getSquare(move);
+        this.startLocation = new GridBoardLocation(BitBoards.getX(BitBoards.MAX_SIZE, square), BitBoards.getY(BitBoards.MAX_SIZE, square));
+        this.direction = TakPackedMove.getDirection(move);
+        this.pickedUp = TakPackedMove.getPickedUp(move);
+        this.placed = TakPackedMove.getDrops(TakPackedMove.getDropMask(move));
+        this.flattened = false;
     }
 
     private void validatePickedUpVsPlaced() throws BoardGameEngineException {
-        if(pickedUp != Arrays.stream(placed).reduce(0, Integer::sum)) {
+        int total = 0;
+        for(int place : placed) {
+            total += place;
+        }
+
+        if(pickedUp != total) {
             throw new BoardGameEngineException(TakEngineErrorCode.PICK_UP_AND_PLACED_DO_NOT_MATCH);
         }
     }
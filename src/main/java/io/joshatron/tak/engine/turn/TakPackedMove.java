@@ -0,0 +1,217 @@
+package io.joshatron.tak.engine.turn;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.board.grid.Direction;
+import io.joshatron.bgt.engine.board.grid.GridBoardLocation;
+import io.joshatron.bgt.engine.exception.BoardGameCommonErrorCode;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.exception.BoardGameErrorCode;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+
+//An action packed into an int so large numbers of them can be kept without an object each.
+//Bits 0-5 are the square (y * size + x) and bit 6 is set for a move.
+//For a place, bits 7-8 are the piece type.
+//For a move, bits 7-8 are the direction, bits 9-12 the number picked up and bits 13-20 the drop mask.
+//Bit i of the drop mask is set when the i-th piece carried (0 being the bottom) is the last one
+//dropped on its square, so the highest set bit is always picked up - 1.
+//Bit 21 records that the move flattened a wall, matching TakMoveAction.isFlattened().
+//The player is not packed, it is always the player whose turn it is.
+public final class TakPackedMove {
+    public static final int MAX_PICKUP = BitBoards.MAX_SIZE;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int MOVE_FLAG = 1 << 6;
+    private static final int KIND_SHIFT = 7;
+    private static final int KIND_MASK = 0x3;
+    private static final int PICKUP_SHIFT = 9;
+    private static final int PICKUP_MASK = 0xF;
+    private static final int DROP_SHIFT = 13;
+    private static final int DROP_MASK = 0xFF;
+    private static final int FLATTEN_FLAG = 1 << 21;
+
+    private static final PieceType[] TYPES = PieceType.values();
+    private static final Direction[] DIRECTIONS = {Direction.NORTH, Direction.SOUTH, Direction.EAST, Direction.WEST};
+
+    private TakPackedMove() {
+    }
+
+    public static int place(int square, PieceType type) {
+        return square | (type.ordinal() << KIND_SHIFT);
+    }
+
+    public static int move(int square, int direction, int pickedUp, int dropMask) {
+        return square | MOVE_FLAG | (direction << KIND_SHIFT) | (pickedUp << PICKUP_SHIFT) | (dropMask << DROP_SHIFT);
+    }
+
+    public static boolean isMove(int move) {
+        return (move & MOVE_FLAG) != 0;
+    }
+
+    public static int getSquare(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static PieceType getPieceType(int move) {
+        return TYPES[(move >>> KIND_SHIFT) & KIND_MASK];
+    }
+
+    public static int getDirectionIndex(int move) {
+        return (move >>> KIND_SHIFT) & KIND_MASK;
+    }
+
+    public static Direction getDirection(int move) {
+        return DIRECTIONS[getDirectionIndex(move)];
+    }
+
+    public static int getPickedUp(int move) {
+        return (move >>> PICKUP_SHIFT) & PICKUP_MASK;
+    }
+
+    public static int getDropMask(int move) {
+        return (move >>> DROP_SHIFT) & DROP_MASK;
+    }
+
+    public static int getDropCount(int move) {
+        return Integer.bitCount(getDropMask(move));
+    }
+
+    public static boolean isFlattened(int move) {
+        return (move & FLATTEN_FLAG) != 0;
+    }
+
+    public static int flatten(int move) {
+        return move | FLATTEN_FLAG;
+    }
+
+    //The move without anything recorded from applying it, so it compares equal to a generated move
+    public static int getBase(int move) {
+        return move & ~FLATTEN_FLAG;
+    }
+
+    public static int fromAction(Action action, int size) throws BoardGameEngineException {
+        BoardGameErrorCode error = check(action, size);
+        if(error != null) {
+            throw new BoardGameEngineException(error);
+        }
+
+        return pack(action, size);
+    }
+
+    //Why fromAction would reject the action, or null when it can be packed
+    public static BoardGameErrorCode check(Action action, int size) {
+        if(action instanceof TakPlaceAction) {
+            TakPlaceAction place = (TakPlaceAction) action;
+            if(place.getPieceType() == null) {
+                return TakEngineErrorCode.INVALID_PIECE_TYPE;
+            }
+            return checkLocation(place.getLocation(), size);
+        }
+        if(!(action instanceof TakMoveAction)) {
+            return TakEngineErrorCode.ILLEGAL_TYPE;
+        }
+
+        TakMoveAction move = (TakMoveAction) action;
+        if(getDirectionIndex(move.getDirection()) < 0) {
+            return BoardGameCommonErrorCode.INVALID_DIRECTION;
+        }
+        if(move.getPickedUp() < 1 || move.getPickedUp() > MAX_PICKUP) {
+            return TakEngineErrorCode.INVALID_PICKUP_AMOUNT;
+        }
+        if(move.getPlaced() == null) {
+            return TakEngineErrorCode.INVALID_PLACE_AMOUNT;
+        }
+        int total = 0;
+        for(int place : move.getPlaced()) {
+            if(place < 1) {
+                return TakEngineErrorCode.INVALID_PLACE_AMOUNT;
+            }
+            total += place;
+        }
+        if(total != move.getPickedUp()) {
+            return TakEngineErrorCode.PICK_UP_AND_PLACED_DO_NOT_MATCH;
+        }
+
+        return checkLocation(move.getStartLocation(), size);
+    }
+
+    //Packs an action check accepted
+    public static int pack(Action action, int size) {
+        if(action instanceof TakPlaceAction) {
+            TakPlaceAction place = (TakPlaceAction) action;
+            return place(getSquare(place.getLocation(), size), place.getPieceType());
+        }
+
+        TakMoveAction move = (TakMoveAction) action;
+        int packed = move(getSquare(move.getStartLocation(), size), getDirectionIndex(move.getDirection()),
+                          move.getPickedUp(), getDropMask(move.getPlaced()));
+        return move.isFlattened() ? flatten(packed) : packed;
+    }
+
+    public static Action toAction(int move, PlayerIndicator player, int size) throws BoardGameEngineException {
+        GridBoardLocation location = new GridBoardLocation(BitBoards.getX(size, getSquare(move)), BitBoards.getY(size, getSquare(move)));
+        if(!isMove(move)) {
+            return new TakPlaceAction(player, location, getPieceType(move));
+        }
+
+        TakMoveAction action = new TakMoveAction(player, location, getPickedUp(move), getDirection(move), getDrops(getDropMask(move)));
+        if(isFlattened(move)) {
+            action.flatten();
+        }
+
+        return action;
+    }
+
+    private static BoardGameErrorCode checkLocation(GridBoardLocation location, int size) {
+        if(location == null || location.getX() < 0 || location.getX() >= size || location.getY() < 0 || location.getY() >= size) {
+            return TakEngineErrorCode.INVALID_LOCATION;
+        }
+
+        return null;
+    }
+
+    private static int getSquare(GridBoardLocation location, int size) {
+        return BitBoards.getSquare(size, location.getX(), location.getY());
+    }
+
+    //The directions in the order their index is packed
+    public static Direction[] getDirections() {
+        return DIRECTIONS.clone();
+    }
+
+    public static int getDirectionIndex(Direction direction) {
+        for(int i = 0; i < DIRECTIONS.length; i++) {
+            if(DIRECTIONS[i] == direction) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    public static int getDropMask(int[] placed) {
+        int mask = 0;
+        int carried = 0;
+        for(int place : placed) {
+            carried += place;
+            mask |= 1 << (carried - 1);
+        }
+
+        return mask;
+    }
+
+    public static int[] getDrops(int dropMask) {
+        int[] placed = new int[Integer.bitCount(dropMask)];
+        int last = -1;
+        for(int i = 0; i < placed.length; i++) {
+            int end = Integer.numberOfTrailingZeros(dropMask);
+            placed[i] = end - last;
+            last = end;
+            dropMask &= dropMask - 1;
+        }
+
+        return placed;
+    }
+}
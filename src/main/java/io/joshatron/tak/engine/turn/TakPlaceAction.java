@@ -4,6 +4,7 @@ import io.joshatron.bgt.engine.action.Action;
 import io.joshatron.bgt.engine.board.grid.GridBoardLocation;
 import io.joshatron.bgt.engine.exception.BoardGameEngineException;
 import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
 import io.joshatron.tak.engine.board.PieceType;
 import io.joshatron.tak.engine.exception.TakEngineErrorCode;
 import lombok.Data;
@@ -31,14 +32,14 @@ public class TakPlaceAction extends Action {
     //Pattern is "p[piece type] [location]
     public TakPlaceAction(PlayerIndicator player, String action) throws BoardGameEngineException {
         super(player);
-        action = action.toLowerCase();
-        String[] parts = action.toLowerCase().split(" ");
-        if(parts.length != 2) {
+        int move = TakActionParser.parseMove(action, BitBoards.MAX_SIZE);
+        if(TakPackedMove.isMove(move)) {
             throw new BoardGameEngineException(TakEngineErrorCode.INVALID_TURN_STRING);
         }
 
-        this.pieceType = PieceType.fromString(parts[0].substring(1));
-        this.location = new GridBoardLocation(parts[1]);
+        int square = TakPackedMove.getSquare(move);
+        this.pieceType = TakPackedMove.getPieceType(move);
+        this.location = new GridBoardLocation(BitBoards.getX(BitBoards.MAX_SIZE, square), BitBoards.getY(BitBoards.MAX_SIZE, square));
     }
 
     @Override
@@ -0,0 +1,150 @@
+package io.joshatron.tak.engine.archive;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.simulation.GameRecord;
+import io.joshatron.tak.engine.simulation.RandomMovePolicy;
+import io.joshatron.tak.engine.simulation.TakSimulator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class GameArchiveTest {
+    //Simulated games have to read back the same, with a window small enough that games cross its end
+    @Test
+    public void roundTrip() {
+        try {
+            List<GameRecord> records = Collections.synchronizedList(new ArrayList<>());
+            int[] sizes = {3, 4, 5, 6, 8};
+            for(int size : sizes) {
+                TakSimulator simulator = new TakSimulator(size, 1, 4, 150, RandomMovePolicy::new);
+                simulator.run(8, size, records::add);
+                simulator.shutdown();
+            }
+
+            Path path = Files.createTempFile("tak", ".archive");
+            try(GameArchiveWriter writer = new GameArchiveWriter(Files.newOutputStream(path))) {
+                for(GameRecord record : records) {
+                    writer.write(record);
+                }
+            }
+            // Flat places take a byte, so games average only a couple of bytes a move
+            long plies = records.stream().mapToLong(GameRecord::getPlies).sum();
+            Assert.assertTrue(Files.size(path) < plies * 3);
+
+            for(long window : new long[] {64, 1L << 30}) {
+                try(GameArchiveReader reader = new GameArchiveReader(path, window)) {
+                    for(int i = 0; i < records.size(); i++) {
+                        GameRecord record = records.get(i);
+                        Assert.assertTrue(reader.next());
+                        Assert.assertEquals(record.getSize(), reader.getSize());
+                        Assert.assertEquals(record.getFirst(), reader.getFirst());
+                        Assert.assertEquals(record.getStatus(), reader.getStatus());
+                        Assert.assertEquals(record.getPlies(), reader.getPlies());
+                        // Skipping some games without decoding them
+                        if(i % 3 == 2) {
+                            continue;
+                        }
+                        Assert.assertArrayEquals(record.getMoves(), reader.getMoves());
+                        Assert.assertEquals(record.getStatus(), reader.replay(i % 2 == 0).getStatus());
+                    }
+                    Assert.assertFalse(reader.next());
+                }
+            }
+            Files.delete(path);
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void writeState() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakState state = new TakState(PlayerIndicator.BLACK, 5);
+            TakBitState bitState = new TakBitState(state);
+            Random rand = new Random(5);
+            for(int i = 0; i < 40 && !state.getStatus().isFinished(); i++) {
+                int move = engine.getRandomMove(bitState, rand);
+                engine.makeMove(bitState, move);
+                engine.submitAction(state, move);
+            }
+
+            Path path = Files.createTempFile("tak", ".archive");
+            try(GameArchiveWriter writer = new GameArchiveWriter(Files.newOutputStream(path))) {
+                writer.write(state);
+            }
+            try(GameArchiveReader reader = new GameArchiveReader(path)) {
+                Assert.assertTrue(reader.next());
+                Assert.assertEquals(PlayerIndicator.BLACK, reader.getFirst());
+                GameRecord record = reader.getRecord();
+                TakState replayed = new TakState(PlayerIndicator.BLACK, 5);
+                for(Action action : record.getActions()) {
+                    engine.submitAction(replayed, action);
+                }
+                Assert.assertEquals(state, replayed);
+                Assert.assertEquals(bitState, reader.replay(true));
+                Assert.assertFalse(reader.next());
+            }
+            Files.delete(path);
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void corruptArchives() {
+        try {
+            Path path = Files.createTempFile("tak", ".archive");
+            try(GameArchiveWriter writer = new GameArchiveWriter(Files.newOutputStream(path))) {
+                writer.write(5, PlayerIndicator.WHITE, new int[] {0, 24, 1}, 3, null);
+            }
+            byte[] good = Files.readAllBytes(path);
+
+            // A bad header, a game cut short, a board size that doesn't exist and a move count that is too high
+            assertCorrupt(path, Arrays.copyOf(new byte[] {'T', 'A', 'K', 'X', 1}, 5), TakEngineErrorCode.INVALID_GAME_RECORD);
+            assertCorrupt(path, Arrays.copyOf(good, good.length - 1), TakEngineErrorCode.INVALID_GAME_RECORD);
+            byte[] bad = good.clone();
+            bad[GameArchive.HEADER_LENGTH + 1] = 7;
+            assertCorrupt(path, bad, TakEngineErrorCode.INVALID_BOARD_SIZE);
+            bad = good.clone();
+            bad[GameArchive.HEADER_LENGTH + 4] = 4;
+            assertCorrupt(path, bad, TakEngineErrorCode.INVALID_GAME_RECORD);
+            Files.delete(path);
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    private static void assertCorrupt(Path path, byte[] bytes, TakEngineErrorCode error) throws IOException {
+        try(OutputStream out = Files.newOutputStream(path)) {
+            out.write(bytes);
+        }
+
+        try(GameArchiveReader reader = new GameArchiveReader(path)) {
+            reader.next();
+            reader.getMoves();
+            Assert.fail();
+        } catch(BoardGameEngineException e) {
+            Assert.assertEquals(error, e.getCode());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package io.joshatron.tak.engine.board;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class RoadGroupsTest {
+    //Random pieces are added and removed a few at a time, like a spread would,
+    //and the groups have to match a flood fill of the whole board
+
+    private void verifyRandomUpdates(int size, long seed) {
+        RoadGroups groups = new RoadGroups(size);
+        Random rand = new Random(seed);
+        long pieces = 0;
+
+        for(int i = 0; i < 500; i++) {
+            for(int change = rand.nextInt(4); change >= 0; change--) {
+                pieces ^= BitBoards.bit(rand.nextInt(size * size));
+            }
+            groups.update(pieces);
+
+            Assert.assertEquals(BitBoards.hasRoad(pieces, size), groups.hasRoad());
+            long covered = 0;
+            for(int g = 0; g < groups.getGroupCount(); g++) {
+                long group = groups.getGroup(g);
+                Assert.assertEquals(0, covered & group);
+                Assert.assertEquals(BitBoards.flood(group, pieces, size), group);
+                covered |= group;
+            }
+            Assert.assertEquals(pieces, covered);
+        }
+    }
+
+    @Test
+    public void groupsMatchFloodFill() {
+        int[] sizes = {3, 4, 5, 6, 8};
+        for(int size : sizes) {
+            for(int run = 0; run < 5; run++) {
+                verifyRandomUpdates(size, size * 100 + run);
+            }
+        }
+    }
+
+    @Test
+    public void roadAppearsAndBreaks() {
+        RoadGroups groups = new RoadGroups(5);
+        long row = 0;
+        for(int x = 0; x < 5; x++) {
+            row |= BitBoards.bit(BitBoards.getSquare(5, x, 2));
+        }
+
+        groups.update(row & ~BitBoards.bit(BitBoards.getSquare(5, 2, 2)));
+        Assert.assertFalse(groups.hasRoad());
+        Assert.assertEquals(2, groups.getGroupCount());
+        groups.update(row);
+        Assert.assertTrue(groups.hasRoad());
+        Assert.assertEquals(1, groups.getGroupCount());
+        groups.update(row & ~BitBoards.bit(BitBoards.getSquare(5, 4, 2)));
+        Assert.assertFalse(groups.hasRoad());
+    }
+}
@@ -0,0 +1,72 @@
+package io.joshatron.tak.engine.board;
+
+import io.joshatron.bgt.engine.board.grid.Direction;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.game.TakUndo;
+import io.joshatron.tak.engine.turn.TakMoveAction;
+import io.joshatron.tak.engine.turn.TakPlaceAction;
+import org.apache.commons.lang.SerializationUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TakPieceTest {
+    @Test
+    public void piecesAreShared() {
+        for(PieceType type : PieceType.values()) {
+            Assert.assertSame(TakPiece.of(PlayerIndicator.WHITE, type), TakPiece.of(PlayerIndicator.WHITE, type));
+            Assert.assertSame(TakPiece.of(PlayerIndicator.BLACK, type), TakPiece.of(PlayerIndicator.BLACK, type));
+            Assert.assertEquals(PlayerIndicator.BLACK, TakPiece.of(PlayerIndicator.BLACK, type).getOwner());
+            Assert.assertEquals(type, TakPiece.of(PlayerIndicator.BLACK, type).getType());
+
+            TakPiece piece = TakPiece.of(PlayerIndicator.BLACK, type);
+            Assert.assertSame(piece, SerializationUtils.clone(piece));
+        }
+    }
+
+    //Flattening a wall swaps the piece, so every other wall stays standing
+    @Test
+    public void flattenLeavesOtherWalls() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakState state = new TakState(PlayerIndicator.WHITE, 5);
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 0, 0, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 4, 4, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 2, 2, PieceType.CAPSTONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 2, 1, PieceType.WALL));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 0, 4, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 2, 3, PieceType.WALL));
+
+            TakState before = (TakState) SerializationUtils.clone(state);
+            TakUndo undo = engine.makeAction(state, new TakMoveAction(PlayerIndicator.WHITE, 2, 2, 1, Direction.NORTH, new int[]{1}));
+            TakPiece flattened = state.getBoard().getTile(2, 1).getTopPiece().getType() == PieceType.CAPSTONE ?
+                    state.getBoard().getTile(2, 1).getPieces().get(0) : state.getBoard().getTile(2, 3).getPieces().get(0);
+            Assert.assertSame(TakPiece.of(PlayerIndicator.BLACK, PieceType.STONE), flattened);
+            Assert.assertEquals(1, countWalls(state));
+
+            engine.unmakeAction(state, undo);
+            Assert.assertEquals(before, state);
+            Assert.assertEquals(2, countWalls(state));
+            Assert.assertSame(TakPiece.of(PlayerIndicator.BLACK, PieceType.WALL), state.getBoard().getTile(2, 1).getTopPiece());
+            Assert.assertSame(TakPiece.of(PlayerIndicator.BLACK, PieceType.WALL), state.getBoard().getTile(2, 3).getTopPiece());
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    private int countWalls(TakState state) throws BoardGameEngineException {
+        int walls = 0;
+        for(int x = 0; x < state.getSize(); x++) {
+            for(int y = 0; y < state.getSize(); y++) {
+                TakPiece top = state.getBoard().getTile(x, y).getTopPiece();
+                if(top != null && top.getType() == PieceType.WALL) {
+                    walls++;
+                }
+            }
+        }
+
+        return walls;
+    }
+}
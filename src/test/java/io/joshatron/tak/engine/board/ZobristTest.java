@@ -0,0 +1,79 @@
+package io.joshatron.tak.engine.board;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.turn.TakPlaceAction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class ZobristTest {
+    //The hashes kept up to date by the engine have to match ones worked out from scratch
+
+    private void verifyRandomGame(int size, PlayerIndicator first, long seed) throws BoardGameEngineException {
+        TakEngine engine = new TakEngine();
+        TakState state = new TakState(first, size);
+        TakBitState bitState = new TakBitState(first, size);
+        Random rand = new Random(seed);
+        Assert.assertEquals(state.computeHash(), state.getHash());
+        Assert.assertEquals(state.getHash(), bitState.getHash());
+
+        while(!state.getStatus().isComplete() && state.getGameLog().size() < 200) {
+            List<Action> actions = engine.getPossibleActions(state);
+            Action action = actions.get(rand.nextInt(actions.size()));
+            engine.submitAction(state, action);
+            engine.submitAction(bitState, action);
+
+            Assert.assertEquals(state.computeHash(), state.getHash());
+            Assert.assertEquals(bitState.computeHash(), bitState.getHash());
+            Assert.assertEquals(state.getHash(), bitState.getHash());
+            Assert.assertEquals(state.getHash(), new TakBitState(state).getHash());
+        }
+    }
+
+    @Test
+    public void keptHashMatchesComputed() {
+        try {
+            int[] sizes = {3, 4, 5, 6, 8};
+            for(int size : sizes) {
+                for(int game = 0; game < 6; game++) {
+                    verifyRandomGame(size, game % 2 == 0 ? PlayerIndicator.WHITE : PlayerIndicator.BLACK, size * 1000 + game);
+                }
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //Tests that the same position reached in a different order hashes the same
+    @Test
+    public void transpositionsHashTheSame() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakState first = new TakState(PlayerIndicator.WHITE, 5);
+            TakState second = new TakState(PlayerIndicator.WHITE, 5);
+            engine.submitAction(first, new TakPlaceAction(PlayerIndicator.WHITE, 0, 0, PieceType.STONE));
+            engine.submitAction(first, new TakPlaceAction(PlayerIndicator.BLACK, 4, 4, PieceType.STONE));
+            engine.submitAction(second, new TakPlaceAction(PlayerIndicator.WHITE, 0, 0, PieceType.STONE));
+            engine.submitAction(second, new TakPlaceAction(PlayerIndicator.BLACK, 4, 4, PieceType.STONE));
+
+            engine.submitAction(first, new TakPlaceAction(PlayerIndicator.WHITE, 1, 1, PieceType.STONE));
+            engine.submitAction(first, new TakPlaceAction(PlayerIndicator.BLACK, 2, 2, PieceType.WALL));
+            engine.submitAction(first, new TakPlaceAction(PlayerIndicator.WHITE, 3, 3, PieceType.STONE));
+            Assert.assertNotEquals(first.getHash(), second.getHash());
+
+            engine.submitAction(second, new TakPlaceAction(PlayerIndicator.WHITE, 3, 3, PieceType.STONE));
+            engine.submitAction(second, new TakPlaceAction(PlayerIndicator.BLACK, 2, 2, PieceType.WALL));
+            engine.submitAction(second, new TakPlaceAction(PlayerIndicator.WHITE, 1, 1, PieceType.STONE));
+            Assert.assertEquals(first.getHash(), second.getHash());
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+}
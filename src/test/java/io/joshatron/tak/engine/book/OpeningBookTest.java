@@ -0,0 +1,236 @@
+package io.joshatron.tak.engine.book;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.bgt.engine.state.Status;
+import io.joshatron.tak.engine.archive.GameArchiveReader;
+import io.joshatron.tak.engine.archive.GameArchiveWriter;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakStatus;
+import io.joshatron.tak.engine.game.WinReason;
+import io.joshatron.tak.engine.search.MctsResult;
+import io.joshatron.tak.engine.search.MctsSearch;
+import io.joshatron.tak.engine.search.SearchResult;
+import io.joshatron.tak.engine.search.TakSearch;
+import io.joshatron.tak.engine.simulation.GameRecord;
+import io.joshatron.tak.engine.simulation.RandomMovePolicy;
+import io.joshatron.tak.engine.simulation.TakSimulator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class OpeningBookTest {
+    private static final int PLIES = 6;
+
+    //Every opening played has to be found again with the right counts, whether built from records or an archive
+    @Test
+    public void buildAndProbe() {
+        try {
+            List<GameRecord> records = simulate(5, 60);
+            List<GameRecord> others = simulate(3, 10);
+            //A draw over the first game's moves, since random games hardly ever end in one
+            GameRecord first = records.get(0);
+            records.add(new GameRecord(5, first.getFirst(), first.getMoves(), new TakStatus(Status.COMPLETE, null, WinReason.BOARD_FULL, 0)));
+
+            Path archive = Files.createTempFile("tak", ".archive");
+            try(GameArchiveWriter writer = new GameArchiveWriter(Files.newOutputStream(archive))) {
+                for(int i = 0; i < records.size(); i++) {
+                    writer.write(records.get(i));
+                    writer.write(others.get(i % others.size()));
+                }
+            }
+
+            OpeningBookBuilder fromRecords = new OpeningBookBuilder(5, PLIES);
+            int finished = 0;
+            int wins = 0;
+            int draws = 0;
+            for(GameRecord record : records) {
+                boolean added = fromRecords.add(record);
+                Assert.assertEquals(record.getStatus().isFinished(), added);
+                finished += added ? 1 : 0;
+                if(added) {
+                    PlayerIndicator winner = record.getStatus().getWinner();
+                    if(winner == null || winner == PlayerIndicator.NONE) {
+                        draws++;
+                    }
+                    else if(winner == record.getFirst()) {
+                        wins++;
+                    }
+                }
+                Assert.assertFalse(fromRecords.add(others.get(0)));
+            }
+            Assert.assertTrue(finished > 0);
+            OpeningBookBuilder fromArchive = new OpeningBookBuilder(5, PLIES);
+            try(GameArchiveReader reader = new GameArchiveReader(archive)) {
+                Assert.assertEquals(finished, fromArchive.add(reader));
+            }
+
+            Path path = Files.createTempFile("tak", ".book");
+            Path other = Files.createTempFile("tak", ".book");
+            try(OutputStream out = Files.newOutputStream(path)) {
+                fromRecords.write(out, 1);
+            }
+            try(OutputStream out = Files.newOutputStream(other)) {
+                fromArchive.write(out, 1);
+            }
+            Assert.assertArrayEquals(Files.readAllBytes(path), Files.readAllBytes(other));
+
+            TakEngine engine = new TakEngine();
+            try(OpeningBook book = new OpeningBook(path)) {
+                Assert.assertEquals(5, book.getSize());
+                Assert.assertEquals(PLIES, book.getMaxPlies());
+
+                // Every game starts from the same position, so its moves cover all the games
+                TakBitState start = new TakBitState(PlayerIndicator.WHITE, 5);
+                int games = 0;
+                int startWins = 0;
+                int startDraws = 0;
+                for(BookMove move : book.getMoves(start)) {
+                    games += move.getGames();
+                    startWins += move.getWins();
+                    startDraws += move.getDraws();
+                    Assert.assertEquals(move.getGames(), move.getWins() + move.getDraws() + move.getLosses());
+                }
+                Assert.assertEquals(finished, games);
+                Assert.assertEquals(wins, startWins);
+                Assert.assertEquals(draws, startDraws);
+                Assert.assertTrue(draws > 0);
+                Assert.assertEquals(book.getMoves(start).get(0).getMove(), book.getBestMove(start));
+
+                Random rand = new Random(3);
+                for(GameRecord record : records) {
+                    if(!record.getStatus().isFinished()) {
+                        continue;
+                    }
+                    TakBitState state = new TakBitState(record.getFirst(), 5);
+                    for(int i = 0; i < record.getPlies(); i++) {
+                        int move = record.getMoves()[i];
+                        if(i < PLIES) {
+                            Assert.assertNotNull(book.getEntry(state, move));
+                            Assert.assertTrue(engine.isLegalAction(state, book.getMove(state, rand)));
+                        }
+                        else {
+                            Assert.assertFalse(book.contains(state));
+                            Assert.assertEquals(-1, book.getMove(state, rand));
+                            break;
+                        }
+                        engine.submitAction(state, move);
+                    }
+                }
+                Assert.assertFalse(book.contains(new TakBitState(PlayerIndicator.WHITE, 6)));
+                Assert.assertFalse(book.contains(new TakBitState(PlayerIndicator.BLACK, 5)));
+            }
+            Files.delete(archive);
+            Files.delete(path);
+            Files.delete(other);
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    //Searches answer positions in the book without searching, and search the rest as usual
+    @Test
+    public void searchUsesBook() {
+        try {
+            OpeningBookBuilder builder = new OpeningBookBuilder(4, 2);
+            for(GameRecord record : simulate(4, 20)) {
+                builder.add(record);
+            }
+            Path path = Files.createTempFile("tak", ".book");
+            try(OutputStream out = Files.newOutputStream(path)) {
+                builder.write(out, 1);
+            }
+
+            TakEngine engine = new TakEngine();
+            MctsSearch mcts = new MctsSearch(1, 10000);
+            try(OpeningBook book = new OpeningBook(path)) {
+                TakSearch search = new TakSearch(1 << 20);
+                search.setBook(book);
+                mcts.setBook(book);
+                TakBitState state = new TakBitState(PlayerIndicator.WHITE, 4);
+
+                SearchResult result = search.search(state, 4, 0);
+                Assert.assertEquals(0, result.getDepth());
+                Assert.assertEquals(0, result.getNodes());
+                Assert.assertEquals(book.getBestMove(state), result.getMove());
+                MctsResult mctsResult = mcts.search(state, 100, 0);
+                Assert.assertEquals(0, mctsResult.getPlayouts());
+                Assert.assertNotNull(book.getEntry(state, mctsResult.getMove()));
+
+                engine.submitAction(state, result.getMove());
+                engine.submitAction(state, book.getBestMove(state));
+                Assert.assertFalse(book.contains(state));
+                Assert.assertTrue(search.search(state, 2, 0).getDepth() > 0);
+                Assert.assertTrue(mcts.search(state, 100, 0).getPlayouts() > 0);
+            } finally {
+                mcts.shutdown();
+            }
+            Files.delete(path);
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void corruptBook() {
+        try {
+            OpeningBookBuilder builder = new OpeningBookBuilder(3, 4);
+            for(GameRecord record : simulate(3, 5)) {
+                builder.add(record);
+            }
+            Path path = Files.createTempFile("tak", ".book");
+            try(OutputStream out = Files.newOutputStream(path)) {
+                builder.write(out, 1);
+            }
+            byte[] good = Files.readAllBytes(path);
+
+            byte[] bad = good.clone();
+            bad[3] = 'X';
+            assertCorrupt(path, bad, TakEngineErrorCode.INVALID_OPENING_BOOK);
+            assertCorrupt(path, Arrays.copyOf(good, good.length - 1), TakEngineErrorCode.INVALID_OPENING_BOOK);
+            bad = good.clone();
+            bad[OpeningBook.MAGIC.length + 1] = 7;
+            assertCorrupt(path, bad, TakEngineErrorCode.INVALID_BOARD_SIZE);
+            Files.delete(path);
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    private static List<GameRecord> simulate(int size, int games) throws BoardGameEngineException {
+        List<GameRecord> records = Collections.synchronizedList(new ArrayList<>());
+        TakSimulator simulator = new TakSimulator(size, 1, 4, 400, RandomMovePolicy::new);
+        simulator.run(games, size, records::add);
+        simulator.shutdown();
+        return records;
+    }
+
+    private static void assertCorrupt(Path path, byte[] bytes, TakEngineErrorCode error) throws IOException {
+        try(OutputStream out = Files.newOutputStream(path)) {
+            out.write(bytes);
+        }
+
+        try(OpeningBook book = new OpeningBook(path)) {
+            Assert.fail();
+        } catch(BoardGameEngineException e) {
+            Assert.assertEquals(error, e.getCode());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import org.apache.commons.lang.SerializationUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class GenerationPolicyTest {
+    //States from a few random games, so the batch has first turns, main turns and different sizes
+    private List<TakState> getStates() throws BoardGameEngineException {
+        TakEngine engine = new TakEngine();
+        Random rand = new Random(9);
+        List<TakState> states = new ArrayList<>();
+        for(int size : new int[] {3, 4, 5, 6, 8}) {
+            TakState state = new TakState(PlayerIndicator.WHITE, size);
+            for(int i = 0; i < 12 && !state.getStatus().isComplete(); i++) {
+                states.add((TakState) SerializationUtils.clone(state));
+                List<Action> actions = engine.getPossibleActions(state);
+                engine.submitAction(state, actions.get(rand.nextInt(actions.size())));
+            }
+        }
+
+        return states;
+    }
+
+    private void verifyPolicy(GenerationPolicy policy) throws BoardGameEngineException {
+        List<TakState> states = getStates();
+        TakEngine engine = new TakEngine(policy);
+        List<List<Action>> actions = engine.getPossibleActions(states);
+
+        Assert.assertEquals(states.size(), actions.size());
+        for(int i = 0; i < states.size(); i++) {
+            Assert.assertEquals(engine.getPossibleActions(states.get(i)), actions.get(i));
+        }
+    }
+
+    @Test
+    public void sequentialMatchesSingleStates() {
+        try {
+            verifyPolicy(new SequentialGenerationPolicy());
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void batchedMatchesSingleStates() {
+        BatchedGenerationPolicy policy = new BatchedGenerationPolicy(3, 5);
+        try {
+            verifyPolicy(policy);
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } finally {
+            policy.shutdown();
+        }
+    }
+
+    @Test
+    public void emptyBatch() {
+        BatchedGenerationPolicy policy = new BatchedGenerationPolicy(2, 0);
+        try {
+            Assert.assertEquals(1, policy.getBatchSize());
+            Assert.assertTrue(new TakEngine(policy).getPossibleActions(new ArrayList<>()).isEmpty());
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } finally {
+            policy.shutdown();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.board.grid.Direction;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.turn.TakMoveAction;
+import io.joshatron.tak.engine.turn.TakPlaceAction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+public class TakBitStateTest {
+    //These tests use TakState as the oracle.
+    //Random games are played on both representations and they must agree at every step.
+
+    private void playRandomGame(int size, PlayerIndicator first, long seed) throws BoardGameEngineException {
+        TakEngine engine = new TakEngine();
+        TakState state = new TakState(first, size);
+        TakBitState bitState = new TakBitState(first, size);
+        Random rand = new Random(seed);
+
+        for(int ply = 0; ply < 300 && !state.getStatus().isComplete(); ply++) {
+            List<Action> actions = engine.getPossibleActions(state);
+            List<Action> bitActions = engine.getPossibleActions(bitState);
+            Assert.assertEquals(new HashSet<>(actions), new HashSet<>(bitActions));
+            Assert.assertEquals(actions.size(), bitActions.size());
+
+            Action action = actions.get(rand.nextInt(actions.size()));
+            Assert.assertTrue(engine.isLegalAction(bitState, action));
+            engine.submitAction(state, action);
+            engine.submitAction(bitState, action);
+
+            Assert.assertEquals(state.getStatus(), bitState.getStatus());
+            Assert.assertEquals(new TakBitState(state), bitState);
+        }
+    }
+
+    @Test
+    public void randomGamesMatchTakState() {
+        try {
+            int[] sizes = {3, 4, 5, 6, 8};
+            for(int size : sizes) {
+                for(int game = 0; game < 10; game++) {
+                    playRandomGame(size, game % 2 == 0 ? PlayerIndicator.WHITE : PlayerIndicator.BLACK, size * 100 + game);
+                }
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void startingReserves() {
+        try {
+            TakBitState state = new TakBitState(PlayerIndicator.WHITE, 5);
+            Assert.assertEquals(21, state.getStones(TakBitState.WHITE));
+            Assert.assertEquals(1, state.getCapstones(TakBitState.BLACK));
+            Assert.assertEquals(PlayerIndicator.WHITE, state.getCurrentPlayer());
+            state = new TakBitState(PlayerIndicator.BLACK, 8);
+            Assert.assertEquals(50, state.getStones(TakBitState.BLACK));
+            Assert.assertEquals(2, state.getCapstones(TakBitState.WHITE));
+            Assert.assertEquals(PlayerIndicator.BLACK, state.getCurrentPlayer());
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+
+        try {
+            new TakBitState(PlayerIndicator.WHITE, 7);
+            Assert.fail("Size 7 should not be allowed");
+        } catch (BoardGameEngineException e) {
+            Assert.assertEquals("INVALID_BOARD_SIZE", e.getCode().getName());
+        }
+    }
+
+    //Tests that a capstone flattens a wall and stacks keep the right owners
+    @Test
+    public void capstoneFlattensWall() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakBitState state = new TakBitState(PlayerIndicator.WHITE, 5);
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 4, 4, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 0, 4, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 0, 0, PieceType.CAPSTONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 3, 0, PieceType.WALL));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 1, 0, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 3, 3, PieceType.STONE));
+
+            TakMoveAction move = new TakMoveAction(PlayerIndicator.WHITE, 0, 0, 1, Direction.EAST, new int[]{1});
+            engine.submitAction(state, move);
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 3, 2, PieceType.STONE));
+            move = new TakMoveAction(PlayerIndicator.WHITE, 1, 0, 2, Direction.EAST, new int[]{1, 1});
+            Assert.assertTrue(engine.isLegalAction(state, move));
+            engine.submitAction(state, move);
+            Assert.assertTrue(move.isFlattened());
+
+            int square = state.getSquare(move.getStartLocation()) + 2;
+            Assert.assertEquals(2, state.getHeight(square));
+            Assert.assertEquals(PieceType.CAPSTONE, state.getTopType(square));
+            Assert.assertEquals(TakBitState.BLACK, state.getOwner(square, 0));
+            Assert.assertEquals(TakBitState.WHITE, state.getOwner(square, 1));
+            Assert.assertEquals(PieceType.STONE, state.getTopType(square - 1));
+            Assert.assertEquals(0, state.getPieces(TakBitState.BLACK, PieceType.WALL));
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+}
@@ -7,13 +7,17 @@ import io.joshatron.bgt.engine.exception.BoardGameEngineException;
 import io.joshatron.bgt.engine.player.PlayerIndicator;
 import io.joshatron.bgt.engine.state.Status;
 import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
 import io.joshatron.tak.engine.turn.TakMoveAction;
+import io.joshatron.tak.engine.turn.TakPackedMove;
 import io.joshatron.tak.engine.turn.TakPlaceAction;
 import org.apache.commons.lang.SerializationUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 public class TakEngineTest {
     //These tests are set up to be closer to black box testing.
@@ -871,6 +875,83 @@ public class TakEngineTest {
         }
     }
 
+    //Tests that checkAction gives the reason an action is rejected without throwing
+    @Test
+    public void checkActionReasons() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakState state = initializeState(5);
+            TakBitState bitState = new TakBitState(state);
+            PlayerIndicator player = state.getCurrentPlayerInfo().getIdentifier();
+
+            Action[] actions = {
+                new TakPlaceAction(player, 2, 2, PieceType.STONE),
+                new TakPlaceAction(player, 0, 0, PieceType.STONE),
+                new TakPlaceAction(player, 5, 0, PieceType.WALL),
+                new TakPlaceAction(PlayerIndicator.BLACK, 2, 2, PieceType.STONE),
+                new TakMoveAction(player, 0, 0, 1, Direction.SOUTH, new int[]{1}),
+                new TakMoveAction(player, 1, 0, 2, Direction.SOUTH, new int[]{1, 1}),
+                new TakMoveAction(player, 1, 0, 1, Direction.NORTH, new int[]{1})
+            };
+            TakEngineErrorCode[] codes = {
+                null,
+                TakEngineErrorCode.STACK_NOT_EMPTY,
+                TakEngineErrorCode.INVALID_LOCATION,
+                TakEngineErrorCode.NOT_YOUR_TURN,
+                TakEngineErrorCode.DO_NOT_OWN_STACK,
+                TakEngineErrorCode.INVALID_PICKUP_AMOUNT,
+                TakEngineErrorCode.INVALID_LOCATION
+            };
+            for(int i = 0; i < actions.length; i++) {
+                Assert.assertEquals(codes[i], engine.checkAction(state, actions[i]));
+                Assert.assertEquals(codes[i], engine.checkAction(bitState, actions[i]));
+                Assert.assertEquals(codes[i] == null, engine.isLegalAction(state, actions[i]));
+            }
+
+            //The throwing path reports the same reason
+            try {
+                engine.submitAction(bitState, actions[1]);
+                Assert.fail();
+            } catch(BoardGameEngineException e) {
+                Assert.assertEquals(TakEngineErrorCode.STACK_NOT_EMPTY, e.getCode());
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //Tests that checkAction agrees with isLegalAction on actions from other positions of a game
+    @Test
+    public void checkActionAgreesWithIsLegal() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakState state = new TakState(PlayerIndicator.WHITE, 5);
+            TakBitState bitState = new TakBitState(PlayerIndicator.WHITE, 5);
+            Random rand = new Random(12);
+            List<Action> previous = new ArrayList<>();
+            while(!state.getStatus().isComplete() && bitState.getPly() < 200) {
+                List<Action> actions = engine.getPossibleActions(state);
+                List<Action> candidates = new ArrayList<>(actions);
+                candidates.addAll(previous);
+                for(Action action : candidates) {
+                    boolean legal = engine.isLegalAction(state, action);
+                    Assert.assertEquals(legal, engine.checkAction(state, action) == null);
+                    Assert.assertEquals(legal, engine.checkAction(bitState, action) == null);
+                    Assert.assertEquals(legal, engine.isLegalAction(bitState, action));
+                }
+
+                Action action = actions.get(rand.nextInt(actions.size()));
+                engine.submitAction(state, action);
+                engine.submitAction(bitState, action);
+                previous = actions;
+            }
+            Assert.assertTrue(state.getStatus().isComplete());
+            Assert.assertEquals(TakEngineErrorCode.GAME_FINISHED, engine.checkAction(bitState, TakPackedMove.place(0, PieceType.STONE)));
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
     //For all tests of getPossibleActions, verification is done by making sure
     //all given turns are legal and that there are the right number of them.
     //This gives reasonable certainty of correctness without building large
@@ -993,6 +1074,35 @@ public class TakEngineTest {
         }
     }
 
+    //Tests that a capstone can flatten a wall right next to it
+    @Test
+    public void getPossibleActionsFlattenAdjacentWall() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakState state = initializeState(5);
+            TakPlaceAction place = new TakPlaceAction(state.getCurrentPlayerInfo().getIdentifier(), 2,2,PieceType.CAPSTONE);
+            engine.submitAction(state, place);
+            place = new TakPlaceAction(state.getCurrentPlayerInfo().getIdentifier(), 2,1,PieceType.WALL);
+            engine.submitAction(state, place);
+            place = new TakPlaceAction(state.getCurrentPlayerInfo().getIdentifier(), 4,4,PieceType.STONE);
+            engine.submitAction(state, place);
+            place = new TakPlaceAction(state.getCurrentPlayerInfo().getIdentifier(), 2,3,PieceType.WALL);
+            engine.submitAction(state, place);
+
+            List<Action> actions = engine.getPossibleActions(state);
+            TakMoveAction north = new TakMoveAction(state.getCurrentPlayerInfo().getIdentifier(), 2,2,1,Direction.NORTH,new int[]{1});
+            TakMoveAction south = new TakMoveAction(state.getCurrentPlayerInfo().getIdentifier(), 2,2,1,Direction.SOUTH,new int[]{1});
+            Assert.assertTrue(actions.contains(north));
+            Assert.assertTrue(actions.contains(south));
+            verifyState(state, actions.size());
+            engine.submitAction(state, north);
+            Assert.assertEquals(0, state.getBoard().getTile(2, 2).getHeight());
+            Assert.assertEquals(3, state.getBoard().getTile(2, 1).getHeight() + state.getBoard().getTile(2, 3).getHeight());
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
     //Tests correct behavior when a player is out of a certain type of piece
     @Test
     public void getPossibleActionsOutOfPieceType() {
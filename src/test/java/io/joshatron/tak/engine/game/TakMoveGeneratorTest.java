@@ -0,0 +1,120 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class TakMoveGeneratorTest {
+    //getPossibleActions on TakState is the oracle for the packed move generator
+
+    private void verifyRandomGame(int size, long seed) throws BoardGameEngineException {
+        TakEngine engine = new TakEngine();
+        TakState state = new TakState(PlayerIndicator.WHITE, size);
+        TakBitState bitState = new TakBitState(PlayerIndicator.WHITE, size);
+        int[] moves = new int[TakMoveGenerator.getMaxMoves(size)];
+        Random rand = new Random(seed);
+
+        while(!state.getStatus().isComplete() && bitState.getPly() < 400) {
+            List<Action> actions = engine.getPossibleActions(state);
+            int count = engine.getPossibleMoves(bitState, moves);
+            Assert.assertEquals(actions.size(), count);
+
+            Set<Action> generated = new HashSet<>();
+            for(int i = 0; i < count; i++) {
+                generated.add(TakPackedMove.toAction(moves[i], bitState.getCurrentPlayer(), size));
+            }
+            Assert.assertEquals(count, generated.size());
+            Assert.assertEquals(new HashSet<>(actions), generated);
+
+            Action action = actions.get(rand.nextInt(actions.size()));
+            engine.submitAction(state, action);
+            engine.submitAction(bitState, action);
+        }
+    }
+
+    @Test
+    public void packedMovesMatchPossibleActions() {
+        try {
+            int[] sizes = {3, 4, 5, 6, 8};
+            for(int size : sizes) {
+                for(int game = 0; game < 8; game++) {
+                    verifyRandomGame(size, size * 1000 + game);
+                }
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //A Random that always picks the same index
+    private static class FixedRandom extends Random {
+        private int index;
+
+        @Override
+        public int nextInt(int bound) {
+            return index;
+        }
+    }
+
+    //Sampling counts the moves in the same order they are generated, so index i has to give the i-th move
+    @Test
+    public void randomMovePicksEachMove() {
+        int[] sizes = {3, 4, 5, 6, 8};
+        for(int size : sizes) {
+            try {
+                TakEngine engine = new TakEngine();
+                TakBitState state = new TakBitState(PlayerIndicator.WHITE, size);
+                int[] moves = new int[TakMoveGenerator.getMaxMoves(size)];
+                FixedRandom fixed = new FixedRandom();
+                Random rand = new Random(size);
+
+                while(!state.getStatus().isComplete() && state.getPly() < 300) {
+                    int count = engine.getPossibleMoves(state, moves);
+                    for(int i = 0; i < count; i++) {
+                        fixed.index = i;
+                        Assert.assertEquals(moves[i], engine.getRandomMove(state, fixed));
+                    }
+
+                    engine.makeMove(state, moves[rand.nextInt(count)]);
+                }
+            } catch (BoardGameEngineException e) {
+                Assert.fail(e.getCode().getName());
+            }
+        }
+    }
+
+    @Test
+    public void playoutIsRepeatable() {
+        try {
+            TakEngine engine = new TakEngine();
+            for(int seed = 0; seed < 20; seed++) {
+                TakBitState first = new TakBitState(PlayerIndicator.WHITE, 5);
+                TakBitState second = new TakBitState(PlayerIndicator.WHITE, 5);
+                TakStatus status = engine.playout(first, new Random(seed), 400);
+                engine.playout(second, new Random(seed), 400);
+
+                Assert.assertEquals(first, second);
+                Assert.assertEquals(status, first.getStatus());
+                Assert.assertTrue(status.isFinished() || first.getPly() == 400);
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void dropMaskRoundTrip() {
+        int[][] drops = {{1}, {3}, {1, 2}, {2, 1, 1}, {1, 1, 1, 1, 1, 1, 1, 1}, {4, 4}};
+        for(int[] placed : drops) {
+            Assert.assertArrayEquals(placed, TakPackedMove.getDrops(TakPackedMove.getDropMask(placed)));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.turn.TakPlaceAction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TakSnapshotTest {
+    //Plays the same random game on a snapshot and a bit state, then checks every snapshot kept along the way is as it was
+    private void verifyRandomGame(int size, PlayerIndicator first, long seed) throws BoardGameEngineException {
+        TakEngine engine = new TakEngine();
+        TakBitState state = new TakBitState(first, size);
+        TakSnapshot snapshot = new TakSnapshot(first, size);
+        int[] moves = new int[TakMoveGenerator.getMaxMoves(size)];
+        Random rand = new Random(seed);
+        List<TakSnapshot> snapshots = new ArrayList<>();
+        List<TakBitState> states = new ArrayList<>();
+
+        while(!state.getStatus().isComplete() && state.getPly() < 200) {
+            int count = engine.getPossibleMoves(state, moves);
+            for(int i = 0; i < count; i++) {
+                Assert.assertNull(engine.checkAction(snapshot, moves[i]));
+            }
+
+            snapshots.add(snapshot);
+            states.add(new TakBitState(state));
+            int move = moves[rand.nextInt(count)];
+            engine.submitAction(state, move);
+            snapshot = engine.submitAction(snapshot, move);
+            Assert.assertEquals(state, snapshot.toBitState());
+            Assert.assertEquals(state.getHash(), snapshot.getHash());
+            Assert.assertEquals(state.computeHash(), snapshot.getHash());
+        }
+
+        for(int i = 0; i < snapshots.size(); i++) {
+            Assert.assertEquals(states.get(i), snapshots.get(i).toBitState());
+        }
+    }
+
+    @Test
+    public void snapshotsMatchBitStates() {
+        try {
+            int[] sizes = {3, 4, 5, 6, 8};
+            for(int size : sizes) {
+                for(int game = 0; game < 4; game++) {
+                    verifyRandomGame(size, game % 2 == 0 ? PlayerIndicator.WHITE : PlayerIndicator.BLACK, size * 100 + game);
+                }
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void illegalActionLeavesSnapshot() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakSnapshot start = new TakSnapshot(PlayerIndicator.WHITE, 5);
+            TakSnapshot next = engine.submitAction(start, new TakPlaceAction(PlayerIndicator.WHITE, 2, 2, PieceType.STONE));
+            Assert.assertEquals(new TakSnapshot(PlayerIndicator.WHITE, 5), start);
+            Assert.assertEquals(1, next.getHeight(12));
+            Assert.assertEquals(TakBitState.BLACK, next.getTopOwner(12));
+
+            Assert.assertEquals(TakEngineErrorCode.STACK_NOT_EMPTY,
+                    engine.checkAction(next, new TakPlaceAction(PlayerIndicator.BLACK, 2, 2, PieceType.STONE)));
+            Assert.assertEquals(TakEngineErrorCode.NOT_YOUR_TURN,
+                    engine.checkAction(next, new TakPlaceAction(PlayerIndicator.WHITE, 0, 0, PieceType.STONE)));
+            try {
+                engine.submitAction(next, new TakPlaceAction(PlayerIndicator.BLACK, 2, 2, PieceType.STONE));
+                Assert.fail();
+            } catch (BoardGameEngineException e) {
+                Assert.assertEquals(TakEngineErrorCode.STACK_NOT_EMPTY, e.getCode());
+            }
+            Assert.assertEquals(1, next.getHeight(12));
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package io.joshatron.tak.engine.game;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.board.grid.Direction;
+import io.joshatron.bgt.engine.board.grid.GridBoard;
+import io.joshatron.bgt.engine.component.PieceStack;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.board.TakPiece;
+import io.joshatron.tak.engine.turn.TakMoveAction;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+import io.joshatron.tak.engine.turn.TakPlaceAction;
+import org.apache.commons.lang.SerializationUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class TakUndoTest {
+    //Every possible action is made and unmade, and the state has to match a copy taken before
+
+    private void verifyRandomGame(int size, PlayerIndicator first, long seed) throws BoardGameEngineException {
+        TakEngine engine = new TakEngine();
+        TakState state = new TakState(first, size);
+        Random rand = new Random(seed);
+
+        while(!state.getStatus().isComplete() && state.getGameLog().size() < 200) {
+            List<Action> actions = engine.getPossibleActions(state);
+            TakState before = (TakState) SerializationUtils.clone(state);
+            for(Action action : actions) {
+                TakUndo undo = engine.makeAction(state, action);
+                engine.unmakeAction(state, undo);
+                Assert.assertEquals(before, state);
+                Assert.assertEquals(before.getHash(), state.getHash());
+                verifySquares(before, state);
+            }
+
+            engine.submitAction(state, actions.get(rand.nextInt(actions.size())));
+            verifySquares((TakState) SerializationUtils.clone(state), state);
+        }
+    }
+
+    //The copy works the squares out from its board, the state has been keeping them up to date
+    private void verifySquares(TakState copy, TakState state) throws BoardGameEngineException {
+        Assert.assertEquals(copy.getEmptySquares(), state.getEmptySquares());
+        Assert.assertEquals(copy.hasRoad(PlayerIndicator.WHITE), state.hasRoad(PlayerIndicator.WHITE));
+        Assert.assertEquals(copy.hasRoad(PlayerIndicator.BLACK), state.hasRoad(PlayerIndicator.BLACK));
+    }
+
+    private void verifyRandomBitGame(int size, PlayerIndicator first, long seed) throws BoardGameEngineException {
+        TakEngine engine = new TakEngine();
+        TakBitState state = new TakBitState(first, size);
+        int[] moves = new int[TakMoveGenerator.getMaxMoves(size)];
+        Random rand = new Random(seed);
+
+        while(!state.getStatus().isComplete() && state.getPly() < 200) {
+            int count = engine.getPossibleMoves(state, moves);
+            TakBitState before = new TakBitState(state);
+            for(int i = 0; i < count; i++) {
+                TakBitState checked = new TakBitState(state);
+                engine.submitAction(checked, moves[i]);
+                long undo = engine.makeMove(state, moves[i]);
+                Assert.assertEquals(checked, state);
+                Assert.assertEquals(checked.getStatus(), state.getStatus());
+                engine.unmakeMove(state, undo);
+                Assert.assertEquals(before, state);
+                Assert.assertEquals(before.getStatus(), state.getStatus());
+            }
+
+            engine.makeMove(state, moves[rand.nextInt(count)]);
+        }
+    }
+
+    @Test
+    public void unmakeActionRestoresState() {
+        try {
+            int[] sizes = {3, 4, 5};
+            for(int size : sizes) {
+                for(int game = 0; game < 3; game++) {
+                    verifyRandomGame(size, game % 2 == 0 ? PlayerIndicator.WHITE : PlayerIndicator.BLACK, size * 10 + game);
+                }
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void unmakeMoveRestoresBitState() {
+        try {
+            int[] sizes = {3, 4, 5, 6, 8};
+            for(int size : sizes) {
+                for(int game = 0; game < 5; game++) {
+                    verifyRandomBitGame(size, game % 2 == 0 ? PlayerIndicator.WHITE : PlayerIndicator.BLACK, size * 10 + game);
+                }
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //Tests that a flattened wall is stood back up on both representations
+    @Test
+    public void unmakeFlattenRestoresWall() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakState state = new TakState(PlayerIndicator.WHITE, 5);
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 4, 4, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 0, 4, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 0, 0, PieceType.CAPSTONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 3, 0, PieceType.WALL));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 1, 0, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 3, 3, PieceType.STONE));
+            engine.submitAction(state, new TakMoveAction(PlayerIndicator.WHITE, 0, 0, 1, Direction.EAST, new int[]{1}));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 3, 2, PieceType.STONE));
+
+            TakBitState bitState = new TakBitState(state);
+            TakState before = (TakState) SerializationUtils.clone(state);
+            TakBitState bitBefore = new TakBitState(bitState);
+
+            TakMoveAction move = new TakMoveAction(PlayerIndicator.WHITE, 1, 0, 2, Direction.EAST, new int[]{1, 1});
+            TakUndo undo = engine.makeAction(state, move);
+            Assert.assertTrue(undo.isFlattened());
+            Assert.assertEquals(PieceType.STONE, state.getBoard().getTile(3, 0).getPieces().get(0).getType());
+            engine.unmakeAction(state, undo);
+            Assert.assertEquals(before, state);
+            Assert.assertEquals(PieceType.WALL, state.getBoard().getTile(3, 0).getTopPiece().getType());
+
+            long bitUndo = engine.makeMove(bitState, TakPackedMove.move(BitBoards.getSquare(5, 1, 0), 2, 2, TakPackedMove.getDropMask(new int[]{1, 1})));
+            Assert.assertTrue(TakPackedMove.isFlattened(TakUndo.getMove(bitUndo)));
+            engine.unmakeMove(bitState, bitUndo);
+            Assert.assertEquals(bitBefore, bitState);
+            Assert.assertEquals(PieceType.WALL, bitState.getTopType(BitBoards.getSquare(5, 3, 0)));
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //Tests that the status squares follow tiles changed outside of the engine
+    @Test
+    public void directBoardEdits() {
+        try {
+            TakState state = new TakState(PlayerIndicator.WHITE, 5);
+            GridBoard<PieceStack<TakPiece>> board = state.getBoard();
+            Assert.assertFalse(state.hasRoad(PlayerIndicator.WHITE));
+            Assert.assertEquals(25, state.getEmptySquares());
+
+            //Edits made outside of the engine are only seen after a rehash
+            for(int x = 0; x < 5; x++) {
+                board.getTile(x, 2).addPiece(TakPiece.of(PlayerIndicator.WHITE, PieceType.STONE));
+            }
+            state.rehash();
+            Assert.assertTrue(state.hasRoad(PlayerIndicator.WHITE));
+            Assert.assertFalse(state.hasRoad(PlayerIndicator.BLACK));
+            Assert.assertEquals(20, state.getEmptySquares());
+            Assert.assertEquals(state.computeHash(), state.getHash());
+
+            board.getTile(2, 2).addPiece(TakPiece.of(PlayerIndicator.BLACK, PieceType.WALL));
+            state.rehash();
+            Assert.assertFalse(state.hasRoad(PlayerIndicator.WHITE));
+            Assert.assertEquals(state.computeHash(), state.getHash());
+            board.getTile(2, 2).removePieces(1);
+            state.rehash();
+            Assert.assertTrue(state.hasRoad(PlayerIndicator.WHITE));
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package io.joshatron.tak.engine.perft;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.turn.TakPlaceAction;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TakPerftTest {
+    private static final int[] SIZES = {3, 4, 5, 6, 8};
+
+    private void verifyState(int size, int depth) throws BoardGameEngineException {
+        TakState state = new TakState(PlayerIndicator.WHITE, size);
+        Assert.assertEquals(PerftTable.getNodes(size, depth).longValue(), new TakPerft().perft(state, depth));
+    }
+
+    private void verifyBitState(int size, int depth) throws BoardGameEngineException {
+        TakBitState state = new TakBitState(PlayerIndicator.WHITE, size);
+        Assert.assertEquals(PerftTable.getNodes(size, depth).longValue(), new TakPerft().perft(state, depth));
+    }
+
+    @Test
+    public void tableCoversEverySize() {
+        for(int size : SIZES) {
+            Assert.assertTrue(PerftTable.getMaxDepth(size) >= 4);
+            Assert.assertEquals(1L, PerftTable.getNodes(size, 0).longValue());
+            Assert.assertEquals(size * size, PerftTable.getNodes(size, 1).longValue());
+        }
+        Assert.assertNull(PerftTable.getNodes(7, 1));
+    }
+
+    @Test
+    public void stateMatchesReference() {
+        try {
+            verifyState(3, 4);
+            verifyState(4, 3);
+            verifyState(5, 3);
+            verifyState(6, 2);
+            verifyState(8, 2);
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void bitStateMatchesReference() {
+        try {
+            verifyBitState(3, 5);
+            verifyBitState(4, 4);
+            verifyBitState(5, 5);
+            verifyBitState(6, 4);
+            verifyBitState(8, 3);
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //The fifth ply is the first where a capstone can flatten a wall
+    @Test
+    public void divideMatchesAcrossThreads() {
+        try {
+            TakPerft perft = new TakPerft();
+            TakBitState bitState = new TakBitState(PlayerIndicator.WHITE, 5);
+            PerftResult single = perft.divide(bitState, 5);
+            PerftResult parallel = perft.divide(bitState, 5, 3);
+            Assert.assertEquals(PerftTable.getNodes(5, 5).longValue(), single.getNodes());
+            Assert.assertEquals(25, single.getDivide().size());
+            Assert.assertEquals(single.getDivide(), parallel.getDivide());
+            Assert.assertEquals(single.getNodes(), parallel.getNodes());
+
+            TakState state = new TakState(PlayerIndicator.WHITE, 4);
+            PerftResult stateSingle = perft.divide(state, 3);
+            PerftResult stateParallel = perft.divide(state, 3, 2);
+            Assert.assertEquals(PerftTable.getNodes(4, 3).longValue(), stateSingle.getNodes());
+            Assert.assertEquals(stateSingle.getDivide(), stateParallel.getDivide());
+            Assert.assertEquals(stateSingle.getDivide(), perft.divide(new TakBitState(state), 3).getDivide());
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //A finished game is a leaf, so it only counts once nothing is left to play
+    @Test
+    public void finishedGameIsNotPlayedOn() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakState state = new TakState(PlayerIndicator.WHITE, 3);
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 0, 2, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 0, 0, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 1, 0, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 1, 1, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 2, 0, PieceType.STONE));
+            Assert.assertTrue(state.getStatus().isComplete());
+
+            TakPerft perft = new TakPerft();
+            Assert.assertEquals(1, perft.perft(state, 0));
+            Assert.assertEquals(0, perft.perft(state, 2));
+            Assert.assertEquals(0, perft.perft(new TakBitState(state), 2));
+            Assert.assertTrue(perft.divide(state, 2).getDivide().isEmpty());
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+}
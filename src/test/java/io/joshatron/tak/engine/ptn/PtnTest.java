@@ -0,0 +1,195 @@
+package io.joshatron.tak.engine.ptn;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.simulation.GameRecord;
+import io.joshatron.tak.engine.simulation.RandomMovePolicy;
+import io.joshatron.tak.engine.simulation.TakSimulator;
+import io.joshatron.tak.engine.turn.TakPackedMove;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class PtnTest {
+    @Test
+    public void parseMoves() {
+        try {
+            Assert.assertEquals(TakPackedMove.place(BitBoards.getSquare(5, 0, 4), PieceType.STONE), Ptn.parseMove("a1", 5));
+            Assert.assertEquals(TakPackedMove.place(BitBoards.getSquare(5, 0, 4), PieceType.STONE), Ptn.parseMove("Fa1", 5));
+            Assert.assertEquals(TakPackedMove.place(BitBoards.getSquare(5, 1, 0), PieceType.WALL), Ptn.parseMove("Sb5'", 5));
+            Assert.assertEquals(TakPackedMove.place(BitBoards.getSquare(5, 2, 2), PieceType.CAPSTONE), Ptn.parseMove("Cc3!", 5));
+            Assert.assertEquals(TakPackedMove.move(BitBoards.getSquare(5, 2, 2), 0, 1, 1), Ptn.parseMove("c3+", 5));
+            Assert.assertEquals(TakPackedMove.move(BitBoards.getSquare(5, 2, 2), 1, 2, 2), Ptn.parseMove("2c3-", 5));
+            Assert.assertEquals(TakPackedMove.move(BitBoards.getSquare(5, 2, 2), 2, 3, 7), Ptn.parseMove("3c3>111", 5));
+            Assert.assertEquals(TakPackedMove.move(BitBoards.getSquare(5, 2, 2), 3, 3, 6), Ptn.parseMove("3c3<21*", 5));
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void parseBadMoves() {
+        String[] bad = {"", "a", "f1", "a6", "a0", "Sa1+", "Fa1+", "Fa1>11", "Ca1-", "3c3>22", "3c3>11", "3c3>4", "c3^", "9a1>", "2a1", "0a1+"};
+        for(String move : bad) {
+            try {
+                Ptn.parseMove(move, 5);
+                Assert.fail(move);
+            } catch(BoardGameEngineException e) {
+            }
+        }
+    }
+
+    @Test
+    public void formatMoves() {
+        try {
+            String[] moves = {"a1", "Sb5", "Ce2", "c3+", "2c3-", "3c3>111", "5a5>23", "e1<"};
+            for(String move : moves) {
+                Assert.assertEquals(move, Ptn.formatMove(Ptn.parseMove(move, 5), 5));
+            }
+            Assert.assertEquals("h8", Ptn.formatMove(Ptn.parseMove("h8", 8), 8));
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //Written games have to read back with the same moves and end up where they did
+    @Test
+    public void roundTrip() {
+        try {
+            int[] sizes = {3, 4, 5, 6, 8};
+            for(int size : sizes) {
+                TakSimulator simulator = new TakSimulator(size, 1, 5, 150, RandomMovePolicy::new);
+                List<GameRecord> records = Collections.synchronizedList(new ArrayList<>());
+                simulator.run(10, size, records::add);
+                simulator.shutdown();
+
+                StringWriter written = new StringWriter();
+                PtnWriter writer = new PtnWriter(written);
+                for(GameRecord record : records) {
+                    writer.write(record);
+                }
+                writer.flush();
+
+                for(boolean validate : new boolean[] {true, false}) {
+                    PtnReader reader = new PtnReader(new StringReader(written.toString()), validate);
+                    for(GameRecord record : records) {
+                        PtnGame game = reader.read();
+                        Assert.assertEquals(size, game.getSize());
+                        Assert.assertArrayEquals(record.getMoves(), game.getMoves());
+                        Assert.assertEquals(Ptn.getResult(record.getStatus()), game.getResult());
+                        Assert.assertEquals(record.getStatus(), game.getState().getStatus());
+                    }
+                    Assert.assertNull(reader.read());
+                    reader.close();
+                }
+            }
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void readSeveralGames() {
+        String ptn = "[Site \"Test\"]\n[Size \"3\"]\n[Player1 \"Some \\\"One\\\"\"]\n\n" +
+                     "{A comment\nover two lines} 1. a3 c1 {after black}\n2.b2 c2\n3. b1 b3 4. a1 0-R\n" +
+                     "[Size \"5\"]\n1. a1 d4\n2. Cb2 Sc3\n" +
+                     "[Size \"6\"] 1. a1 e5 2. a2 1/2-1/2";
+        try {
+            PtnReader reader = new PtnReader(new StringReader(ptn));
+
+            PtnGame game = reader.read();
+            Assert.assertEquals(3, game.getSize());
+            Assert.assertEquals("Test", game.getTag("Site"));
+            Assert.assertEquals("Some \"One\"", game.getTag("Player1"));
+            Assert.assertEquals(7, game.getPlies());
+            Assert.assertEquals("0-R", game.getResult());
+            Assert.assertEquals(7, game.getState().getPly());
+
+            game = reader.read();
+            Assert.assertEquals(5, game.getSize());
+            Assert.assertEquals(4, game.getPlies());
+            Assert.assertNull(game.getResult());
+            Assert.assertEquals(PieceType.WALL, game.getState().getTopType(BitBoards.getSquare(5, 2, 2)));
+
+            game = reader.read();
+            Assert.assertEquals(6, game.getSize());
+            Assert.assertEquals("1/2-1/2", game.getResult());
+            Assert.assertNull(reader.read());
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    //A game with tags and no moves still ends where the next game's tags start
+    @Test
+    public void readGameWithoutMoves() {
+        String ptn = "[Event \"First\"]\n[Size \"4\"]\n\n" +
+                     "[Event \"Second\"]\n[Size \"5\"]\n\n1. a1 e5\n\n" +
+                     "[Event \"Third\"]\n\n[Size \"3\"]\n";
+        try {
+            PtnReader reader = new PtnReader(new StringReader(ptn));
+
+            PtnGame game = reader.read();
+            Assert.assertEquals("First", game.getTag("Event"));
+            Assert.assertEquals(4, game.getSize());
+            Assert.assertEquals(0, game.getPlies());
+
+            game = reader.read();
+            Assert.assertEquals("Second", game.getTag("Event"));
+            Assert.assertEquals(5, game.getSize());
+            Assert.assertEquals(2, game.getPlies());
+
+            //A blank line inside one game's tags doesn't split it
+            game = reader.read();
+            Assert.assertEquals("Third", game.getTag("Event"));
+            Assert.assertEquals(3, game.getSize());
+            Assert.assertNull(reader.read());
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    //An illegal move fails the game it is in and leaves the reader on the next one
+    @Test
+    public void illegalMoveRejected() {
+        String ptn = "[Size \"5\"]\n1. a1 a1 2. b2 b3\n[Size \"5\"]\n1. a1 e5\n";
+        try {
+            PtnReader reader = new PtnReader(new StringReader(ptn));
+            try {
+                reader.read();
+                Assert.fail();
+            } catch(BoardGameEngineException e) {
+                Assert.assertEquals(TakEngineErrorCode.STACK_NOT_EMPTY, e.getCode());
+            }
+
+            PtnGame game = reader.read();
+            Assert.assertEquals(2, game.getPlies());
+            Assert.assertNull(reader.read());
+
+            try {
+                new PtnReader(new StringReader("1. a1 e5")).read();
+                Assert.fail();
+            } catch(BoardGameEngineException e) {
+                Assert.assertEquals(TakEngineErrorCode.INVALID_GAME_RECORD, e.getCode());
+            }
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+}
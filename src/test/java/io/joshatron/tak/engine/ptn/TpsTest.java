@@ -0,0 +1,162 @@
+package io.joshatron.tak.engine.ptn;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakState;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+public class TpsTest {
+    @Test
+    public void readPosition() {
+        try {
+            TakBitState state = Tps.readBitState("x3,12,2S/x,22S,x3/1,21C,x3/x5/x4,2 2 4");
+            Assert.assertEquals(5, state.getSize());
+            Assert.assertEquals(TakBitState.BLACK, state.getCurrent());
+            Assert.assertEquals(7, state.getPly());
+            Assert.assertEquals(2, state.getHeight(BitBoards.getSquare(5, 3, 0)));
+            Assert.assertEquals(TakBitState.BLACK, state.getTopOwner(BitBoards.getSquare(5, 3, 0)));
+            Assert.assertEquals(PieceType.WALL, state.getTopType(BitBoards.getSquare(5, 4, 0)));
+            Assert.assertEquals(PieceType.CAPSTONE, state.getTopType(BitBoards.getSquare(5, 1, 2)));
+            Assert.assertEquals(TakBitState.BLACK, state.getOwner(BitBoards.getSquare(5, 1, 2), 0));
+            Assert.assertEquals(PieceType.STONE, state.getTopType(BitBoards.getSquare(5, 4, 4)));
+            Assert.assertEquals(21 - 2, state.getStones(TakBitState.WHITE));
+            Assert.assertEquals(21 - 6, state.getStones(TakBitState.BLACK));
+            Assert.assertEquals(0, state.getCapstones(TakBitState.WHITE));
+            Assert.assertEquals(1, state.getCapstones(TakBitState.BLACK));
+            Assert.assertEquals(state.computeHash(), state.getHash());
+            Assert.assertFalse(state.getStatus().isFinished());
+
+            state = Tps.readBitState("x3/x3/x3 1 1");
+            Assert.assertEquals(new TakBitState(PlayerIndicator.WHITE, 3), state);
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void readBadPositions() {
+        String[] bad = {"", "x3/x3 1 1", "x3/x3/x3", "x3/x3/x3 1", "x3/x3/x3 3 1", "x3/x3/x3 1 0", "x3/x3/x3 1 1 1",
+                        "x4/x3/x3 1 1", "x2/x3/x3 1 1", "x3/x3/x,1,1,1 1 1", "x3/x3/x,3,1 1 1", "x3/x3/x2,1S1 1 1",
+                        "x3/x3/x3  1 1", "x3/x3/x3 1 1a"};
+        for(String tps : bad) {
+            try {
+                Tps.readBitState(tps);
+                Assert.fail(tps);
+            } catch(BoardGameEngineException e) {
+                Assert.assertEquals(tps, TakEngineErrorCode.INVALID_POSITION_STRING, e.getCode());
+            }
+        }
+
+        try {
+            Tps.readBitState("x7/x7/x7/x7/x7/x7/x7 1 1");
+            Assert.fail();
+        } catch(BoardGameEngineException e) {
+            Assert.assertEquals(TakEngineErrorCode.INVALID_BOARD_SIZE, e.getCode());
+        }
+
+        // More pieces than there are in the reserves
+        try {
+            Tps.readBitState("1C,x2/x3/x3 1 2");
+            Assert.fail();
+        } catch(BoardGameEngineException e) {
+            Assert.assertEquals(TakEngineErrorCode.NOT_ENOUGH_CAPSTONES, e.getCode());
+        }
+    }
+
+    //Every position of some random games has to come back exactly as it was written
+    @Test
+    public void roundTrip() {
+        try {
+            TakEngine engine = new TakEngine();
+            int[] sizes = {3, 4, 5, 6, 8};
+            for(int size : sizes) {
+                Random rand = new Random(size);
+                for(int game = 0; game < 10; game++) {
+                    TakBitState state = new TakBitState(PlayerIndicator.WHITE, size);
+                    while(true) {
+                        String tps = Tps.write(state);
+                        TakBitState read = Tps.readBitState(tps);
+                        Assert.assertEquals(tps, state, read);
+                        Assert.assertEquals(tps, Tps.write(read));
+                        Assert.assertEquals(tps, Tps.write(Tps.readState(tps)));
+
+                        int move = engine.getRandomMove(state, rand);
+                        if(state.getStatus().isFinished() || move < 0) {
+                            break;
+                        }
+                        engine.makeMove(state, move);
+                    }
+                }
+            }
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //A TakState read from a position carries on with the main turn rules
+    @Test
+    public void stateCarriesOn() {
+        try {
+            TakState state = Tps.readState("x4,2/x5/x5/x5/1,x4 1 2");
+            Assert.assertEquals(2, state.getPly());
+            Assert.assertTrue(state.getGameLog().isEmpty());
+            Assert.assertEquals(state.computeHash(), state.getHash());
+            Assert.assertEquals(PlayerIndicator.WHITE, state.getCurrentPlayerInfo().getIdentifier());
+
+            TakEngine engine = new TakEngine();
+            int move = Ptn.parseMove("a1+", 5);
+            engine.submitAction(state, move);
+            Assert.assertEquals(3, state.getPly());
+            Assert.assertEquals("x4,2/x5/x5/1,x4/x5 2 2", Tps.write(state));
+
+            // Walls can't be placed on the first turns
+            state = Tps.readState("x5/x5/x5/x5/x5 1 1");
+            Assert.assertFalse(engine.isLegalAction(state, Ptn.parseMove("Sa1", 5)));
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void ptnStartsFromPosition() {
+        String ptn = "[Size \"5\"]\n[TPS \"x4,2/x5/x5/x5/1,x4 2 2\"]\n\n2. -- e4\n3. a1+ e5-\n";
+        try {
+            PtnReader reader = new PtnReader(new StringReader(ptn));
+            PtnGame game = reader.read();
+            Assert.assertEquals(3, game.getStartingPly());
+            Assert.assertEquals(3, game.getPlies());
+            Assert.assertEquals(6, game.getState().getPly());
+            Assert.assertEquals(PlayerIndicator.BLACK, game.getActions().get(0).getPlayer());
+            Assert.assertEquals(2, game.getState().getHeight(BitBoards.getSquare(5, 4, 1)));
+
+            StringWriter written = new StringWriter();
+            new PtnWriter(written).write(game);
+            Assert.assertTrue(written.toString().contains("2. -- e4\n3. a1+ e5-"));
+            PtnGame again = new PtnReader(new StringReader(written.toString())).read();
+            Assert.assertArrayEquals(game.getMoves(), again.getMoves());
+            Assert.assertEquals(game.getState(), again.getState());
+
+            try {
+                new PtnReader(new StringReader("[Size \"6\"]\n[TPS \"x5/x5/x5/x5/x5 1 1\"]")).read();
+                Assert.fail();
+            } catch(BoardGameEngineException e) {
+                Assert.assertEquals(TakEngineErrorCode.INVALID_GAME_RECORD, e.getCode());
+            }
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.turn.TakPlaceAction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MctsSearchTest {
+    private static final int NODES = 1 << 16;
+
+    //White has four in a row on the bottom edge and black can't stop a fifth
+    private TakState getRoadInOne() throws BoardGameEngineException {
+        TakEngine engine = new TakEngine();
+        TakState state = new TakState(PlayerIndicator.WHITE, 5);
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 4, 0, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 0, 4, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 1, 4, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 4, 1, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 2, 4, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 4, 2, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 3, 4, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 3, 2, PieceType.STONE));
+        return state;
+    }
+
+    @Test
+    public void findsRoadInOne() {
+        try {
+            for(int threads = 1; threads <= 3; threads++) {
+                MctsSearch search = new MctsSearch(threads, NODES, new PlayoutEvaluator(100), MctsSearch.DEFAULT_EXPLORATION, 1);
+                MctsResult result = search.search(getRoadInOne(), 3000, 0);
+                search.shutdown();
+
+                Assert.assertEquals(new TakPlaceAction(PlayerIndicator.WHITE, 4, 4, PieceType.STONE), result.getAction());
+                Assert.assertEquals(3000, result.getPlayouts());
+                Assert.assertTrue(result.getValue() > 0.9);
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void searchLeavesStateAsItWas() {
+        try {
+            TakBitState state = new TakBitState(getRoadInOne());
+            TakBitState before = new TakBitState(state);
+            MctsSearch search = new MctsSearch(2, NODES);
+            search.search(state, 500, 0);
+            search.shutdown();
+            Assert.assertEquals(before, state);
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //The visits under the move played are still there for the next search
+    @Test
+    public void reusesTreeAfterMoves() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakBitState state = new TakBitState(PlayerIndicator.WHITE, 3);
+            MctsSearch search = new MctsSearch(1, NODES, new PlayoutEvaluator(50), MctsSearch.DEFAULT_EXPLORATION, 2);
+            MctsResult first = search.search(state, 20000, 0);
+            engine.submitAction(state, first.getMove());
+            MctsResult reply = search.search(state, 20000, 0);
+            engine.submitAction(state, reply.getMove());
+
+            MctsResult next = search.search(state, 1, 0);
+            search.shutdown();
+            Assert.assertTrue(next.getVisits() > 1);
+            Assert.assertTrue(new TakEngine().isLegalAction(state, next.getMove()));
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //A tree too small for the search keeps going from the leaves it has
+    @Test
+    public void keepsSearchingWhenFull() {
+        try {
+            MctsSearch search = new MctsSearch(2, 500);
+            MctsResult result = search.search(new TakState(PlayerIndicator.WHITE, 6), 2000, 0);
+            search.shutdown();
+            Assert.assertEquals(2000, result.getPlayouts());
+            Assert.assertTrue(result.getNodes() <= 500);
+            Assert.assertNotNull(result.getAction());
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //Expansions that don't fit must not take any nodes, however many threads try at once
+    @Test
+    public void fullTreeKeepsCount() throws InterruptedException {
+        MctsTree tree = new MctsTree(1000);
+        AtomicInteger taken = new AtomicInteger(1);
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                int[] moves = new int[64];
+                for(int i = 0; i < 2000; i++) {
+                    int count = 1 + (i * 31 + seed * 17) % moves.length;
+                    int node = (i + seed) % tree.getUsed();
+                    if(tree.startExpanding(node)) {
+                        if(tree.expand(node, moves, count)) {
+                            taken.addAndGet(count);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(taken.get(), tree.getUsed());
+        Assert.assertTrue(tree.getUsed() <= tree.getCapacity());
+        int[] moves = new int[tree.getCapacity() - tree.getUsed() + 1];
+        int leaf = tree.getUsed() - 1;
+        Assert.assertEquals(MctsTree.UNEXPANDED, tree.getFirstChild(leaf));
+        Assert.assertTrue(tree.startExpanding(leaf));
+        Assert.assertFalse(tree.expand(leaf, moves, moves.length));
+        Assert.assertEquals(MctsTree.UNEXPANDED, tree.getFirstChild(leaf));
+        Assert.assertEquals(taken.get(), tree.getUsed());
+    }
+
+    @Test
+    public void singleThreadUsesCaller() {
+        //Helpers from other searches may still be stopping, so the count can only go down
+        int helpers = countHelpers();
+        MctsSearch search = new MctsSearch(1, NODES, new PlayoutEvaluator(100), MctsSearch.DEFAULT_EXPLORATION, 1);
+        try {
+            MctsResult result = search.search(getRoadInOne(), 500, 0);
+            Assert.assertEquals(500, result.getPlayouts());
+            Assert.assertTrue(countHelpers() <= helpers);
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    private static int countHelpers() {
+        int count = 0;
+        for(Thread thread : Thread.getAllStackTraces().keySet()) {
+            if(thread.getName().equals("tak-mcts-helper")) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,108 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TakEvaluatorTest {
+    //The totals kept as pieces move have to match counting them on the board, after every move and every undo
+    @Test
+    public void incrementalFeatures() {
+        try {
+            TakEngine engine = new TakEngine();
+            Random rand = new Random(25);
+            for(int size : new int[]{3, 5, 8}) {
+                int[] moves = new int[TakMoveGenerator.getMaxMoves(size)];
+                for(int game = 0; game < 20; game++) {
+                    TakBitState state = new TakBitState(PlayerIndicator.WHITE, size);
+                    while(!state.getStatus().isFinished()) {
+                        assertFeatures(state);
+                        int count = engine.getPossibleMoves(state, moves);
+                        for(int i = 0; i < count; i++) {
+                            long undo = engine.makeMove(state, moves[i]);
+                            assertFeatures(state);
+                            engine.unmakeMove(state, undo);
+                        }
+                        assertFeatures(state);
+                        engine.makeMove(state, moves[rand.nextInt(count)]);
+                    }
+                    assertFeatures(state);
+                }
+            }
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //A position is as good for one player as it is bad for the other
+    @Test
+    public void symmetric() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakEvaluator evaluator = new TakEvaluator();
+            Random rand = new Random(7);
+            TakBitState state = new TakBitState(PlayerIndicator.WHITE, 6);
+            Assert.assertEquals(0, evaluator.evaluate(state));
+            for(int ply = 0; ply < 60 && !state.getStatus().isFinished(); ply++) {
+                int score = evaluator.evaluate(state);
+                Assert.assertTrue(Math.abs(score) < TakSearch.WIN - TakSearch.MAX_DEPTH);
+                Assert.assertEquals(score, evaluator.evaluate(state.toState()));
+                TakBitState other = new TakBitState(state);
+                other.setTurn(state.getCurrent() ^ 1, state.getPly());
+                Assert.assertEquals(-score, evaluator.evaluate(other));
+                engine.makeMove(state, engine.getRandomMove(state, rand));
+            }
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //A search scores its leaves with the evaluator it was given
+    @Test
+    public void pluggableEvaluator() {
+        try {
+            TakBitState state = new TakBitState(PlayerIndicator.WHITE, 5);
+            TakSearch search = new TakSearch(new TranspositionTable(1 << 20), position -> 17);
+            Assert.assertEquals(-17, search.search(state, 1, 0).getScore());
+            Assert.assertEquals(17, search.search(state, 2, 0).getScore());
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    private static void assertFeatures(TakBitState state) {
+        int size = state.getSize();
+        int[] centre = new int[2];
+        int[] support = new int[2];
+        int[] captives = new int[2];
+        for(int square = 0; square < size * size; square++) {
+            int height = state.getHeight(square);
+            if(height == 0) {
+                continue;
+            }
+            int top = state.getTopOwner(square);
+            centre[top] += BitBoards.getCentreWeight(size, square);
+            for(int i = 0; i < height - 1; i++) {
+                if(state.getOwner(square, i) == top) {
+                    support[top]++;
+                }
+                else {
+                    captives[top]++;
+                }
+            }
+        }
+
+        for(int player = TakBitState.WHITE; player <= TakBitState.BLACK; player++) {
+            Assert.assertEquals(centre[player], state.getCentre(player));
+            Assert.assertEquals(support[player], state.getSupport(player));
+            Assert.assertEquals(captives[player], state.getCaptives(player));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.turn.TakPlaceAction;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TakParallelSearchTest {
+
+    @Test
+    public void threadsAgreeOnRoadInOne() {
+        TakParallelSearch search = new TakParallelSearch(4, 1 << 20);
+        try {
+            TakEngine engine = new TakEngine();
+            TakState state = new TakState(PlayerIndicator.WHITE, 5);
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 4, 0, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 0, 4, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 1, 4, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 4, 1, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 2, 4, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 4, 2, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 3, 4, PieceType.STONE));
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 3, 2, PieceType.STONE));
+
+            TakBitState bitState = new TakBitState(state);
+            TakBitState before = new TakBitState(bitState);
+            ParallelSearchResult result = search.search(bitState, 4, 0);
+            Assert.assertEquals(before, bitState);
+            Assert.assertEquals(4, result.getThreads().length);
+            Assert.assertEquals(new TakPlaceAction(PlayerIndicator.WHITE, 4, 4, PieceType.STONE), result.getBest().getAction());
+            Assert.assertEquals(TakSearch.WIN - 1, result.getBest().getScore());
+            for(SearchResult thread : result.getThreads()) {
+                Assert.assertTrue(thread.getNodes() > 0);
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void helpersStopWithMainThread() {
+        TakParallelSearch search = new TakParallelSearch(3, 1 << 20);
+        try {
+            long start = System.currentTimeMillis();
+            ParallelSearchResult result = search.search(new TakState(PlayerIndicator.WHITE, 6), TakSearch.MAX_DEPTH, 300);
+            Assert.assertTrue(System.currentTimeMillis() - start < 3000);
+            Assert.assertNotNull(result.getBest().getAction());
+            Assert.assertTrue(result.getNodesPerSecond() > 0);
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    //One thread searches on the caller without starting any helper
+    @Test
+    public void singleThreadUsesCaller() {
+        //Helpers from other searches may still be stopping, so the count can only go down
+        int helpers = countHelpers();
+        TakParallelSearch search = new TakParallelSearch(1, 1 << 20);
+        try {
+            ParallelSearchResult result = search.search(new TakState(PlayerIndicator.WHITE, 5), 3, 0);
+            Assert.assertNotNull(result.getBest().getAction());
+            Assert.assertEquals(1, result.getThreads().length);
+            Assert.assertTrue(countHelpers() <= helpers);
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    private static int countHelpers() {
+        int count = 0;
+        for(Thread thread : Thread.getAllStackTraces().keySet()) {
+            if(thread.getName().equals("tak-search-helper")) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
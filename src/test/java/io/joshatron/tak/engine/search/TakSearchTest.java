@@ -0,0 +1,120 @@
+package io.joshatron.tak.engine.search;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakState;
+import io.joshatron.tak.engine.turn.TakPlaceAction;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TakSearchTest {
+    private static final long TABLE_BYTES = 1 << 20;
+
+    //White has four in a row on the bottom edge and black can't stop a fifth
+    private TakState getRoadInOne() throws BoardGameEngineException {
+        TakEngine engine = new TakEngine();
+        TakState state = new TakState(PlayerIndicator.WHITE, 5);
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 4, 0, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 0, 4, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 1, 4, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 4, 1, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 2, 4, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 4, 2, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 3, 4, PieceType.STONE));
+        engine.submitAction(state, new TakPlaceAction(PlayerIndicator.BLACK, 3, 2, PieceType.STONE));
+        return state;
+    }
+
+    @Test
+    public void findsRoadInOne() {
+        try {
+            TakState state = getRoadInOne();
+            TakSearch search = new TakSearch(TABLE_BYTES);
+            SearchResult result = search.search(state, 3, 0);
+
+            Assert.assertEquals(new TakPlaceAction(PlayerIndicator.WHITE, 4, 4, PieceType.STONE), result.getAction());
+            Assert.assertEquals(TakSearch.WIN - 1, result.getScore());
+            Assert.assertTrue(new TakEngine().isLegalAction(state, result.getAction()));
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //Tests that black blocks the road when it is their move instead
+    @Test
+    public void blocksRoadInOne() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakState state = getRoadInOne();
+            engine.submitAction(state, new TakPlaceAction(PlayerIndicator.WHITE, 0, 0, PieceType.STONE));
+            TakSearch search = new TakSearch(TABLE_BYTES);
+            SearchResult result = search.search(state, 2, 0);
+
+            Assert.assertEquals(4, ((TakPlaceAction) result.getAction()).getLocation().getX());
+            Assert.assertEquals(4, ((TakPlaceAction) result.getAction()).getLocation().getY());
+            Assert.assertTrue(result.getScore() > -TakSearch.WIN + TakSearch.MAX_DEPTH);
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void searchLeavesStateAsItWas() {
+        try {
+            TakBitState state = new TakBitState(getRoadInOne());
+            TakBitState before = new TakBitState(state);
+            new TakSearch(TABLE_BYTES).search(state, 3, 0);
+            Assert.assertEquals(before, state);
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void stopsWhenOutOfTime() {
+        try {
+            TakSearch search = new TakSearch(TABLE_BYTES);
+            long start = System.currentTimeMillis();
+            SearchResult result = search.search(new TakState(PlayerIndicator.WHITE, 6), TakSearch.MAX_DEPTH, 200);
+            Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+            Assert.assertTrue(result.getDepth() < TakSearch.MAX_DEPTH);
+            Assert.assertNotNull(result.getAction());
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void tableKeepsDeepestAndLatest() {
+        TranspositionTable table = new TranspositionTable(64);
+        Assert.assertEquals(2, table.getBuckets());
+        Assert.assertEquals(0, table.probe(12));
+
+        table.store(12, 1234, -500, 6, TranspositionTable.LOWER);
+        long data = table.probe(12);
+        Assert.assertEquals(1234, TranspositionTable.getMove(data));
+        Assert.assertEquals(-500, TranspositionTable.getScore(data));
+        Assert.assertEquals(6, TranspositionTable.getDepth(data));
+        Assert.assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(data));
+
+        // A shallower entry in the same bucket goes in the second slot
+        table.store(14, 55, 10, 2, TranspositionTable.EXACT);
+        Assert.assertEquals(55, TranspositionTable.getMove(table.probe(14)));
+        Assert.assertEquals(1234, TranspositionTable.getMove(table.probe(12)));
+        table.store(16, 77, 10, 1, TranspositionTable.EXACT);
+        Assert.assertEquals(0, table.probe(14));
+        Assert.assertEquals(1234, TranspositionTable.getMove(table.probe(12)));
+
+        // Entries from an older search give way
+        table.newSearch();
+        table.store(18, 99, 0, 1, TranspositionTable.UPPER);
+        Assert.assertEquals(0, table.probe(12));
+        Assert.assertEquals(99, TranspositionTable.getMove(table.probe(18)));
+
+        table.clear();
+        Assert.assertEquals(0, table.probe(18));
+    }
+}
@@ -0,0 +1,64 @@
+package io.joshatron.tak.engine.simulation;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakState;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TakSimulatorTest {
+    //Every record has to replay through the normal rules to the same result
+    @Test
+    public void recordsReplay() {
+        try {
+            int[] sizes = {3, 4, 5, 6, 8};
+            for(int size : sizes) {
+                TakSimulator simulator = new TakSimulator(size, 2, 7, 200, RandomMovePolicy::new);
+                List<GameRecord> records = Collections.synchronizedList(new ArrayList<>());
+                SimulationResult result = simulator.run(30, size, records::add);
+                simulator.shutdown();
+
+                Assert.assertEquals(30, result.getGames());
+                Assert.assertEquals(30, records.size());
+                long plies = 0;
+                TakEngine engine = new TakEngine();
+                for(GameRecord record : records) {
+                    plies += record.getPlies();
+                    TakState state = new TakState(record.getFirst(), size);
+                    for(Action action : record.getActions()) {
+                        Assert.assertFalse(state.getStatus().isFinished());
+                        engine.submitAction(state, action);
+                    }
+                    Assert.assertEquals(record.getStatus(), state.getStatus());
+                    Assert.assertTrue(record.getStatus().isFinished() || record.getPlies() == 200);
+                }
+                Assert.assertEquals(plies, result.getPlies());
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void policyPicksMoves() {
+        try {
+            // Always playing the first move still has to finish every game
+            TakSimulator simulator = new TakSimulator(5, 1, 3, 300, () -> (state, moves, count, rand) -> 0);
+            List<GameRecord> records = Collections.synchronizedList(new ArrayList<>());
+            simulator.run(5, 0, records::add);
+            simulator.shutdown();
+
+            Assert.assertEquals(5, records.size());
+            for(GameRecord record : records) {
+                Assert.assertArrayEquals(records.get(0).getMoves(), record.getMoves());
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+}
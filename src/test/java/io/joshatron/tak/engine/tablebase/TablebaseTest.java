@@ -0,0 +1,177 @@
+package io.joshatron.tak.engine.tablebase;
+
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+import io.joshatron.tak.engine.ptn.Tps;
+import io.joshatron.tak.engine.search.TakEvaluator;
+import io.joshatron.tak.engine.search.TakSearch;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class TablebaseTest {
+    private static final int PIECES = 3;
+    private static final int PLIES = 5;
+
+    @Test
+    public void solvePositions() {
+        try {
+            TakSolver solver = new TakSolver(1 << 20);
+            //White finishes the top row
+            TakBitState state = Tps.readBitState("1,1,x/x3/x,2,2 1 3");
+            Assert.assertEquals(TablebaseValue.win(1), solver.solve(state, 5));
+            Assert.assertEquals(Tps.readBitState("1,1,x/x3/x,2,2 1 3"), state);
+            //White threatens the top row and the left column, and black can only stop one
+            state = Tps.readBitState("1,1,x/1,2,x/x,2,x 2 3");
+            Assert.assertEquals(TablebaseValue.loss(2), solver.solve(state, 5));
+            Assert.assertEquals(-1, new TakSolver(1 << 20).solve(state, 1));
+            Assert.assertEquals(-1, solver.solve(new TakBitState(PlayerIndicator.WHITE, 4), 3));
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //What the table says has to agree with solving the position on its own, and a search has to score from it
+    @Test
+    public void buildAndProbe() {
+        try {
+            TablebaseBuilder builder = new TablebaseBuilder(3, PIECES, PLIES, 1 << 22);
+            int solved = builder.build();
+            Assert.assertTrue(solved > 0);
+            Assert.assertTrue(solved <= builder.getPositions());
+
+            Path path = Files.createTempFile("tak", ".tablebase");
+            try(OutputStream out = Files.newOutputStream(path)) {
+                Assert.assertEquals(solved, builder.write(out));
+            }
+
+            TakEngine engine = new TakEngine();
+            TakSolver solver = new TakSolver(1 << 20);
+            TakSearch search = new TakSearch(1 << 20);
+            TakEvaluator evaluator = new TakEvaluator();
+            int[] moves = new int[TakMoveGenerator.getMaxMoves(3)];
+            int checked = 0;
+            try(Tablebase tablebase = new Tablebase(path)) {
+                Assert.assertEquals(solved, tablebase.getPositions());
+                Assert.assertEquals(PIECES, tablebase.getMaxPieces());
+                Assert.assertEquals(-1, tablebase.probe(new TakBitState(PlayerIndicator.WHITE, 4)));
+                search.setTablebase(tablebase);
+
+                Random rand = new Random(9);
+                for(int game = 0; game < 200; game++) {
+                    TakBitState state = new TakBitState(PlayerIndicator.WHITE, 3);
+                    while(!state.getStatus().isFinished()) {
+                        int value = tablebase.probe(state);
+                        int pieces = Tablebase.getPieces(state, Tablebase.getTotalPieces(3));
+                        if(pieces > PIECES) {
+                            Assert.assertEquals(-1, value);
+                            break;
+                        }
+                        int alone = solver.solve(state, PLIES);
+                        if(alone >= 0) {
+                            Assert.assertEquals(TablebaseValue.getOutcome(alone), TablebaseValue.getOutcome(value));
+                            checked++;
+                        }
+                        if(value >= 0 && TablebaseValue.getOutcome(value) == TablebaseValue.WIN && TablebaseValue.getDistance(value) == 1) {
+                            Assert.assertTrue(hasWinningMove(engine, state, moves));
+                        }
+                        Assert.assertEquals(searchScore(engine, evaluator, tablebase, state, moves), search.search(state, 1, 0).getScore());
+                        engine.makeMove(state, engine.getRandomMove(state, rand));
+                    }
+                }
+            }
+            Assert.assertTrue(checked > 0);
+            Files.delete(path);
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void corruptTablebase() {
+        try {
+            TablebaseBuilder builder = new TablebaseBuilder(3, 2, 3, 1 << 20);
+            builder.build();
+            Path path = Files.createTempFile("tak", ".tablebase");
+            try(OutputStream out = Files.newOutputStream(path)) {
+                builder.write(out);
+            }
+            byte[] good = Files.readAllBytes(path);
+
+            byte[] bad = good.clone();
+            bad[0] = 'X';
+            assertCorrupt(path, bad, TakEngineErrorCode.INVALID_TABLEBASE);
+            assertCorrupt(path, Arrays.copyOf(good, good.length - 1), TakEngineErrorCode.INVALID_TABLEBASE);
+            bad = good.clone();
+            bad[Tablebase.MAGIC.length + 1] = 7;
+            assertCorrupt(path, bad, TakEngineErrorCode.INVALID_BOARD_SIZE);
+            Files.delete(path);
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        } catch(IOException e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    private static boolean hasWinningMove(TakEngine engine, TakBitState state, int[] moves) {
+        int count = engine.getPossibleMoves(state, moves);
+        for(int i = 0; i < count; i++) {
+            long undo = engine.makeMove(state, moves[i]);
+            boolean won = state.getStatus().isFinished() && state.getStatus().getWinner() != state.getCurrentPlayer();
+            engine.unmakeMove(state, undo);
+            if(won) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    //What a search to depth 1 scores the position, with the replies scored from the table where they are in it
+    private static int searchScore(TakEngine engine, TakEvaluator evaluator, Tablebase tablebase, TakBitState state, int[] moves) {
+        int count = engine.getPossibleMoves(state, moves);
+        int best = Integer.MIN_VALUE;
+        for(int i = 0; i < count; i++) {
+            long undo = engine.makeMove(state, moves[i]);
+            int score;
+            if(state.getStatus().isFinished()) {
+                PlayerIndicator winner = state.getStatus().getWinner();
+                score = winner == PlayerIndicator.NONE ? 0 : winner == state.getCurrentPlayer() ? TakSearch.WIN - 1 : 1 - TakSearch.WIN;
+            }
+            else if(tablebase.probe(state) >= 0) {
+                score = TablebaseValue.toScore(tablebase.probe(state), 1);
+            }
+            else {
+                score = evaluator.evaluate(state);
+            }
+            engine.unmakeMove(state, undo);
+            best = Math.max(best, -score);
+        }
+
+        return best;
+    }
+
+    private static void assertCorrupt(Path path, byte[] bytes, TakEngineErrorCode error) throws IOException {
+        try(OutputStream out = Files.newOutputStream(path)) {
+            out.write(bytes);
+        }
+
+        try(Tablebase tablebase = new Tablebase(path)) {
+            Assert.fail();
+        } catch(BoardGameEngineException e) {
+            Assert.assertEquals(error, e.getCode());
+        }
+    }
+}
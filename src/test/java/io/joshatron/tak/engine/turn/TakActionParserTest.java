@@ -0,0 +1,163 @@
+package io.joshatron.tak.engine.turn;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.board.grid.Direction;
+import io.joshatron.bgt.engine.exception.BoardGameCommonErrorCode;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.exception.BoardGameErrorCode;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.BitBoards;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.exception.TakEngineErrorCode;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+import io.joshatron.tak.engine.ptn.Ptn;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class TakActionParserTest {
+
+    //Tests that the string of every generated move parses back to the move, from text and from bytes
+    @Test
+    public void parseGeneratedMoves() {
+        try {
+            TakEngine engine = new TakEngine();
+            int[] sizes = {3, 5, 8};
+            for(int size : sizes) {
+                TakBitState state = new TakBitState(PlayerIndicator.WHITE, size);
+                int[] moves = new int[TakMoveGenerator.getMaxMoves(size)];
+                Random rand = new Random(size);
+                while(!state.getStatus().isComplete() && state.getPly() < 200) {
+                    int count = engine.getPossibleMoves(state, moves);
+                    for(int i = 0; i < count; i++) {
+                        String action = TakPackedMove.toAction(moves[i], state.getCurrentPlayer(), size).toString();
+                        Assert.assertEquals(action, moves[i], TakActionParser.parse(action, size));
+                        Assert.assertEquals(action, moves[i], TakActionParser.parse(action.toUpperCase(), size));
+                        ByteBuffer bytes = ByteBuffer.wrap(("  " + action).getBytes(StandardCharsets.US_ASCII));
+                        bytes.position(2);
+                        Assert.assertEquals(action, moves[i], TakActionParser.parse(bytes, size));
+                        Assert.assertEquals(2, bytes.position());
+                    }
+                    engine.submitAction(state, moves[rand.nextInt(count)]);
+                }
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void parseErrors() {
+        assertError("", TakEngineErrorCode.INVALID_TURN_STRING);
+        assertError("x", TakEngineErrorCode.INVALID_TURN_STRING);
+        assertError("p", TakEngineErrorCode.INVALID_PIECE_TYPE);
+        assertError("px a1", TakEngineErrorCode.INVALID_PIECE_TYPE);
+        assertError("pss a1", TakEngineErrorCode.INVALID_PIECE_TYPE);
+        assertError("ps ", TakEngineErrorCode.INVALID_LOCATION);
+        assertError("ps f1", TakEngineErrorCode.INVALID_LOCATION);
+        assertError("ps a6", TakEngineErrorCode.INVALID_LOCATION);
+        assertError("ps a0", TakEngineErrorCode.INVALID_LOCATION);
+        assertError("ps a", TakEngineErrorCode.INVALID_LOCATION);
+        assertError("ps a1 ", TakEngineErrorCode.INVALID_TURN_STRING);
+        assertError("ps a1x", TakEngineErrorCode.INVALID_TURN_STRING);
+        assertError("mne a1 g1 1", BoardGameCommonErrorCode.INVALID_DIRECTION);
+        assertError("mx a1 g1 1", BoardGameCommonErrorCode.INVALID_DIRECTION);
+        assertError("mn e6 g1 1", TakEngineErrorCode.INVALID_LOCATION);
+        assertError("mn a1", TakEngineErrorCode.INVALID_TURN_STRING);
+        assertError("mn a1 1 1", TakEngineErrorCode.INVALID_PICKUP_AMOUNT);
+        assertError("mn a1 g0", TakEngineErrorCode.INVALID_PICKUP_AMOUNT);
+        assertError("mn a1 g6 6", TakEngineErrorCode.INVALID_PICKUP_AMOUNT);
+        assertError("mn a1 g99999999999 1", TakEngineErrorCode.INVALID_PICKUP_AMOUNT);
+        assertError("mn a1 g2 0 2", TakEngineErrorCode.INVALID_PLACE_AMOUNT);
+        assertError("mn a1 g2 1  1", TakEngineErrorCode.INVALID_PLACE_AMOUNT);
+        assertError("mn a1 g2 1a", TakEngineErrorCode.INVALID_TURN_STRING);
+        assertError("mn a1 g2 1", TakEngineErrorCode.PICK_UP_AND_PLACED_DO_NOT_MATCH);
+        assertError("mn a1 g2", TakEngineErrorCode.PICK_UP_AND_PLACED_DO_NOT_MATCH);
+        assertError("mn a1 g2 1 2", TakEngineErrorCode.PICK_UP_AND_PLACED_DO_NOT_MATCH);
+
+        try {
+            TakActionParser.parseMove("ps f1", 5);
+            Assert.fail();
+        } catch(BoardGameEngineException e) {
+            Assert.assertEquals(TakEngineErrorCode.INVALID_LOCATION, e.getCode());
+        }
+    }
+
+    //Fixed strings against the x and y the old split constructors gave, file from 'a' and rank from 1
+    @Test
+    public void parseLocations() {
+        assertSquare("ps a1", 0, 0);
+        assertSquare("pc c3", 2, 2);
+        assertSquare("pw e2", 4, 1);
+        assertSquare("ps b5", 1, 4);
+        assertSquare("mn d1 g1 1", 3, 0);
+        assertSquare("me a4 g3 1 1 1", 0, 3);
+
+        try {
+            int move = Ptn.parseMove("3a2>111", 5);
+            Assert.assertEquals(BitBoards.getSquare(5, 0, 3), TakPackedMove.getSquare(move));
+            Assert.assertEquals(Direction.EAST, TakPackedMove.getDirection(move));
+            Assert.assertEquals(3, TakPackedMove.getPickedUp(move));
+            Assert.assertArrayEquals(new int[] {1, 1, 1}, TakPackedMove.getDrops(TakPackedMove.getDropMask(move)));
+            Assert.assertEquals("me a4 g3 1 1 1", TakPackedMove.toAction(move, PlayerIndicator.WHITE, 5).toString());
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //The string constructors read the same way, keeping their own kind of action
+    @Test
+    public void parseActions() {
+        try {
+            TakPlaceAction place = new TakPlaceAction(PlayerIndicator.WHITE, "PC c3");
+            Assert.assertEquals(PieceType.CAPSTONE, place.getPieceType());
+            Assert.assertEquals(2, place.getLocation().getX());
+            Assert.assertEquals(2, place.getLocation().getY());
+            Assert.assertEquals("pc c3", place.toString());
+
+            TakMoveAction move = new TakMoveAction(PlayerIndicator.BLACK, "mw h8 g3 1 2");
+            Assert.assertEquals(Direction.WEST, move.getDirection());
+            Assert.assertEquals(7, move.getStartLocation().getX());
+            Assert.assertEquals(7, move.getStartLocation().getY());
+            Assert.assertEquals(3, move.getPickedUp());
+            Assert.assertArrayEquals(new int[] {1, 2}, move.getPlaced());
+            Assert.assertEquals("mw h8 g3 1 2", move.toString());
+
+            Action action = TakActionParser.parseAction(PlayerIndicator.BLACK, "mw c1 g3 1 2", 5);
+            Assert.assertEquals(TakPackedMove.move(BitBoards.getSquare(5, 2, 0), 3, 3, 5), TakPackedMove.fromAction(action, 5));
+        } catch(BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+
+        try {
+            new TakPlaceAction(PlayerIndicator.WHITE, "mn a1 g1 1");
+            Assert.fail();
+        } catch(BoardGameEngineException e) {
+            Assert.assertEquals(TakEngineErrorCode.INVALID_TURN_STRING, e.getCode());
+        }
+        try {
+            new TakMoveAction(PlayerIndicator.WHITE, "ps a1");
+            Assert.fail();
+        } catch(BoardGameEngineException e) {
+            Assert.assertEquals(TakEngineErrorCode.INVALID_TURN_STRING, e.getCode());
+        }
+    }
+
+    private static void assertSquare(String action, int x, int y) {
+        int move = TakActionParser.parse(action, 5);
+        Assert.assertFalse(action, TakActionParser.isError(move));
+        Assert.assertEquals(action, x, BitBoards.getX(5, TakPackedMove.getSquare(move)));
+        Assert.assertEquals(action, y, BitBoards.getY(5, TakPackedMove.getSquare(move)));
+    }
+
+    private static void assertError(String action, BoardGameErrorCode error) {
+        int result = TakActionParser.parse(action, 5);
+        Assert.assertTrue(action, TakActionParser.isError(result));
+        Assert.assertEquals(action, error, TakActionParser.getError(result));
+    }
+}
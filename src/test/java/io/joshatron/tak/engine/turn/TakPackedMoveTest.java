@@ -0,0 +1,92 @@
+package io.joshatron.tak.engine.turn;
+
+import io.joshatron.bgt.engine.action.Action;
+import io.joshatron.bgt.engine.board.grid.Direction;
+import io.joshatron.bgt.engine.exception.BoardGameEngineException;
+import io.joshatron.bgt.engine.player.PlayerIndicator;
+import io.joshatron.tak.engine.board.PieceType;
+import io.joshatron.tak.engine.game.TakBitState;
+import io.joshatron.tak.engine.game.TakEngine;
+import io.joshatron.tak.engine.game.TakMoveGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TakPackedMoveTest {
+
+    //Tests that every generated move survives a trip through the action classes
+    @Test
+    public void roundTripGeneratedMoves() {
+        try {
+            TakEngine engine = new TakEngine();
+            int[] sizes = {3, 5, 8};
+            for(int size : sizes) {
+                TakBitState state = new TakBitState(PlayerIndicator.WHITE, size);
+                int[] moves = new int[TakMoveGenerator.getMaxMoves(size)];
+                Random rand = new Random(size);
+                while(!state.getStatus().isComplete() && state.getPly() < 200) {
+                    int count = engine.getPossibleMoves(state, moves);
+                    for(int i = 0; i < count; i++) {
+                        Action action = TakPackedMove.toAction(moves[i], state.getCurrentPlayer(), size);
+                        Assert.assertEquals(moves[i], TakPackedMove.fromAction(action, size));
+                    }
+                    engine.submitAction(state, moves[rand.nextInt(count)]);
+                }
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    //Tests that submitting packed moves gives the same state as submitting actions
+    @Test
+    public void packedMatchesActions() {
+        try {
+            TakEngine engine = new TakEngine();
+            TakBitState packedState = new TakBitState(PlayerIndicator.BLACK, 6);
+            TakBitState actionState = new TakBitState(PlayerIndicator.BLACK, 6);
+            int[] moves = new int[TakMoveGenerator.getMaxMoves(6)];
+            Random rand = new Random(6);
+            while(!packedState.getStatus().isComplete() && packedState.getPly() < 300) {
+                int move = moves[rand.nextInt(engine.getPossibleMoves(packedState, moves))];
+                Assert.assertTrue(engine.isLegalAction(packedState, move));
+                engine.submitAction(packedState, move);
+                engine.submitAction(actionState, TakPackedMove.toAction(move, actionState.getCurrentPlayer(), 6));
+                Assert.assertEquals(actionState, packedState);
+            }
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+    }
+
+    @Test
+    public void fieldsAndFlatten() {
+        try {
+            TakMoveAction action = new TakMoveAction(PlayerIndicator.WHITE, 2, 3, 3, Direction.WEST, new int[]{2, 1});
+            action.flatten();
+            int move = TakPackedMove.fromAction(action, 5);
+            Assert.assertTrue(TakPackedMove.isMove(move));
+            Assert.assertEquals(17, TakPackedMove.getSquare(move));
+            Assert.assertEquals(Direction.WEST, TakPackedMove.getDirection(move));
+            Assert.assertEquals(3, TakPackedMove.getPickedUp(move));
+            Assert.assertEquals(2, TakPackedMove.getDropCount(move));
+            Assert.assertTrue(TakPackedMove.isFlattened(move));
+            Assert.assertEquals(action, TakPackedMove.toAction(move, PlayerIndicator.WHITE, 5));
+
+            int place = TakPackedMove.fromAction(new TakPlaceAction(PlayerIndicator.BLACK, 4, 4, PieceType.CAPSTONE), 5);
+            Assert.assertFalse(TakPackedMove.isMove(place));
+            Assert.assertEquals(24, TakPackedMove.getSquare(place));
+            Assert.assertEquals(PieceType.CAPSTONE, TakPackedMove.getPieceType(place));
+        } catch (BoardGameEngineException e) {
+            Assert.fail(e.getCode().getName());
+        }
+
+        try {
+            TakPackedMove.fromAction(new TakPlaceAction(PlayerIndicator.BLACK, 5, 0, PieceType.STONE), 5);
+            Assert.fail("Off board place should not pack");
+        } catch (BoardGameEngineException e) {
+            Assert.assertEquals("INVALID_LOCATION", e.getCode().getName());
+        }
+    }
+}